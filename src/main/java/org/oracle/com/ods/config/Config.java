@@ -169,4 +169,257 @@ public class Config {
             throw e;
         }
     }
+
+    public static boolean isGzipRequestEnabled() {
+        try {
+            return Boolean.parseBoolean(bundle.getString("http.gzip.request.enabled"));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error retrieving gzip request flag from config", e);
+            throw e;
+        }
+    }
+
+    public static int getGzipRequestMinBytes() {
+        try {
+            return Integer.parseInt(bundle.getString("http.gzip.request.min.bytes"));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error retrieving gzip request minimum size from config", e);
+            throw e;
+        }
+    }
+
+    public static int getModelMappingFetchThreads() {
+        try {
+            return Integer.parseInt(bundle.getString("model.mapping.fetch.threads"));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error retrieving model mapping fetch threads from config", e);
+            throw e;
+        }
+    }
+
+    public static int getModelMappingPageSize() {
+        try {
+            return Integer.parseInt(bundle.getString("model.mapping.page.size"));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error retrieving model mapping page size from config", e);
+            throw e;
+        }
+    }
+
+    public static int getModelMappingPagePrefetch() {
+        try {
+            return Integer.parseInt(bundle.getString("model.mapping.page.prefetch"));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error retrieving model mapping page prefetch from config", e);
+            throw e;
+        }
+    }
+
+    public static boolean isHttpCacheEnabled() {
+        try {
+            return Boolean.parseBoolean(bundle.getString("http.cache.enabled"));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error retrieving http cache flag from config", e);
+            throw e;
+        }
+    }
+
+    public static String getHttpCacheDir() {
+        try {
+            return bundle.getString("http.cache.dir");
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error retrieving http cache directory from config", e);
+            throw e;
+        }
+    }
+
+    public static long getHttpCacheMaxBytes() {
+        try {
+            return Long.parseLong(bundle.getString("http.cache.max.bytes"));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error retrieving http cache size from config", e);
+            throw e;
+        }
+    }
+
+    public static long getHttpCacheTtlSeconds() {
+        try {
+            return Long.parseLong(bundle.getString("http.cache.ttl.seconds"));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error retrieving http cache ttl from config", e);
+            throw e;
+        }
+    }
+
+    public static double getModelMappingDeleteRatePerSecond() {
+        try {
+            return Double.parseDouble(bundle.getString("model.mapping.delete.rate.per.second"));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error retrieving model mapping delete rate from config", e);
+            throw e;
+        }
+    }
+
+    public static long getHttpCoalesceMemoMillis() {
+        try {
+            return Long.parseLong(bundle.getString("http.coalesce.memo.millis"));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error retrieving http coalesce memo from config", e);
+            throw e;
+        }
+    }
+
+    public static int getSchemaBulkThreads() {
+        try {
+            return Integer.parseInt(bundle.getString("schema.bulk.threads"));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error retrieving schema bulk threads from config", e);
+            throw e;
+        }
+    }
+
+    public static double getSchemaDeleteRatePerSecond() {
+        try {
+            return Double.parseDouble(bundle.getString("schema.delete.rate.per.second"));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error retrieving schema delete rate from config", e);
+            throw e;
+        }
+    }
+
+    public static long getSchemaDeletePollTimeoutSeconds() {
+        try {
+            return Long.parseLong(bundle.getString("schema.delete.poll.timeout.seconds"));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error retrieving schema delete poll timeout from config", e);
+            throw e;
+        }
+    }
+
+    public static boolean isExcelStreamingEnabled() {
+        try {
+            return Boolean.parseBoolean(bundle.getString("excel.streaming.enabled"));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error retrieving excel streaming flag from config", e);
+            throw e;
+        }
+    }
+
+    public static int getExcelStreamingRowWindow() {
+        try {
+            return Integer.parseInt(bundle.getString("excel.streaming.row.window"));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error retrieving excel streaming row window from config", e);
+            throw e;
+        }
+    }
+
+    public static int getEvidenceQueryThreads() {
+        try {
+            return Integer.parseInt(bundle.getString("evidence.query.threads"));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error retrieving evidence query threads from config", e);
+            throw e;
+        }
+    }
+
+    public static int getEvidenceWriterThreads() {
+        try {
+            return Integer.parseInt(bundle.getString("evidence.writer.threads"));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error retrieving evidence writer threads from config", e);
+            throw e;
+        }
+    }
+
+    public static int getEvidenceRowBufferSize() {
+        try {
+            return Integer.parseInt(bundle.getString("evidence.row.buffer.size"));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error retrieving evidence row buffer size from config", e);
+            throw e;
+        }
+    }
+
+    public static String getAvroCodec() {
+        try {
+            return bundle.getString("avro.codec");
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error retrieving avro codec from config", e);
+            throw e;
+        }
+    }
+
+    public static int getAvroBlockSizeBytes() {
+        try {
+            return Integer.parseInt(bundle.getString("avro.block.size.bytes"));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error retrieving avro block size from config", e);
+            throw e;
+        }
+    }
+
+    public static int getValidationFetchSize() {
+        try {
+            return Integer.parseInt(bundle.getString("validation.fetch.size"));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error retrieving validation fetch size from config", e);
+            throw e;
+        }
+    }
+
+    public static int getReconcileThreads() {
+        try {
+            return Integer.parseInt(bundle.getString("reconcile.threads"));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error retrieving reconcile threads from config", e);
+            throw e;
+        }
+    }
+
+    public static int getReconcileFanOut() {
+        try {
+            return Integer.parseInt(bundle.getString("reconcile.fan.out"));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error retrieving reconcile fan-out from config", e);
+            throw e;
+        }
+    }
+
+    public static long getReconcileLeafSize() {
+        try {
+            return Long.parseLong(bundle.getString("reconcile.leaf.size"));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error retrieving reconcile leaf size from config", e);
+            throw e;
+        }
+    }
+
+    public static String getRowCountStrategy() {
+        try {
+            return bundle.getString("row.count.strategy").trim();
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error retrieving row count strategy from config", e);
+            throw e;
+        }
+    }
+
+    public static String[] getEnvironmentNames() {
+        try {
+            return bundle.getString("environments").split("\\s*,\\s*");
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error retrieving environments from config", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Looks up an optional {@code environment.<name>.<key>} entry.
+     *
+     * @return The configured value, or null if the entry is absent
+     */
+    public static String getEnvironmentProperty(String environment, String key) {
+        String property = "environment." + environment + "." + key;
+        return bundle.containsKey(property) ? bundle.getString(property).trim() : null;
+    }
 }
@@ -1,5 +1,7 @@
 package org.oracle.com.ods.db;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.oracle.com.ods.config.Config;
@@ -35,6 +37,24 @@ public class Database {
         }
     }
 
+    /**
+     * Creates a pool of connections to the millennium database, for tools running several queries at once.
+     *
+     * @param size the maximum number of connections.
+     * @return the pool, to be closed by the caller.
+     */
+    public static HikariDataSource createConnectionPool(int size) {
+        logger.info("Creating a pool of {} database connections...", size);
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("millennium");
+        config.setJdbcUrl(DB_URL);
+        config.setUsername(DB_USER);
+        config.setPassword(DB_PASSWORD);
+        config.setMaximumPoolSize(size);
+        config.setMinimumIdle(0);
+        return new HikariDataSource(config);
+    }
+
     /**
      * Extracts database metadata for the connection.
      *
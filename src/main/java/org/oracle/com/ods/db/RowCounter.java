@@ -0,0 +1,251 @@
+package org.oracle.com.ods.db;
+
+import org.oracle.com.ods.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.util.*;
+
+/**
+ * Counts the rows of many tables of a schema with one query, either exactly or from catalog statistics.
+ * A full {@code COUNT(*)} scans every table, which on large ODS tables costs warehouse time; the catalogs keep
+ * row counts that are exact in Snowflake, include unpurged deletes in Vertica until they are subtracted, and are
+ * as recent as the last statistics run in Oracle.
+ */
+public class RowCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RowCounter.class);
+
+    private RowCounter() {
+    }
+
+    /**
+     * How the counts are obtained, set by {@code row.count.strategy}.
+     */
+    public enum Strategy {
+        /** One {@code COUNT(*)} per table, all in one {@code UNION ALL} query. */
+        EXACT,
+        /** The catalog statistics only; tables without statistics have no count. */
+        METADATA,
+        /** The catalog statistics, recounted exactly where they are missing or where both sides disagree. */
+        METADATA_WITH_FALLBACK
+    }
+
+    /**
+     * The catalog query of each database, returning {@code TABLE_NAME, ROW_COUNT} for one schema.
+     */
+    public enum Dialect {
+        ORACLE("SELECT TABLE_NAME, NUM_ROWS AS ROW_COUNT FROM ALL_TABLES WHERE OWNER = UPPER(?)"),
+        // storage_containers keeps the deleted rows until they are purged; a segmented projection spreads the
+        // rows over the nodes while an unsegmented one holds all of them on every node
+        VERTICA("SELECT anchor_table_name AS TABLE_NAME, MAX(projection_rows) AS ROW_COUNT FROM ("
+                + "SELECT anchor_table_name, projection_name, CASE WHEN is_segmented THEN SUM(node_rows) ELSE MAX(node_rows) END AS projection_rows FROM ("
+                + "SELECT p.anchor_table_name, p.projection_name, p.is_segmented, c.node_name, "
+                + "SUM(COALESCE(c.total_row_count - c.deleted_row_count, 0)) AS node_rows "
+                + "FROM v_catalog.projections p LEFT JOIN v_monitor.storage_containers c ON c.projection_id = p.projection_id "
+                + "WHERE UPPER(p.projection_schema) = UPPER(?) "
+                + "GROUP BY p.anchor_table_name, p.projection_name, p.is_segmented, c.node_name) nodes "
+                + "GROUP BY anchor_table_name, projection_name, is_segmented) projections "
+                + "GROUP BY anchor_table_name"),
+        SNOWFLAKE("SELECT TABLE_NAME, ROW_COUNT FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = UPPER(?) AND TABLE_TYPE = 'BASE TABLE'");
+
+        private final String metadataQuery;
+
+        Dialect(String metadataQuery) {
+            this.metadataQuery = metadataQuery;
+        }
+
+        public String getMetadataQuery() {
+            return metadataQuery;
+        }
+    }
+
+    /**
+     * The counts of the tables of one schema, with the query each one came from for the evidence.
+     */
+    public static class Counts {
+        private final String schema;
+        private final Map<String, Long> counts = new HashMap<>();
+        private final Map<String, String> queries = new HashMap<>();
+        private final Set<String> exact = new HashSet<>();
+
+        private Counts(String schema) {
+            this.schema = schema;
+        }
+
+        public String getSchema() {
+            return schema;
+        }
+
+        /**
+         * @return The row count of the table, or null if it is unknown: exact counts that failed and
+         * catalog counts of tables without statistics
+         */
+        public Long get(String tableName) {
+            return counts.get(tableName.toUpperCase());
+        }
+
+        /**
+         * @return The query the count of the table was read with
+         */
+        public String getQuery(String tableName) {
+            return queries.get(tableName.toUpperCase());
+        }
+
+        public boolean isExact(String tableName) {
+            return exact.contains(tableName.toUpperCase());
+        }
+
+        private void put(String tableName, Long count, String query, boolean isExact) {
+            String key = tableName.toUpperCase();
+            counts.put(key, count);
+            queries.put(key, query);
+            if (isExact) {
+                exact.add(key);
+            } else {
+                exact.remove(key);
+            }
+        }
+    }
+
+    /**
+     * @return The strategy configured by {@code row.count.strategy}
+     */
+    public static Strategy getConfiguredStrategy() {
+        return Strategy.valueOf(Config.getRowCountStrategy().toUpperCase());
+    }
+
+    /**
+     * Counts the rows of the tables of a schema. Every strategy issues one query for the schema, plus one exact
+     * query for the tables without statistics under {@link Strategy#METADATA_WITH_FALLBACK}. A table that cannot be
+     * counted exactly, e.g. because it is missing, is logged and left without a count instead of failing the schema.
+     *
+     * @param connection The connection to the database holding the schema
+     * @param dialect    The database the connection points to
+     * @param schema     The schema of the tables
+     * @param tableNames The tables to count
+     * @param strategy   How to count
+     * @return The counts, by table name
+     * @throws SQLException If the catalog statistics cannot be read
+     */
+    public static Counts count(Connection connection, Dialect dialect, String schema, Collection<String> tableNames,
+                               Strategy strategy) throws SQLException {
+        Counts counts = new Counts(schema);
+        if (strategy == Strategy.EXACT) {
+            countExactly(connection, counts, tableNames);
+            return counts;
+        }
+
+        String query = dialect.getMetadataQuery().replace("?", "'" + schema + "'");
+        Map<String, Long> statistics = new HashMap<>();
+        try (PreparedStatement stmt = connection.prepareStatement(dialect.getMetadataQuery())) {
+            stmt.setString(1, schema);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    long rowCount = rs.getLong(2);
+                    if (!rs.wasNull()) {
+                        statistics.put(rs.getString(1).toUpperCase(), rowCount);
+                    }
+                }
+            }
+        }
+
+        List<String> missing = new ArrayList<>();
+        for (String tableName : tableNames) {
+            Long rowCount = statistics.get(tableName.toUpperCase());
+            if (rowCount == null) {
+                missing.add(tableName);
+            }
+            counts.put(tableName, rowCount, query, false);
+        }
+        if (!missing.isEmpty()) {
+            logger.info("No catalog row count in {} for {}", schema, missing);
+            if (strategy == Strategy.METADATA_WITH_FALLBACK) {
+                countExactly(connection, counts, missing);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Recounts exactly, on both sides, the tables whose counts came from statistics and differ between the two.
+     * Does nothing unless the strategy is {@link Strategy#METADATA_WITH_FALLBACK}.
+     *
+     * @return The tables that were recounted
+     */
+    public static List<String> recountMismatches(Connection firstConnection, Counts first, Connection secondConnection,
+                                                 Counts second, Collection<String> tableNames, Strategy strategy) throws SQLException {
+        List<String> mismatches = new ArrayList<>();
+        if (strategy != Strategy.METADATA_WITH_FALLBACK) {
+            return mismatches;
+        }
+        for (String tableName : tableNames) {
+            boolean exact = first.isExact(tableName) && second.isExact(tableName);
+            if (!exact && !Objects.equals(first.get(tableName), second.get(tableName))) {
+                mismatches.add(tableName);
+            }
+        }
+        if (!mismatches.isEmpty()) {
+            logger.info("Catalog row counts disagree for {}, counting them exactly", mismatches);
+            countExactly(firstConnection, first, mismatches);
+            countExactly(secondConnection, second, mismatches);
+        }
+        return mismatches;
+    }
+
+    /**
+     * Counts the tables with one {@code UNION ALL} query. If it fails, e.g. because one of the tables is missing or
+     * was renamed, every table is counted on its own and a table that still fails is logged and left without a count.
+     */
+    private static void countExactly(Connection connection, Counts counts, Collection<String> tableNames) {
+        if (tableNames.isEmpty()) {
+            return;
+        }
+        try {
+            countTogether(connection, counts, tableNames);
+            return;
+        } catch (SQLException e) {
+            if (tableNames.size() == 1) {
+                logCountFailure(counts, tableNames.iterator().next(), e);
+                return;
+            }
+            logger.warn("Error counting the rows of {} together, counting each table separately: {}", counts.getSchema(), e.getMessage());
+        }
+        for (String tableName : tableNames) {
+            try {
+                countTogether(connection, counts, List.of(tableName));
+            } catch (SQLException e) {
+                logCountFailure(counts, tableName, e);
+            }
+        }
+    }
+
+    private static void logCountFailure(Counts counts, String tableName, SQLException e) {
+        logger.error("Error counting the rows of {}.{}: {}", counts.getSchema(), tableName, e.getMessage());
+        counts.put(tableName, null, "SELECT COUNT(*) FROM " + counts.getSchema() + "." + tableName, true);
+    }
+
+    private static void countTogether(Connection connection, Counts counts, Collection<String> tableNames) throws SQLException {
+        StringBuilder query = new StringBuilder();
+        for (String tableName : tableNames) {
+            if (query.length() > 0) {
+                query.append(" UNION ALL ");
+            }
+            query.append("SELECT '").append(tableName.toUpperCase()).append("' AS TABLE_NAME, COUNT(*) AS ROW_COUNT FROM ")
+                    .append(counts.getSchema()).append(".").append(tableName);
+        }
+
+        Map<String, Long> rowCounts = new HashMap<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(query.toString())) {
+            while (rs.next()) {
+                rowCounts.put(rs.getString(1), rs.getLong(2));
+            }
+        }
+        for (String tableName : tableNames) {
+            counts.put(tableName, rowCounts.get(tableName.toUpperCase()),
+                    "SELECT COUNT(*) FROM " + counts.getSchema() + "." + tableName, true);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.oracle.com.ods.db;
+
+import java.util.Set;
+
+/**
+ * Tells zoned timestamps apart from plain ones by their JDBC type name. Vertica reports {@code TimestampTz} and
+ * snowflake-jdbc reports {@code TIMESTAMPTZ} and {@code TIMESTAMPLTZ} as plain {@code Types.TIMESTAMP}, but also
+ * reports {@code TIMESTAMPNTZ}, which holds a wall-clock time without any zone, so a suffix test is not enough.
+ */
+public class TimestampTypes {
+
+    private static final Set<String> ZONED_TYPE_NAMES = Set.of(
+            "TIMESTAMPTZ", "TIMESTAMPLTZ", "TIMESTAMPWITHTIMEZONE", "TIMESTAMPWITHLOCALTIMEZONE");
+
+    private TimestampTypes() {
+    }
+
+    /**
+     * @param typeName The database specific type name of a column, may be null
+     * @return true if the type name denotes a timestamp with a time zone
+     */
+    public static boolean isZoned(String typeName) {
+        if (typeName == null) {
+            return false;
+        }
+        return ZONED_TYPE_NAMES.contains(typeName.toUpperCase().replace("_", "").replace(" ", ""));
+    }
+}
@@ -0,0 +1,289 @@
+package org.oracle.com.ods.services.collectData.avro;
+
+import org.apache.avro.Conversions;
+import org.apache.avro.LogicalType;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.oracle.com.ods.config.Config;
+import org.oracle.com.ods.db.TimestampTypes;
+import org.oracle.com.ods.services.collectData.parallel.EvidenceJob;
+import org.oracle.com.ods.services.collectData.parallel.ParallelEvidenceCollector;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes a query result to an Avro container file as it is read. The record schema is derived from the
+ * {@link ResultSetMetaData}: every column becomes a nullable field of the closest Avro type, with logical types
+ * for decimals, dates, times and timestamps, so the file keeps the types of the warehouse instead of their text.
+ * Timestamps with a time zone keep their instant as {@code timestamp-micros}. A decimal field also accepts a
+ * string, written for the rare value the reported precision and scale cannot hold exactly.
+ * The original column label and JDBC type name are stored on each field as {@code sqlName} and {@code sqlType}.
+ * Rows are encoded into blocks of about {@code avro.block.size.bytes} and compressed with {@code avro.codec}.
+ */
+public class AvroEvidenceExporter {
+
+    private static final String NAMESPACE = "org.oracle.com.ods.evidence";
+    private static final Conversions.DecimalConversion DECIMAL_CONVERSION = new Conversions.DecimalConversion();
+    private static final int ORACLE_TIMESTAMPTZ = -101;
+    private static final int ORACLE_TIMESTAMPLTZ = -102;
+
+    private AvroEvidenceExporter() {
+    }
+
+    /**
+     * Reads one column of the current row and converts it to the value of its Avro field.
+     */
+    @FunctionalInterface
+    private interface ColumnReader {
+        Object read(ResultSet rs, int column) throws SQLException;
+    }
+
+    /**
+     * Exports the result of an evidence job. The schema name, table name, query and total row count are stored
+     * in the file header as {@code ods.schema}, {@code ods.table}, {@code ods.query} and {@code ods.totalRowCount}.
+     * Matches {@link ParallelEvidenceCollector.ResultSetExporter}.
+     */
+    public static long export(EvidenceJob job, ResultSet rs, String totalRowCount) throws SQLException, IOException {
+        Map<String, String> metadata = new LinkedHashMap<>();
+        metadata.put("ods.schema", job.getSchemaName());
+        metadata.put("ods.table", job.getTableName());
+        metadata.put("ods.query", job.getDataQuery());
+        metadata.put("ods.totalRowCount", totalRowCount);
+        return export(rs, job.getTableName(), metadata, job.getOutputFileName());
+    }
+
+    /**
+     * Streams the result set to an Avro container file.
+     *
+     * @param rs             The result set, positioned before the first row
+     * @param recordName     The name of the record schema, usually the table name
+     * @param metadata       Key-value pairs stored in the file header, e.g. the query and schema name
+     * @param outputFileName The file to write
+     * @return The number of rows written
+     */
+    public static long export(ResultSet rs, String recordName, Map<String, String> metadata, String outputFileName)
+            throws SQLException, IOException {
+        ResultSetMetaData rsmd = rs.getMetaData();
+        int columnCount = rsmd.getColumnCount();
+
+        SchemaBuilder.FieldAssembler<Schema> fields = SchemaBuilder.record(toAvroName(recordName, "record"))
+                .namespace(NAMESPACE)
+                .fields();
+        ColumnReader[] readers = new ColumnReader[columnCount];
+        Set<String> fieldNames = new HashSet<>();
+        for (int i = 1; i <= columnCount; i++) {
+            Schema type = toAvroType(rsmd, i);
+            readers[i - 1] = readerFor(type);
+
+            String fieldName = toAvroName(rsmd.getColumnLabel(i), "column_" + i);
+            for (int suffix = 2; !fieldNames.add(fieldName); suffix++) {
+                fieldName = toAvroName(rsmd.getColumnLabel(i), "column_" + i) + "_" + suffix;
+            }
+            fields = fields.name(fieldName)
+                    .prop("sqlName", rsmd.getColumnLabel(i))
+                    .prop("sqlType", rsmd.getColumnTypeName(i))
+                    .type(type.getLogicalType() instanceof LogicalTypes.Decimal
+                            ? Schema.createUnion(Schema.create(Schema.Type.NULL), type, Schema.create(Schema.Type.STRING))
+                            : Schema.createUnion(Schema.create(Schema.Type.NULL), type))
+                    .withDefault(null);
+        }
+        Schema schema = fields.endRecord();
+
+        long rowCount = 0;
+        try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(schema))) {
+            writer.setCodec(CodecFactory.fromString(Config.getAvroCodec()));
+            writer.setSyncInterval(Config.getAvroBlockSizeBytes());
+            for (Map.Entry<String, String> entry : metadata.entrySet()) {
+                if (entry.getValue() != null) {
+                    writer.setMeta(entry.getKey(), entry.getValue());
+                }
+            }
+            writer.create(schema, new File(outputFileName));
+
+            // the record is encoded on append, so one instance serves every row
+            GenericRecord record = new GenericData.Record(schema);
+            while (rs.next()) {
+                for (int i = 0; i < columnCount; i++) {
+                    record.put(i, readers[i].read(rs, i + 1));
+                }
+                writer.append(record);
+                rowCount++;
+            }
+        }
+        return rowCount;
+    }
+
+    /**
+     * Maps a JDBC column type to an Avro type. Numbers without a usable precision, such as an unconstrained
+     * Oracle NUMBER, and all types without an exact Avro counterpart are kept as strings.
+     */
+    private static Schema toAvroType(ResultSetMetaData rsmd, int column) throws SQLException {
+        switch (rsmd.getColumnType(column)) {
+            case Types.BOOLEAN:
+            case Types.BIT:
+                return Schema.create(Schema.Type.BOOLEAN);
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return Schema.create(Schema.Type.INT);
+            case Types.BIGINT:
+                return Schema.create(Schema.Type.LONG);
+            case Types.REAL:
+                return Schema.create(Schema.Type.FLOAT);
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return Schema.create(Schema.Type.DOUBLE);
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                int precision = rsmd.getPrecision(column);
+                int scale = rsmd.getScale(column);
+                if (precision > 0 && scale >= 0 && scale <= precision) {
+                    return LogicalTypes.decimal(precision, scale).addToSchema(Schema.create(Schema.Type.BYTES));
+                }
+                return Schema.create(Schema.Type.STRING);
+            case Types.DATE:
+                return LogicalTypes.date().addToSchema(Schema.create(Schema.Type.INT));
+            case Types.TIME:
+                return LogicalTypes.timeMicros().addToSchema(Schema.create(Schema.Type.LONG));
+            case Types.TIMESTAMP:
+                // Vertica TIMESTAMPTZ and Snowflake TIMESTAMP_LTZ/TZ report a plain TIMESTAMP and only tell them apart
+                // by name; Snowflake TIMESTAMP_NTZ is a wall-clock time and stays local
+                if (!TimestampTypes.isZoned(rsmd.getColumnTypeName(column))) {
+                    return LogicalTypes.localTimestampMicros().addToSchema(Schema.create(Schema.Type.LONG));
+                }
+                return LogicalTypes.timestampMicros().addToSchema(Schema.create(Schema.Type.LONG));
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+            case ORACLE_TIMESTAMPTZ:
+            case ORACLE_TIMESTAMPLTZ:
+                return LogicalTypes.timestampMicros().addToSchema(Schema.create(Schema.Type.LONG));
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+                return Schema.create(Schema.Type.BYTES);
+            default:
+                return Schema.create(Schema.Type.STRING);
+        }
+    }
+
+    /**
+     * Picks the reader of a field once per export, so no type dispatch happens per row.
+     */
+    private static ColumnReader readerFor(Schema type) {
+        LogicalType logicalType = type.getLogicalType();
+        if (logicalType instanceof LogicalTypes.Decimal) {
+            int precision = ((LogicalTypes.Decimal) logicalType).getPrecision();
+            int scale = ((LogicalTypes.Decimal) logicalType).getScale();
+            return (rs, column) -> {
+                BigDecimal value = rs.getBigDecimal(column);
+                if (value == null) {
+                    return null;
+                }
+                // a value with more digits than the driver reported is kept exactly as the string branch
+                if (value.scale() > scale && value.stripTrailingZeros().scale() > scale) {
+                    return value.toPlainString();
+                }
+                BigDecimal scaled = value.setScale(scale, RoundingMode.UNNECESSARY);
+                return scaled.precision() > precision ? value.toPlainString() : DECIMAL_CONVERSION.toBytes(scaled, type, logicalType);
+            };
+        }
+        if (logicalType instanceof LogicalTypes.Date) {
+            return (rs, column) -> {
+                Date value = rs.getDate(column);
+                return value == null ? null : (int) value.toLocalDate().toEpochDay();
+            };
+        }
+        if (logicalType instanceof LogicalTypes.TimeMicros) {
+            return (rs, column) -> {
+                Time value = rs.getTime(column);
+                return value == null ? null : value.toLocalTime().toNanoOfDay() / 1000;
+            };
+        }
+        if (logicalType instanceof LogicalTypes.LocalTimestampMicros) {
+            return (rs, column) -> {
+                Timestamp value = rs.getTimestamp(column);
+                return value == null ? null : toMicros(value.toLocalDateTime());
+            };
+        }
+        if (logicalType instanceof LogicalTypes.TimestampMicros) {
+            return (rs, column) -> {
+                Timestamp value = rs.getTimestamp(column);
+                return value == null ? null : Math.floorDiv(value.getTime(), 1000) * 1_000_000 + value.getNanos() / 1000;
+            };
+        }
+
+        switch (type.getType()) {
+            case BOOLEAN:
+                return (rs, column) -> {
+                    boolean value = rs.getBoolean(column);
+                    return rs.wasNull() ? null : value;
+                };
+            case INT:
+                return (rs, column) -> {
+                    int value = rs.getInt(column);
+                    return rs.wasNull() ? null : value;
+                };
+            case LONG:
+                return (rs, column) -> {
+                    long value = rs.getLong(column);
+                    return rs.wasNull() ? null : value;
+                };
+            case FLOAT:
+                return (rs, column) -> {
+                    float value = rs.getFloat(column);
+                    return rs.wasNull() ? null : value;
+                };
+            case DOUBLE:
+                return (rs, column) -> {
+                    double value = rs.getDouble(column);
+                    return rs.wasNull() ? null : value;
+                };
+            case BYTES:
+                return (rs, column) -> {
+                    byte[] value = rs.getBytes(column);
+                    return value == null ? null : ByteBuffer.wrap(value);
+                };
+            default:
+                return ResultSet::getString;
+        }
+    }
+
+    private static long toMicros(LocalDateTime value) {
+        return value.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + value.getNano() / 1000;
+    }
+
+    /**
+     * Turns a column label into a valid Avro name: letters, digits and underscores, not starting with a digit.
+     */
+    private static String toAvroName(String label, String fallback) {
+        if (label == null || label.isEmpty()) {
+            return fallback;
+        }
+        StringBuilder name = new StringBuilder(label.length() + 1);
+        char first = label.charAt(0);
+        if (!((first < 128 && Character.isLetter(first)) || first == '_')) {
+            name.append('_');
+        }
+        for (char c : label.toCharArray()) {
+            name.append((c < 128 && Character.isLetterOrDigit(c)) || c == '_' ? c : '_');
+        }
+        return name.toString();
+    }
+}
@@ -0,0 +1,124 @@
+package org.oracle.com.ods.services.collectData.codec;
+
+import org.oracle.com.ods.db.TimestampTypes;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+
+/**
+ * Renders the rows of a result set as text for the evidence sinks. The column names and one formatter per column
+ * are resolved from the {@link ResultSetMetaData} once, when the codec is compiled, so reading a cell neither looks
+ * up metadata nor dispatches on the column type. Dates and timestamps are written as {@code yyyy-MM-dd HH:mm:ss}
+ * followed by their fractional seconds, if any, to full precision, so a TIMESTAMP(6) difference stays visible.
+ * Timestamps with a time zone, other values and SQL NULL ({@value #NULL_TEXT}) are written as the driver renders
+ * them, which keeps the offset. A codec is immutable and can be shared between threads, but belongs to the
+ * result set it was compiled for.
+ */
+public final class RowCodec {
+
+    public static final String NULL_TEXT = "null";
+
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = new DateTimeFormatterBuilder()
+            .appendPattern("yyyy-MM-dd HH:mm:ss")
+            .appendFraction(ChronoField.NANO_OF_SECOND, 0, 9, true)
+            .toFormatter();
+
+    private final String[] columnNames;
+    private final ColumnFormatter[] formatters;
+
+    /**
+     * Reads one column of the current row as text.
+     */
+    @FunctionalInterface
+    private interface ColumnFormatter {
+        String format(ResultSet rs, int column) throws SQLException;
+    }
+
+    private RowCodec(String[] columnNames, ColumnFormatter[] formatters) {
+        this.columnNames = columnNames;
+        this.formatters = formatters;
+    }
+
+    /**
+     * Compiles the codec of a result set.
+     *
+     * @param rsmd The metadata of the result set the rows are read from
+     * @return The codec
+     */
+    public static RowCodec compile(ResultSetMetaData rsmd) throws SQLException {
+        int columnCount = rsmd.getColumnCount();
+        String[] columnNames = new String[columnCount];
+        ColumnFormatter[] formatters = new ColumnFormatter[columnCount];
+        for (int i = 1; i <= columnCount; i++) {
+            columnNames[i - 1] = rsmd.getColumnName(i);
+            formatters[i - 1] = formatterFor(rsmd.getColumnType(i), rsmd.getColumnTypeName(i));
+        }
+        return new RowCodec(columnNames, formatters);
+    }
+
+    private static ColumnFormatter formatterFor(int columnType, String typeName) {
+        switch (columnType) {
+            case Types.DATE:
+            case Types.TIMESTAMP:
+                // Vertica and Snowflake report some zoned timestamps as plain TIMESTAMP and only tell them apart by name
+                if (TimestampTypes.isZoned(typeName)) {
+                    return RowCodec::readString;
+                }
+                return (rs, column) -> {
+                    Timestamp value = rs.getTimestamp(column);
+                    return value == null ? NULL_TEXT : TIMESTAMP_FORMATTER.format(value.toLocalDateTime());
+                };
+            default:
+                return RowCodec::readString;
+        }
+    }
+
+    private static String readString(ResultSet rs, int column) throws SQLException {
+        String value = rs.getString(column);
+        return value == null ? NULL_TEXT : value;
+    }
+
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    /**
+     * @param index The 0-based column index
+     */
+    public String getColumnName(int index) {
+        return columnNames[index];
+    }
+
+    /**
+     * @return A copy of the column names, in column order
+     */
+    public String[] getColumnNames() {
+        return columnNames.clone();
+    }
+
+    /**
+     * Reads one cell of the current row.
+     *
+     * @param index The 0-based column index
+     */
+    public String format(ResultSet rs, int index) throws SQLException {
+        return formatters[index].format(rs, index + 1);
+    }
+
+    /**
+     * Reads the current row into a new array, for sinks that keep the row after the cursor moves.
+     */
+    public String[] read(ResultSet rs) throws SQLException {
+        String[] row = new String[formatters.length];
+        for (int i = 0; i < formatters.length; i++) {
+            row[i] = formatters[i].format(rs, i + 1);
+        }
+        return row;
+    }
+}
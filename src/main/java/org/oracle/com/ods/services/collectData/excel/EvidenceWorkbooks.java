@@ -0,0 +1,55 @@
+package org.oracle.com.ods.services.collectData.excel;
+
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.oracle.com.ods.config.Config;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Creates and writes the Excel workbooks of the evidence exporters. With {@code excel.streaming.enabled} the
+ * workbook is an {@link SXSSFWorkbook}: only the last {@code excel.streaming.row.window} rows are kept in memory,
+ * older rows are flushed to a gzip-compressed temp file, so memory stays flat however large the result set is.
+ * Rows must then be written top to bottom, which all exporters do, and column widths are set with a
+ * {@link ColumnWidthTracker} since flushed rows can no longer be measured.
+ */
+public class EvidenceWorkbooks {
+
+    private static final Logger LOGGER = Logger.getLogger(EvidenceWorkbooks.class.getName());
+
+    private EvidenceWorkbooks() {
+    }
+
+    public static Workbook newWorkbook() {
+        if (!Config.isExcelStreamingEnabled()) {
+            return new XSSFWorkbook();
+        }
+        SXSSFWorkbook workbook = new SXSSFWorkbook(Config.getExcelStreamingRowWindow());
+        workbook.setCompressTempFiles(true);
+        return workbook;
+    }
+
+    public static void write(Workbook workbook, String outputFileName) throws IOException {
+        try (FileOutputStream fileOut = new FileOutputStream(outputFileName)) {
+            workbook.write(fileOut);
+        }
+    }
+
+    /**
+     * Closes the workbook and removes any temp files it streamed to. Call this whether or not it was written.
+     */
+    public static void close(Workbook workbook) {
+        try {
+            if (workbook instanceof SXSSFWorkbook) {
+                ((SXSSFWorkbook) workbook).dispose();
+            }
+            workbook.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Error closing workbook", e);
+        }
+    }
+}
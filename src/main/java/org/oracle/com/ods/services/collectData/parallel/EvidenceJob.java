@@ -0,0 +1,76 @@
+package org.oracle.com.ods.services.collectData.parallel;
+
+/**
+ * One unit of evidence collection: a data query against one schema and table, an optional count query or
+ * count known beforehand, and the workbook the result is written to.
+ */
+public class EvidenceJob {
+
+    private final String schemaName;
+    private final String tableName;
+    private final String dataQuery;
+    private final String countQuery;
+    private final String outputFileName;
+    private final String totalRowCount;
+
+    /**
+     * @param schemaName     The schema the table belongs to
+     * @param tableName      The table the evidence is collected for
+     * @param dataQuery      The query whose rows are written to the workbook
+     * @param countQuery     The query returning the total row count, or null to skip it
+     * @param outputFileName The workbook to write
+     */
+    public EvidenceJob(String schemaName, String tableName, String dataQuery, String countQuery, String outputFileName) {
+        this(schemaName, tableName, dataQuery, countQuery, outputFileName, null);
+    }
+
+    private EvidenceJob(String schemaName, String tableName, String dataQuery, String countQuery, String outputFileName,
+                        String totalRowCount) {
+        this.schemaName = schemaName;
+        this.tableName = tableName;
+        this.dataQuery = dataQuery;
+        this.countQuery = countQuery;
+        this.outputFileName = outputFileName;
+        this.totalRowCount = totalRowCount;
+    }
+
+    /**
+     * @param totalRowCount The row count of the table, already read for the whole schema
+     * @return The same job without a count query, reporting the given count
+     */
+    public EvidenceJob withTotalRowCount(String totalRowCount) {
+        return new EvidenceJob(schemaName, tableName, dataQuery, null, outputFileName, totalRowCount);
+    }
+
+    public String getSchemaName() {
+        return schemaName;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public String getDataQuery() {
+        return dataQuery;
+    }
+
+    public String getCountQuery() {
+        return countQuery;
+    }
+
+    public String getOutputFileName() {
+        return outputFileName;
+    }
+
+    /**
+     * @return The row count given with {@link #withTotalRowCount(String)}, or null
+     */
+    public String getTotalRowCount() {
+        return totalRowCount;
+    }
+
+    @Override
+    public String toString() {
+        return schemaName + "." + tableName;
+    }
+}
@@ -0,0 +1,125 @@
+package org.oracle.com.ods.services.collectData.parallel;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands the rows of one job from the query thread to the writer thread in result set order. The queue is
+ * bounded, so a slow writer slows down the query instead of buffering the whole result in memory.
+ * If the writer gives up, {@link #cancel()} releases the query thread and its connection.
+ */
+public class EvidenceRows {
+
+    private static final String[] END = new String[0];
+
+    private final BlockingQueue<String[]> rows;
+    private final CountDownLatch opened = new CountDownLatch(1);
+    private volatile String[] columnNames;
+    private volatile String totalRowCount;
+    private volatile Exception error;
+    private volatile boolean cancelled;
+    private long rowCount;
+
+    EvidenceRows(int capacity) {
+        this.rows = new ArrayBlockingQueue<>(capacity);
+    }
+
+    void open(String[] columnNames) {
+        this.columnNames = columnNames;
+        opened.countDown();
+    }
+
+    void add(String[] row) throws InterruptedException, IOException {
+        offer(row);
+    }
+
+    void finish(String totalRowCount) throws InterruptedException, IOException {
+        this.totalRowCount = totalRowCount;
+        opened.countDown();
+        offer(END);
+    }
+
+    void fail(Exception error) throws InterruptedException {
+        this.error = error;
+        opened.countDown();
+        try {
+            offer(END);
+        } catch (IOException e) {
+            // the writer is gone, nobody waits for the end marker
+        }
+    }
+
+    private void offer(String[] row) throws InterruptedException, IOException {
+        while (!rows.offer(row, 100, TimeUnit.MILLISECONDS)) {
+            if (cancelled) {
+                throw new IOException("Writer abandoned the job");
+            }
+        }
+    }
+
+    /**
+     * Stops the query thread from producing more rows. Called by the writer when it fails.
+     */
+    public void cancel() {
+        cancelled = true;
+        rows.clear();
+    }
+
+    /**
+     * Waits until the data query has returned its metadata.
+     *
+     * @return The column labels of the data query
+     * @throws IOException If the query failed
+     */
+    public String[] getColumnNames() throws IOException {
+        try {
+            opened.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the query");
+        }
+        if (columnNames == null) {
+            throw new IOException("Query failed: " + error.getMessage(), error);
+        }
+        return columnNames;
+    }
+
+    /**
+     * Waits for the next row.
+     *
+     * @return The next row as displayed text, or null once all rows have been read
+     * @throws IOException If the query failed while rows were read
+     */
+    public String[] next() throws IOException {
+        String[] row;
+        try {
+            row = rows.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for rows");
+        }
+        if (row == END) {
+            if (error != null) {
+                throw new IOException("Query failed: " + error.getMessage(), error);
+            }
+            return null;
+        }
+        rowCount++;
+        return row;
+    }
+
+    /**
+     * @return The result of the count query, or null if the job has none. Valid once {@link #next()} returned null.
+     */
+    public String getTotalRowCount() {
+        return totalRowCount;
+    }
+
+    long getRowCount() {
+        return rowCount;
+    }
+}
@@ -0,0 +1,348 @@
+package org.oracle.com.ods.services.collectData.parallel;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.oracle.com.ods.db.RowCounter;
+import org.oracle.com.ods.services.collectData.codec.RowCodec;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs evidence jobs concurrently. Queries run on {@code queryThreads} threads, each holding one pooled
+ * connection only while its query is read; workbooks are written on a separate pool of {@code writerThreads}.
+ * The rows of a job reach its writer through an {@link EvidenceRows} queue, so every workbook keeps the row
+ * order of its result set and a connection is free again as soon as the last row is read.
+ * Jobs are started, and timings reported, in the order they were given.
+ */
+public class ParallelEvidenceCollector {
+
+    private static final Logger LOGGER = Logger.getLogger(ParallelEvidenceCollector.class.getName());
+
+    private ParallelEvidenceCollector() {
+    }
+
+    /**
+     * Writes the rows of one job to its workbook.
+     */
+    @FunctionalInterface
+    public interface EvidenceWriter {
+        void write(EvidenceJob job, EvidenceRows rows) throws IOException;
+    }
+
+    /**
+     * Writes a job's result set directly on the query thread, for formats that encode rows as fast as they are read.
+     */
+    @FunctionalInterface
+    public interface ResultSetExporter {
+        /**
+         * @param totalRowCount The job's total row count, or null if it has none
+         * @return The number of rows written
+         */
+        long export(EvidenceJob job, ResultSet rs, String totalRowCount) throws SQLException, IOException;
+    }
+
+    /**
+     * How long one job spent querying and writing.
+     */
+    public static class JobTiming {
+        private final EvidenceJob job;
+        private volatile long queryMillis;
+        private volatile long writeMillis;
+        private volatile long rowCount;
+        private volatile Exception error;
+
+        private JobTiming(EvidenceJob job) {
+            this.job = job;
+        }
+
+        public EvidenceJob getJob() {
+            return job;
+        }
+
+        public long getQueryMillis() {
+            return queryMillis;
+        }
+
+        public long getWriteMillis() {
+            return writeMillis;
+        }
+
+        public long getRowCount() {
+            return rowCount;
+        }
+
+        public Exception getError() {
+            return error;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    /**
+     * Creates the connection pool the queries run on.
+     *
+     * @param poolName   The name shown in the pool's log lines
+     * @param jdbcUrl    The JDBC url of the warehouse
+     * @param properties The driver properties, including user and password
+     * @param size       The maximum number of connections
+     * @return The pool; close it when the collection is done
+     */
+    public static HikariDataSource newConnectionPool(String poolName, String jdbcUrl, Properties properties, int size) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(poolName);
+        config.setJdbcUrl(jdbcUrl);
+        config.setDataSourceProperties(properties);
+        config.setMaximumPoolSize(size);
+        config.setMinimumIdle(0);
+        return new HikariDataSource(config);
+    }
+
+    /**
+     * Reads the row counts of all jobs with one query per schema, replacing their count queries.
+     * If a schema cannot be counted its jobs keep their own count queries.
+     *
+     * @param dataSource The pool the counts are read on
+     * @param jobs       The jobs; jobs without a count query are returned unchanged
+     * @param dialect    The warehouse the pool connects to
+     * @param strategy   Whether to count exactly or from the catalog statistics
+     * @return The jobs, in the same order
+     */
+    public static List<EvidenceJob> countRows(DataSource dataSource, List<EvidenceJob> jobs, RowCounter.Dialect dialect,
+                                              RowCounter.Strategy strategy) {
+        Map<String, Set<String>> tablesBySchema = new LinkedHashMap<>();
+        for (EvidenceJob job : jobs) {
+            if (job.getCountQuery() != null) {
+                tablesBySchema.computeIfAbsent(job.getSchemaName(), schema -> new LinkedHashSet<>()).add(job.getTableName());
+            }
+        }
+
+        Map<String, RowCounter.Counts> countsBySchema = new HashMap<>();
+        try (Connection connection = dataSource.getConnection()) {
+            for (Map.Entry<String, Set<String>> schema : tablesBySchema.entrySet()) {
+                try {
+                    countsBySchema.put(schema.getKey(), RowCounter.count(connection, dialect, schema.getKey(), schema.getValue(), strategy));
+                } catch (SQLException e) {
+                    LOGGER.log(Level.WARNING, "Error counting the rows of " + schema.getKey() + ", counting each table separately", e);
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Error counting rows, counting each table separately", e);
+        }
+
+        List<EvidenceJob> counted = new ArrayList<>();
+        for (EvidenceJob job : jobs) {
+            RowCounter.Counts counts = job.getCountQuery() == null ? null : countsBySchema.get(job.getSchemaName());
+            if (counts == null) {
+                counted.add(job);
+            } else {
+                Long rowCount = counts.get(job.getTableName());
+                counted.add(job.withTotalRowCount(rowCount == null ? null : rowCount.toString()));
+            }
+        }
+        return counted;
+    }
+
+    /**
+     * Runs all jobs and waits for every workbook to be written. A failing job does not stop the others.
+     *
+     * @param dataSource     The pool the queries run on
+     * @param jobs           The jobs, in the order they should be started
+     * @param queryThreads   The number of queries running at once, at most the size of the pool
+     * @param writerThreads  The number of workbooks written at once
+     * @param rowBufferSize  The number of rows queued between the query and the writer of one job
+     * @param writer         Writes one job's workbook
+     * @return The timing of every job, in the order of the jobs
+     */
+    public static List<JobTiming> run(DataSource dataSource, List<EvidenceJob> jobs, int queryThreads, int writerThreads,
+                                      int rowBufferSize, EvidenceWriter writer) {
+        List<JobTiming> timings = new ArrayList<>();
+        if (jobs.isEmpty()) {
+            return timings;
+        }
+
+        ExecutorService queryExecutor = Executors.newFixedThreadPool(Math.min(queryThreads, jobs.size()), daemonThreads("evidence-query"));
+        ExecutorService writerExecutor = Executors.newFixedThreadPool(Math.min(writerThreads, jobs.size()), daemonThreads("evidence-writer"));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (EvidenceJob job : jobs) {
+                JobTiming timing = new JobTiming(job);
+                EvidenceRows rows = new EvidenceRows(rowBufferSize);
+                timings.add(timing);
+                // both executors take jobs in submission order, so a writer only ever waits for a query
+                // that is already running or next in line
+                futures.add(queryExecutor.submit(() -> query(dataSource, job, rows, timing)));
+                futures.add(writerExecutor.submit(() -> write(writer, job, rows, timing)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.log(Level.SEVERE, "Evidence task failed", e.getCause());
+        } finally {
+            queryExecutor.shutdownNow();
+            writerExecutor.shutdownNow();
+        }
+        return timings;
+    }
+
+    /**
+     * Runs all jobs with the result sets exported straight from the query threads, without a writer pool.
+     * The count query of a job runs before its data query, so the exporter can store the count in its output.
+     * The query time of a job is the time until its result set was returned, the write time that of the export.
+     *
+     * @param dataSource   The pool the queries run on
+     * @param jobs         The jobs, in the order they should be started
+     * @param queryThreads The number of jobs running at once, at most the size of the pool
+     * @param exporter     Writes one job's result set
+     * @return The timing of every job, in the order of the jobs
+     */
+    public static List<JobTiming> run(DataSource dataSource, List<EvidenceJob> jobs, int queryThreads, ResultSetExporter exporter) {
+        List<JobTiming> timings = new ArrayList<>();
+        if (jobs.isEmpty()) {
+            return timings;
+        }
+
+        ExecutorService queryExecutor = Executors.newFixedThreadPool(Math.min(queryThreads, jobs.size()), daemonThreads("evidence-query"));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (EvidenceJob job : jobs) {
+                JobTiming timing = new JobTiming(job);
+                timings.add(timing);
+                futures.add(queryExecutor.submit(() -> export(dataSource, job, exporter, timing)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.log(Level.SEVERE, "Evidence task failed", e.getCause());
+        } finally {
+            queryExecutor.shutdownNow();
+        }
+        return timings;
+    }
+
+    private static void export(DataSource dataSource, EvidenceJob job, ResultSetExporter exporter, JobTiming timing) {
+        long start = System.currentTimeMillis();
+        long exportStart = start;
+        try (Connection connection = dataSource.getConnection();
+             Statement stmt = connection.createStatement()) {
+
+            String totalRowCount = totalRowCount(stmt, job);
+
+            try (ResultSet rs = stmt.executeQuery(job.getDataQuery())) {
+                exportStart = System.currentTimeMillis();
+                timing.queryMillis = exportStart - start;
+                timing.rowCount = exporter.export(job, rs, totalRowCount);
+            }
+            LOGGER.info("Evidence for " + job + " written to " + job.getOutputFileName());
+        } catch (SQLException | IOException | RuntimeException e) {
+            timing.error = e;
+            LOGGER.log(Level.SEVERE, "Error collecting evidence for " + job, e);
+        } finally {
+            if (timing.queryMillis == 0) {
+                timing.queryMillis = System.currentTimeMillis() - start;
+            }
+            timing.writeMillis = System.currentTimeMillis() - exportStart;
+        }
+    }
+
+    private static void query(DataSource dataSource, EvidenceJob job, EvidenceRows rows, JobTiming timing) {
+        long start = System.currentTimeMillis();
+        try (Connection connection = dataSource.getConnection();
+             Statement stmt = connection.createStatement()) {
+
+            try (ResultSet rs = stmt.executeQuery(job.getDataQuery())) {
+                RowCodec codec = RowCodec.compile(rs.getMetaData());
+                rows.open(codec.getColumnNames());
+
+                while (rs.next()) {
+                    rows.add(codec.read(rs));
+                }
+            }
+
+            rows.finish(totalRowCount(stmt, job));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failQuietly(rows, e);
+        } catch (SQLException | IOException | RuntimeException e) {
+            failQuietly(rows, e);
+        } finally {
+            timing.queryMillis = System.currentTimeMillis() - start;
+        }
+    }
+
+    private static String totalRowCount(Statement stmt, EvidenceJob job) throws SQLException {
+        if (job.getCountQuery() == null) {
+            return job.getTotalRowCount();
+        }
+        try (ResultSet countRs = stmt.executeQuery(job.getCountQuery())) {
+            return countRs.next() ? countRs.getString(1) : null;
+        }
+    }
+
+    private static void write(EvidenceWriter writer, EvidenceJob job, EvidenceRows rows, JobTiming timing) {
+        long start = System.currentTimeMillis();
+        try {
+            writer.write(job, rows);
+            LOGGER.info("Evidence for " + job + " written to " + job.getOutputFileName());
+        } catch (IOException | RuntimeException e) {
+            rows.cancel();
+            timing.error = e;
+            LOGGER.log(Level.SEVERE, "Error collecting evidence for " + job, e);
+        } finally {
+            timing.writeMillis = System.currentTimeMillis() - start;
+            timing.rowCount = rows.getRowCount();
+        }
+    }
+
+    private static void failQuietly(EvidenceRows rows, Exception error) {
+        try {
+            rows.fail(error);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Logs one line per job with its row count and timings, in job order, followed by the totals.
+     *
+     * @param timings        The timings returned by {@link #run}
+     * @param elapsedMillis  The wall-clock time of the whole run
+     */
+    public static void log(List<JobTiming> timings, long elapsedMillis) {
+        int failed = 0;
+        long queryMillis = 0;
+        for (JobTiming timing : timings) {
+            queryMillis += timing.getQueryMillis();
+            if (timing.isSuccess()) {
+                LOGGER.info(String.format("%-60s %8d rows  query %6d ms  write %6d ms",
+                        timing.getJob(), timing.getRowCount(), timing.getQueryMillis(), timing.getWriteMillis()));
+            } else {
+                failed++;
+                LOGGER.warning(String.format("%-60s FAILED after %d ms: %s",
+                        timing.getJob(), timing.getWriteMillis(), timing.getError().getMessage()));
+            }
+        }
+        LOGGER.info(String.format("%d jobs, %d failed, %d ms of queries in %d ms", timings.size(), failed, queryMillis, elapsedMillis));
+    }
+}
@@ -3,7 +3,13 @@ package org.oracle.com.ods.services.collectData.rawOds;
 import java.io.*;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import com.fasterxml.jackson.databind.ObjectMapper; // For JSON parsing
+import org.oracle.com.ods.db.RowCounter;
+import org.oracle.com.ods.services.collectData.codec.RowCodec;
 import org.oracle.com.ods.services.collectData.snowflake.SnowflakeQueryExecutor;
 import org.oracle.com.ods.services.collectData.vertica.VerticaQueryExecutor;
 
@@ -31,30 +37,119 @@ public class RawOdsDatabaseEvidence {
                      (String) verticaConfig.get("user"),
                      (String) verticaConfig.get("password"))) {
 
-            for (Map<String, Object> table : tables) {
-                String tableName = (String) table.get("name");
-                String primaryKey = (String) table.get("primaryKey");
-                String snowflakeSchema = (String) table.get("snowflakeSchema");
-                String verticaSchema = (String) table.get("verticaSchema");
-
-                // Create individual folders for each table
-                String snowflakeTableOutputDir = outputDir + "/snowflake/" + tableName;
-                String verticaTableOutputDir = outputDir + "/vertica/" + tableName;
+            // Snowflake only runs a multi-statement string when the session allows it; 0 accepts any count
+            try (Statement stmt = snowflakeConnection.createStatement()) {
+                stmt.execute("ALTER SESSION SET MULTI_STATEMENT_COUNT = 0");
+            }
 
-                new File(snowflakeTableOutputDir).mkdirs(); // Ensure Snowflake table folder exists
-                new File(verticaTableOutputDir).mkdirs(); // Ensure Vertica table folder exists
+            // Both warehouses are processed at the same time, each on its own connection
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+            try {
+                // Row counts are read for a whole schema at once, then compared between the warehouses
+                RowCounter.Strategy strategy = RowCounter.getConfiguredStrategy();
+                Future<Map<String, RowCounter.Counts>> snowflakeCountsFuture = executor.submit(() ->
+                        countRows(snowflakeConnection, RowCounter.Dialect.SNOWFLAKE, tables, "snowflakeSchema", strategy));
+                Future<Map<String, RowCounter.Counts>> verticaCountsFuture = executor.submit(() ->
+                        countRows(verticaConnection, RowCounter.Dialect.VERTICA, tables, "verticaSchema", strategy));
+                Map<String, RowCounter.Counts> snowflakeCounts = getCounts(snowflakeCountsFuture);
+                Map<String, RowCounter.Counts> verticaCounts = getCounts(verticaCountsFuture);
+                Map<List<String>, List<String>> tablesBySchemas = new LinkedHashMap<>();
+                for (Map<String, Object> table : tables) {
+                    List<String> schemas = Arrays.asList((String) table.get("snowflakeSchema"), (String) table.get("verticaSchema"));
+                    tablesBySchemas.computeIfAbsent(schemas, key -> new ArrayList<>()).add((String) table.get("name"));
+                }
+                for (Map.Entry<List<String>, List<String>> schemas : tablesBySchemas.entrySet()) {
+                    RowCounter.recountMismatches(snowflakeConnection, snowflakeCounts.get(schemas.getKey().get(0)),
+                            verticaConnection, verticaCounts.get(schemas.getKey().get(1)), schemas.getValue(), strategy);
+                }
 
-                // Process for Snowflake
-                System.out.println("Processing table in Snowflake: " + tableName);
-                processTable(snowflakeConnection, snowflakeTableOutputDir, tableName, primaryKey, snowflakeSchema);
+                Map<String, Future<Void>> warehouses = new LinkedHashMap<>();
+                warehouses.put("Snowflake", executor.submit(() -> {
+                    processTables(snowflakeConnection, "Snowflake", outputDir + "/snowflake/", tables, "snowflakeSchema", snowflakeCounts);
+                    return null;
+                }));
+                warehouses.put("Vertica", executor.submit(() -> {
+                    processTables(verticaConnection, "Vertica", outputDir + "/vertica/", tables, "verticaSchema", verticaCounts);
+                    return null;
+                }));
+
+                Exception failure = null;
+                for (Map.Entry<String, Future<Void>> warehouse : warehouses.entrySet()) {
+                    try {
+                        warehouse.getValue().get();
+                    } catch (ExecutionException e) {
+                        System.err.println("Processing tables in " + warehouse.getKey() + " failed: " + e.getCause().getMessage());
+                        failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : new Exception(e.getCause());
+                    }
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
 
-                // Process for Vertica
-                System.out.println("Processing table in Vertica: " + tableName);
-                processTable(verticaConnection, verticaTableOutputDir, tableName, primaryKey, verticaSchema);
+    /**
+     * Reads the row counts of the tables of every schema of a warehouse, one query per schema. Tables that cannot
+     * be counted are left without a count; if the catalog statistics of a schema cannot be read, its tables are
+     * counted exactly instead.
+     *
+     * @return The counts, by schema
+     */
+    private static Map<String, RowCounter.Counts> countRows(Connection connection, RowCounter.Dialect dialect, List<Map<String, Object>> tables,
+                                                            String schemaKey, RowCounter.Strategy strategy) throws SQLException {
+        Map<String, List<String>> tablesBySchema = new LinkedHashMap<>();
+        for (Map<String, Object> table : tables) {
+            tablesBySchema.computeIfAbsent((String) table.get(schemaKey), schema -> new ArrayList<>()).add((String) table.get("name"));
+        }
+        Map<String, RowCounter.Counts> counts = new HashMap<>();
+        for (Map.Entry<String, List<String>> schema : tablesBySchema.entrySet()) {
+            try {
+                counts.put(schema.getKey(), RowCounter.count(connection, dialect, schema.getKey(), schema.getValue(), strategy));
+            } catch (SQLException e) {
+                System.err.println("Reading the catalog row counts of " + schema.getKey() + " failed, counting each table: " + e.getMessage());
+                counts.put(schema.getKey(), RowCounter.count(connection, dialect, schema.getKey(), schema.getValue(), RowCounter.Strategy.EXACT));
             }
         }
+        return counts;
+    }
+
+    private static Map<String, RowCounter.Counts> getCounts(Future<Map<String, RowCounter.Counts>> counts) throws Exception {
+        try {
+            return counts.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : new Exception(e.getCause());
+        }
     }
 
+    private static void processTables(Connection connection, String warehouse, String outputDir, List<Map<String, Object>> tables,
+                                      String schemaKey, Map<String, RowCounter.Counts> counts) throws SQLException, IOException {
+        for (Map<String, Object> table : tables) {
+            String tableName = (String) table.get("name");
+            String primaryKey = (String) table.get("primaryKey");
+            String schema = (String) table.get(schemaKey);
+
+            // Create individual folders for each table
+            String tableOutputDir = outputDir + tableName;
+            new File(tableOutputDir).mkdirs();
+
+            System.out.println("Processing table in " + warehouse + ": " + tableName);
+            processTable(connection, tableOutputDir, tableName, primaryKey, schema, counts.get(schema));
+        }
+    }
+
+    /**
+     * @return The row count of the table, or why it is unknown
+     */
+    private static String countText(RowCounter.Counts counts, String tableName) {
+        Long rowCount = counts.get(tableName);
+        if (rowCount != null) {
+            return rowCount.toString();
+        }
+        return counts.isExact(tableName) ? "unknown (count failed)" : "unknown (no catalog statistics)";
+    }
 
     private static List<Map<String, Object>> loadTables() throws IOException {
         ObjectMapper mapper = new ObjectMapper();
@@ -64,36 +159,56 @@ public class RawOdsDatabaseEvidence {
         }
     }
 
-    private static void processTable(Connection connection, String outputDir, String tableName, String primaryKey, String schema) throws SQLException, IOException {
-        String sqlTableCount = "SELECT COUNT(*) AS COUNT FROM " + schema + "." + tableName;
-        writeQueryResultToFile(connection, sqlTableCount, outputDir + "/" + tableName + "_COUNT.log");
-
+    /**
+     * Writes the row count of a table, read beforehand with the rest of its schema, and runs the load error count,
+     * zero row and non-zero row probes as one multi-statement request, writing the queries and their results to
+     * {@code <table>_EVIDENCE.log}.
+     */
+    private static void processTable(Connection connection, String outputDir, String tableName, String primaryKey, String schema,
+                                     RowCounter.Counts counts) throws SQLException, IOException {
         String sqlLoadErrorTableCount = "SELECT COUNT(*) AS PH_F_Load_Error FROM " + schema + ".PH_F_Load_Error WHERE object_id ILIKE '%" + tableName + "%'";
-        writeQueryResultToFile(connection, sqlLoadErrorTableCount, outputDir + "/" + tableName + "_PH_F_Load_Error.log");
-
         String sqlZeroRow = "SELECT * FROM " + schema + "." + tableName + " WHERE " + primaryKey + " = 0";
-        writeQueryResultToFile(connection, sqlZeroRow, outputDir + "/" + tableName + "_ZERO_ROW.log");
-
         String sqlNonZeroRow = "SELECT * FROM " + schema + "." + tableName + " WHERE " + primaryKey + " != 0 AND UPDT_CNT = 150 LIMIT 1";
-        writeQueryResultToFile(connection, sqlNonZeroRow, outputDir + "/" + tableName + "_NON_ZERO_ROW.log");
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(outputDir + "/" + tableName + "_Queries.log", true))) {
-            writer.write("Query Used For Count: " + sqlTableCount + "\n");
-            writer.write("Query Used For Error Table: " + sqlLoadErrorTableCount + "\n");
-            writer.write("Query Used For Zero Row: " + sqlZeroRow + "\n");
-            writer.write("Query Used For Non Zero Row: " + sqlNonZeroRow + "\n");
+        String[] titles = {"Error Table", "Zero Row", "Non Zero Row"};
+        String[] queries = {sqlLoadErrorTableCount, sqlZeroRow, sqlNonZeroRow};
+
+        try (Statement stmt = connection.createStatement();
+             BufferedWriter writer = new BufferedWriter(new FileWriter(outputDir + "/" + tableName + "_EVIDENCE.log"))) {
+            writer.write("Query Used For Count: " + counts.getQuery(tableName) + "\n");
+            writer.write("|COUNT\t\t\t|" + countText(counts, tableName) + "\t\t\t|\n");
+            writer.write("\n");
+
+            boolean hasResultSet = stmt.execute(String.join(";\n", queries));
+            for (int i = 0; i < queries.length; i++) {
+                // skip the update counts some drivers report between the results
+                while (!hasResultSet && stmt.getUpdateCount() != -1) {
+                    hasResultSet = stmt.getMoreResults();
+                }
+                if (!hasResultSet) {
+                    throw new SQLException("No result returned for query: " + queries[i]);
+                }
+
+                writer.write("Query Used For " + titles[i] + ": " + queries[i] + "\n");
+                try (ResultSet rs = stmt.getResultSet()) {
+                    writeQueryResult(rs, writer);
+                }
+                writer.write("\n");
+                hasResultSet = stmt.getMoreResults();
+            }
         }
     }
 
-    private static void writeQueryResultToFile(Connection connection, String query, String fileName) throws SQLException, IOException {
-        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(query);
-             BufferedWriter writer = new BufferedWriter(new FileWriter(fileName, true))) {
-            ResultSetMetaData metaData = rs.getMetaData();
-            int columnCount = metaData.getColumnCount();
-            while (rs.next()) {
-                for (int i = 1; i <= columnCount; i++) {
-                    writer.write("|" + metaData.getColumnName(i) + "\t\t\t|" + rs.getString(i) + "\t\t\t|\n");
-                }
+    private static void writeQueryResult(ResultSet rs, BufferedWriter writer) throws SQLException, IOException {
+        RowCodec codec = RowCodec.compile(rs.getMetaData());
+        int columnCount = codec.getColumnCount();
+        while (rs.next()) {
+            for (int i = 0; i < columnCount; i++) {
+                writer.write('|');
+                writer.write(codec.getColumnName(i));
+                writer.write("\t\t\t|");
+                writer.write(codec.format(rs, i));
+                writer.write("\t\t\t|\n");
             }
         }
     }
@@ -2,13 +2,20 @@ package org.oracle.com.ods.services.collectData.snowflake;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
+import com.zaxxer.hikari.HikariDataSource;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.CellRangeAddress;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.oracle.com.ods.config.Config;
+import org.oracle.com.ods.db.RowCounter;
+import org.oracle.com.ods.services.collectData.avro.AvroEvidenceExporter;
+import org.oracle.com.ods.services.collectData.excel.ColumnWidthTracker;
+import org.oracle.com.ods.services.collectData.excel.EvidenceWorkbooks;
+import org.oracle.com.ods.services.collectData.parallel.EvidenceJob;
+import org.oracle.com.ods.services.collectData.parallel.EvidenceRows;
+import org.oracle.com.ods.services.collectData.parallel.ParallelEvidenceCollector;
 
 import java.io.*;
 import java.sql.*;
-import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -16,7 +23,6 @@ import java.util.logging.Logger;
 public class SnowflakeQueryExecutor {
 
     private static final Logger LOGGER = Logger.getLogger(SnowflakeQueryExecutor.class.getName());
-    private static final SimpleDateFormat DATE_FORMATTER = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
 
     public static Connection connectToSnowflake(String user, String password, String account, String warehouse, String database) throws SQLException {
         String url = "jdbc:snowflake://" + account + ".snowflakecomputing.com";
@@ -43,31 +49,43 @@ public class SnowflakeQueryExecutor {
         }
     }
 
-    private static void executeQueryAndWriteExcel(Connection connection, String dataQuery, String countQuery, String schemaName, String tableName, String outputFileName) {
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(dataQuery)) {
+    public static HikariDataSource createConnectionPool(Map<String, Object> config, int size) {
+        String url = "jdbc:snowflake://" + config.get("account") + ".snowflakecomputing.com";
+        Properties props = new Properties();
+        props.put("user", config.get("user"));
+        props.put("password", config.get("password"));
+        props.put("warehouse", config.get("warehouse"));
+        props.put("db", config.get("database"));
+        return ParallelEvidenceCollector.newConnectionPool("snowflake-evidence", url, props, size);
+    }
 
-            ResultSetMetaData rsmd = rs.getMetaData();
+    private static void writeExcel(EvidenceJob job, EvidenceRows rows) throws IOException {
+        String[] columnNames = rows.getColumnNames();
 
-            Workbook workbook = new XSSFWorkbook();
+        Workbook workbook = EvidenceWorkbooks.newWorkbook();
+        try {
             Sheet sheet = workbook.createSheet("Results");
+            ColumnWidthTracker columnWidths = new ColumnWidthTracker();
 
             int rowNum = 0;
             Row metaDataRow1 = sheet.createRow(rowNum++);
             metaDataRow1.createCell(0).setCellValue("Schema Name:");
-            metaDataRow1.createCell(1).setCellValue(schemaName);
+            metaDataRow1.createCell(1).setCellValue(job.getSchemaName());
+            columnWidths.track(1, job.getSchemaName());
 
             Row metaDataRow2 = sheet.createRow(rowNum++);
             metaDataRow2.createCell(0).setCellValue("Table Name:");
-            metaDataRow2.createCell(1).setCellValue(tableName);
+            metaDataRow2.createCell(1).setCellValue(job.getTableName());
+            columnWidths.track(1, job.getTableName());
 
             Row metaDataRow3 = sheet.createRow(rowNum++);
             metaDataRow3.createCell(0).setCellValue("Query Executed:");
             Cell queryCell = metaDataRow3.createCell(1);
-            queryCell.setCellValue(dataQuery);
+            queryCell.setCellValue(job.getDataQuery());
+            columnWidths.track(0, "Query Executed:");
 
-            if (rsmd.getColumnCount() > 1) {
-                int endColumn = rsmd.getColumnCount() - 1;
+            if (columnNames.length > 1) {
+                int endColumn = columnNames.length - 1;
                 if (endColumn > 1) {
                     sheet.addMergedRegion(new CellRangeAddress(metaDataRow3.getRowNum(), metaDataRow3.getRowNum(), 1, endColumn));
                 } else {
@@ -75,115 +93,104 @@ public class SnowflakeQueryExecutor {
                 }
             }
 
-
             rowNum += 2;
 
             Row headerRow = sheet.createRow(rowNum++);
-            int columnCount = rsmd.getColumnCount();
-            for (int i = 1; i <= columnCount; i++) {
-                headerRow.createCell(i - 1).setCellValue(rsmd.getColumnName(i));
+            for (int i = 0; i < columnNames.length; i++) {
+                headerRow.createCell(i).setCellValue(columnNames[i]);
+                columnWidths.track(i, columnNames[i]);
             }
 
-            while (rs.next()) {
+            String[] values;
+            while ((values = rows.next()) != null) {
                 Row row = sheet.createRow(rowNum++);
-                for (int i = 1; i <= columnCount; i++) {
-                    Cell cell = row.createCell(i - 1);
-                    int columnType = rsmd.getColumnType(i);
-
-                    if (columnType == Types.TIMESTAMP || columnType == Types.DATE) {
-                        Timestamp timestamp = rs.getTimestamp(i);
-                        if (timestamp != null) {
-                            cell.setCellValue(DATE_FORMATTER.format(timestamp));
-                        } else {
-                            cell.setCellValue("null");
-                        }
-                    } else {
-                        String value = rs.getString(i);
-                        if (value != null) {
-                            cell.setCellValue(value);
-                        } else {
-                            cell.setCellValue("null");
-                        }
-                    }
+                for (int i = 0; i < values.length; i++) {
+                    row.createCell(i).setCellValue(values[i]);
+                    columnWidths.track(i, values[i]);
                 }
             }
 
             rowNum += 2;
 
-            if (countQuery != null) {
-                ResultSet countRs = stmt.executeQuery(countQuery);
-                if (countRs.next()) {
-                    Row countRow = sheet.createRow(rowNum++);
-                    countRow.createCell(0).setCellValue("Total Row Count:");
-                    countRow.createCell(1).setCellValue(countRs.getString(1));
-                }
-            }
-
-            for (int i = 0; i < columnCount; i++) {
-                sheet.autoSizeColumn(i);
+            if (rows.getTotalRowCount() != null) {
+                Row countRow = sheet.createRow(rowNum++);
+                countRow.createCell(0).setCellValue("Total Row Count:");
+                countRow.createCell(1).setCellValue(rows.getTotalRowCount());
+                columnWidths.track(0, "Total Row Count:");
+                columnWidths.track(1, rows.getTotalRowCount());
             }
 
-            try (FileOutputStream fileOut = new FileOutputStream(outputFileName)) {
-                workbook.write(fileOut);
-            }
+            columnWidths.apply(sheet);
 
-            workbook.close();
-
-        } catch (SQLException | IOException e) {
-            LOGGER.log(Level.SEVERE, "Error executing query or writing Excel file", e);
+            EvidenceWorkbooks.write(workbook, job.getOutputFileName());
+        } finally {
+            EvidenceWorkbooks.close(workbook);
         }
     }
 
+    /**
+     * Collects the evidence of every (table, schema) pair in {@code tables.json}, or of one custom query,
+     * as Excel workbooks or as Avro container files written by {@link AvroEvidenceExporter}.
+     * The jobs run concurrently on {@code evidence.query.threads} pooled connections and
+     * {@code evidence.writer.threads} workbook writers; see {@link ParallelEvidenceCollector}.
+     */
     public static void main(String[] args) {
         try {
             Map<String, Object> config = loadConfig();
             List<Map<String, Object>> tables = loadTables();
 
-            try (Connection connection = connectToSnowflake(
-                    (String) config.get("user"),
-                    (String) config.get("password"),
-                    (String) config.get("account"),
-                    (String) config.get("warehouse"),
-                    (String) config.get("database"))) {
-
-                Scanner scanner = new Scanner(System.in);
-                System.out.print("Please provide the output directory path: ");
-                String outputDir = scanner.nextLine();
-                if (!outputDir.endsWith(File.separator)) {
-                    outputDir += File.separator;
-                }
-
-                System.out.print("Do you want to execute a custom query? (yes/no): ");
-                String customQueryOption = scanner.nextLine();
-
-                if (customQueryOption.equalsIgnoreCase("yes")) {
-                    System.out.print("Enter your custom query: ");
-                    String customQuery = scanner.nextLine();
-                    System.out.print("Enter the schema name for the custom query: ");
-                    String schemaName = scanner.nextLine();
-                    System.out.print("Enter the table name for the custom query: ");
-                    String tableName = scanner.nextLine();
-                    String outputFileName = outputDir + schemaName + "_" + tableName + "_custom_query_output.xlsx";
-                    executeQueryAndWriteExcel(connection, customQuery, null, schemaName, tableName, outputFileName);
-                } else {
-                    // Default Query Execution
-                    for (Map<String, Object> table : tables) {
-                        String tableName = (String) table.get("name");
-                        String columns = (String) table.get("columns");
-                        List<String> schemas = (List<String>) table.get("schemas");
-
-                        for (String schema : schemas) {
-                            String defaultQuery = "SELECT " + columns + " FROM " + schema + "." + tableName + " WHERE UPDT_CNT=150";
-
-                            String countQuery = "SELECT COUNT(*) FROM " + schema + "." + tableName;
+            Scanner scanner = new Scanner(System.in);
+            System.out.print("Please provide the output directory path: ");
+            String outputDir = scanner.nextLine();
+            if (!outputDir.endsWith(File.separator)) {
+                outputDir += File.separator;
+            }
 
-                            String outputFileName = outputDir + schema + "_" + tableName + "_output.xlsx";
-                            executeQueryAndWriteExcel(connection, defaultQuery, countQuery, schema, tableName, outputFileName);
-                        }
+            System.out.print("Output format? (excel/avro): ");
+            boolean avro = scanner.nextLine().trim().equalsIgnoreCase("avro");
+            String extension = avro ? ".avro" : ".xlsx";
+
+            System.out.print("Do you want to execute a custom query? (yes/no): ");
+            String customQueryOption = scanner.nextLine();
+
+            List<EvidenceJob> jobs = new ArrayList<>();
+            if (customQueryOption.equalsIgnoreCase("yes")) {
+                System.out.print("Enter your custom query: ");
+                String customQuery = scanner.nextLine();
+                System.out.print("Enter the schema name for the custom query: ");
+                String schemaName = scanner.nextLine();
+                System.out.print("Enter the table name for the custom query: ");
+                String tableName = scanner.nextLine();
+                String outputFileName = outputDir + schemaName + "_" + tableName + "_custom_query_output" + extension;
+                jobs.add(new EvidenceJob(schemaName, tableName, customQuery, null, outputFileName));
+            } else {
+                // Default Query Execution
+                for (Map<String, Object> table : tables) {
+                    String tableName = (String) table.get("name");
+                    String columns = (String) table.get("columns");
+                    List<String> schemas = (List<String>) table.get("schemas");
+
+                    for (String schema : schemas) {
+                        String defaultQuery = "SELECT " + columns + " FROM " + schema + "." + tableName + " WHERE UPDT_CNT=150";
+
+                        String countQuery = "SELECT COUNT(*) FROM " + schema + "." + tableName;
+
+                        String outputFileName = outputDir + schema + "_" + tableName + "_output" + extension;
+                        jobs.add(new EvidenceJob(schema, tableName, defaultQuery, countQuery, outputFileName));
                     }
                 }
+            }
 
-            } catch (SQLException e) {
+            int queryThreads = Config.getEvidenceQueryThreads();
+            long start = System.currentTimeMillis();
+            try (HikariDataSource dataSource = createConnectionPool(config, queryThreads)) {
+                jobs = ParallelEvidenceCollector.countRows(dataSource, jobs, RowCounter.Dialect.SNOWFLAKE, RowCounter.getConfiguredStrategy());
+                List<ParallelEvidenceCollector.JobTiming> timings = avro
+                        ? ParallelEvidenceCollector.run(dataSource, jobs, queryThreads, AvroEvidenceExporter::export)
+                        : ParallelEvidenceCollector.run(dataSource, jobs, queryThreads, Config.getEvidenceWriterThreads(),
+                        Config.getEvidenceRowBufferSize(), SnowflakeQueryExecutor::writeExcel);
+                ParallelEvidenceCollector.log(timings, System.currentTimeMillis() - start);
+            } catch (RuntimeException e) {
                 LOGGER.log(Level.SEVERE, "Database connection error", e);
             }
 
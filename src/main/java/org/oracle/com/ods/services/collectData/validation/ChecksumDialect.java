@@ -0,0 +1,168 @@
+package org.oracle.com.ods.services.collectData.validation;
+
+import java.util.List;
+
+/**
+ * The SQL each database needs to compute the same row hash as the others. The native hash functions
+ * ({@code ORA_HASH}, Vertica {@code HASH}, Snowflake {@code HASH_AGG}) all produce different values, so every
+ * column is rendered to the same canonical text on every side and hashed with MD5, which all three implement
+ * identically:
+ * <ul>
+ *     <li>numbers as integers of millionths, e.g. {@code 1.5} as {@code 1500000};</li>
+ *     <li>dates and timestamps as {@code YYYY-MM-DD HH24:MI:SS}, converted to UTC first when they carry a time zone;</li>
+ *     <li>strings without trailing blanks, with NULL and the empty string rendered alike, as Oracle stores them.</li>
+ * </ul>
+ * The row hash is the MD5 of the column hashes, so no intermediate string grows past Oracle's 4000 byte VARCHAR2
+ * limit however wide the table is. Two 32-bit slices of it are summed per range, which keeps the aggregate
+ * independent of row order and within a 64-bit integer for up to two billion rows per range.
+ */
+public enum ChecksumDialect {
+
+    ORACLE {
+        @Override
+        String numberText(String column) {
+            return "TO_CHAR(ROUND(" + column + " * 1000000))";
+        }
+
+        @Override
+        String utcTimestampText(String column) {
+            return timestampText("SYS_EXTRACT_UTC(" + column + ")");
+        }
+
+        @Override
+        String md5Hex(String text) {
+            return "LOWER(RAWTOHEX(STANDARD_HASH(" + text + ", 'MD5')))";
+        }
+
+        @Override
+        String hashSlice(String text, int start) {
+            return "TO_NUMBER(SUBSTR(RAWTOHEX(STANDARD_HASH(" + text + ", 'MD5')), " + start + ", 8), 'XXXXXXXX')";
+        }
+    },
+
+    VERTICA {
+        @Override
+        String numberText(String column) {
+            return "CAST(CAST(ROUND(" + column + " * 1000000) AS NUMERIC(38,0)) AS VARCHAR)";
+        }
+
+        @Override
+        String utcTimestampText(String column) {
+            return timestampText(column + " AT TIME ZONE 'UTC'");
+        }
+
+        @Override
+        String md5Hex(String text) {
+            return "MD5(" + text + ")";
+        }
+
+        @Override
+        String hashSlice(String text, int start) {
+            return "HEX_TO_INTEGER(SUBSTR(MD5(" + text + "), " + start + ", 8))";
+        }
+    },
+
+    SNOWFLAKE {
+        @Override
+        String numberText(String column) {
+            return "TO_VARCHAR(CAST(ROUND(" + column + " * 1000000) AS NUMBER(38,0)))";
+        }
+
+        @Override
+        String utcTimestampText(String column) {
+            return timestampText("CONVERT_TIMEZONE('UTC', " + column + ")");
+        }
+
+        @Override
+        String md5Hex(String text) {
+            return "MD5(" + text + ")";
+        }
+
+        @Override
+        String hashSlice(String text, int start) {
+            return "TO_NUMBER(SUBSTR(MD5(" + text + "), " + start + ", 8), 'XXXXXXXX')";
+        }
+    };
+
+    /**
+     * The number of 32 character column hashes joined before they are hashed again, keeping every
+     * intermediate string at 3200 characters.
+     */
+    private static final int HASHES_PER_CHUNK = 100;
+
+    /**
+     * The kinds of column that can be rendered the same way in every database.
+     */
+    public enum ColumnKind {
+        NUMBER,
+        TIMESTAMP,
+        TIMESTAMP_TZ,
+        STRING
+    }
+
+    abstract String numberText(String column);
+
+    /**
+     * Renders a timestamp with a time zone as its UTC wall-clock time.
+     */
+    abstract String utcTimestampText(String column);
+
+    /**
+     * @return An expression returning the MD5 of {@code text} as 32 lowercase hex digits
+     */
+    abstract String md5Hex(String text);
+
+    /**
+     * @return An expression reading 8 hex digits of the MD5 of {@code text}, starting at the 1-based {@code start}
+     */
+    abstract String hashSlice(String text, int start);
+
+    String timestampText(String column) {
+        return "TO_CHAR(" + column + ", 'YYYY-MM-DD HH24:MI:SS')";
+    }
+
+    String stringText(String column) {
+        return "RTRIM(" + column + ")";
+    }
+
+    /**
+     * Renders a row as the joined MD5s of its columns, hashing them again in chunks for wide tables.
+     * Every column is hashed with a {@code '|'} prefix, so NULL hashes the same on every side.
+     *
+     * @param columns The column names
+     * @param kinds   The kind of every column, in the same order
+     * @return The SQL expression
+     */
+    String rowText(List<String> columns, List<ColumnKind> kinds) {
+        StringBuilder text = new StringBuilder();
+        StringBuilder chunk = new StringBuilder();
+        int chunks = 0;
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0 && i % HASHES_PER_CHUNK == 0) {
+                text.append(chunks++ > 0 ? " || " : "").append(md5Hex(chunk.toString()));
+                chunk.setLength(0);
+            }
+            String column = columns.get(i);
+            String value;
+            switch (kinds.get(i)) {
+                case NUMBER:
+                    value = numberText(column);
+                    break;
+                case TIMESTAMP:
+                    value = timestampText(column);
+                    break;
+                case TIMESTAMP_TZ:
+                    value = utcTimestampText(column);
+                    break;
+                default:
+                    value = stringText(column);
+                    break;
+            }
+            chunk.append(chunk.length() > 0 ? " || " : "").append(md5Hex("'|' || COALESCE(" + value + ", '')"));
+        }
+        if (chunks == 0) {
+            return chunk.toString();
+        }
+        return text.append(" || ").append(md5Hex(chunk.toString())).toString();
+    }
+}
@@ -0,0 +1,490 @@
+package org.oracle.com.ods.services.collectData.validation;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.oracle.com.ods.db.TimestampTypes;
+import org.oracle.com.ods.services.collectData.excel.ColumnWidthTracker;
+import org.oracle.com.ods.services.collectData.excel.EvidenceWorkbooks;
+import org.oracle.com.ods.services.collectData.validation.ChecksumDialect.ColumnKind;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.Logger;
+
+/**
+ * Reconciles a table between Oracle and an ODS target without moving its rows. The numeric key space is split
+ * into {@code fanOut} ranges and each database returns, per range, the row count and the sums of two row hash
+ * slices (see {@link ChecksumDialect}). Ranges whose aggregates match are done; mismatching ranges are split
+ * again until they are at most {@code leafSize} keys wide, and those are reported. A range with rows on one side
+ * only, as in a partly loaded target, is reported straight away since splitting it cannot narrow it down.
+ * Ranges are half-open, from their low key up to but excluding their end, and a bucket is exactly the range of
+ * keys its {@code FLOOR} maps to, so fractional keys of NUMBER or FLOAT columns fall into exactly one sub-range.
+ * The ranges of one level are queried in parallel on both sides, so every round trip returns at most
+ * {@code fanOut} small rows per range.
+ */
+public class ChecksumReconciler {
+
+    private static final Logger LOGGER = Logger.getLogger(ChecksumReconciler.class.getName());
+    private static final int ORACLE_TIMESTAMPTZ = -101;
+    private static final int ORACLE_TIMESTAMPLTZ = -102;
+
+    /**
+     * One side of the reconciliation.
+     */
+    public static class Side {
+        private final String name;
+        private final DataSource dataSource;
+        private final ChecksumDialect dialect;
+        private final String schema;
+
+        public Side(String name, DataSource dataSource, ChecksumDialect dialect, String schema) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.dialect = dialect;
+            this.schema = schema;
+        }
+    }
+
+    /**
+     * A key range whose rows differ, from its low key up to but excluding its end, with the row count of each side.
+     */
+    public static class Mismatch {
+        private final BigDecimal low;
+        private final BigDecimal end;
+        private final long sourceCount;
+        private final long targetCount;
+
+        private Mismatch(BigDecimal low, BigDecimal end, long sourceCount, long targetCount) {
+            this.low = low;
+            this.end = end;
+            this.sourceCount = sourceCount;
+            this.targetCount = targetCount;
+        }
+
+        public BigDecimal getLow() {
+            return low;
+        }
+
+        /**
+         * @return The first key above the range
+         */
+        public BigDecimal getEnd() {
+            return end;
+        }
+
+        public long getSourceCount() {
+            return sourceCount;
+        }
+
+        public long getTargetCount() {
+            return targetCount;
+        }
+    }
+
+    /**
+     * The outcome of one reconciliation.
+     */
+    public static class Result {
+        private final List<Mismatch> mismatches = new ArrayList<>();
+        private final List<String> hashedColumns = new ArrayList<>();
+        private final List<String> skippedColumns = new ArrayList<>();
+        private long sourceRows;
+        private long targetRows;
+        private int rangesCompared;
+        private int queries;
+
+        public List<Mismatch> getMismatches() {
+            return mismatches;
+        }
+
+        public List<String> getHashedColumns() {
+            return hashedColumns;
+        }
+
+        public List<String> getSkippedColumns() {
+            return skippedColumns;
+        }
+
+        public long getSourceRows() {
+            return sourceRows;
+        }
+
+        public long getTargetRows() {
+            return targetRows;
+        }
+
+        public int getRangesCompared() {
+            return rangesCompared;
+        }
+
+        public int getQueries() {
+            return queries;
+        }
+
+        @Override
+        public String toString() {
+            return sourceRows + " source rows, " + targetRows + " target rows, " + mismatches.size() + " mismatching ranges after "
+                    + rangesCompared + " ranges and " + queries + " queries";
+        }
+    }
+
+    /**
+     * The keys from {@code low} up to but excluding {@code end}.
+     */
+    private static class Range {
+        private final BigDecimal low;
+        private final BigDecimal end;
+
+        private Range(BigDecimal low, BigDecimal end) {
+            this.low = low;
+            this.end = end;
+        }
+
+        private BigDecimal width(int fanOut) {
+            return end.subtract(low).divide(BigDecimal.valueOf(fanOut), 0, RoundingMode.CEILING).max(BigDecimal.ONE);
+        }
+    }
+
+    /**
+     * The aggregates of one bucket of a range.
+     */
+    private static class Bucket {
+        private final long count;
+        private final BigDecimal hash1;
+        private final BigDecimal hash2;
+
+        private Bucket(long count, BigDecimal hash1, BigDecimal hash2) {
+            this.count = count;
+            this.hash1 = hash1;
+            this.hash2 = hash2;
+        }
+
+        private boolean matches(Bucket other) {
+            return other != null && count == other.count && hash1.compareTo(other.hash1) == 0 && hash2.compareTo(other.hash2) == 0;
+        }
+    }
+
+    /**
+     * Reconciles one table.
+     *
+     * @param source    The Oracle side
+     * @param target    The ODS side
+     * @param tableName The table, with the same name on both sides
+     * @param keyColumn A numeric key column, usually the primary key
+     * @param fanOut    The number of ranges a range is split into
+     * @param leafSize  The width at which a mismatching range is reported instead of split
+     * @param threads   The number of range queries running at once, per side
+     * @return The mismatching ranges and the work it took to find them
+     */
+    public static Result reconcile(Side source, Side target, String tableName, String keyColumn, int fanOut, long leafSize, int threads)
+            throws SQLException {
+        Result result = new Result();
+        Map<String, ColumnKind> sourceColumns = describe(source, tableName);
+        Map<String, ColumnKind> targetColumns = describe(target, tableName);
+        String key = keyColumn.toUpperCase();
+        if (sourceColumns.get(key) != ColumnKind.NUMBER || targetColumns.get(key) != ColumnKind.NUMBER) {
+            throw new IllegalArgumentException("Key column " + keyColumn + " of " + tableName + " must be numeric on both sides");
+        }
+
+        // every side renders a column by its own type, so a time zone is converted wherever it is stored
+        List<String> columns = new ArrayList<>();
+        List<ColumnKind> sourceKinds = new ArrayList<>();
+        List<ColumnKind> targetKinds = new ArrayList<>();
+        for (Map.Entry<String, ColumnKind> column : sourceColumns.entrySet()) {
+            ColumnKind targetKind = targetColumns.get(column.getKey());
+            if (column.getValue() != null && targetKind != null) {
+                columns.add(column.getKey());
+                sourceKinds.add(column.getValue());
+                targetKinds.add(targetKind);
+            } else {
+                result.skippedColumns.add(column.getKey());
+            }
+        }
+        result.hashedColumns.addAll(columns);
+
+        // one executor per side, so neither side ever waits for more connections than its pool holds
+        ExecutorService sourceExecutor = newExecutor(threads, "checksum-source");
+        ExecutorService targetExecutor = newExecutor(threads, "checksum-target");
+        try {
+            Future<BigDecimal[]> sourceBounds = sourceExecutor.submit(() -> bounds(source, tableName, key));
+            Future<BigDecimal[]> targetBounds = targetExecutor.submit(() -> bounds(target, tableName, key));
+            BigDecimal[] sourceMinMax = get(sourceBounds);
+            BigDecimal[] targetMinMax = get(targetBounds);
+            result.queries += 2;
+            BigDecimal low = min(sourceMinMax[0], targetMinMax[0]);
+            BigDecimal high = max(sourceMinMax[1], targetMinMax[1]);
+            if (low == null) {
+                return result;
+            }
+
+            String sourceText = source.dialect.rowText(columns, sourceKinds);
+            String targetText = target.dialect.rowText(columns, targetKinds);
+            List<Range> pending = Collections.singletonList(new Range(low, high.add(BigDecimal.ONE)));
+            boolean topLevel = true;
+            while (!pending.isEmpty()) {
+                Map<Range, Future<Map<Long, Bucket>>> sourceBuckets = new LinkedHashMap<>();
+                Map<Range, Future<Map<Long, Bucket>>> targetBuckets = new LinkedHashMap<>();
+                for (Range range : pending) {
+                    sourceBuckets.put(range, sourceExecutor.submit(() -> buckets(source, tableName, key, sourceText, range, fanOut)));
+                    targetBuckets.put(range, targetExecutor.submit(() -> buckets(target, tableName, key, targetText, range, fanOut)));
+                }
+
+                List<Range> next = new ArrayList<>();
+                for (Range range : pending) {
+                    Map<Long, Bucket> sourceRange = get(sourceBuckets.get(range));
+                    Map<Long, Bucket> targetRange = get(targetBuckets.get(range));
+                    result.queries += 2;
+                    result.rangesCompared++;
+                    if (topLevel) {
+                        sourceRange.values().forEach(bucket -> result.sourceRows += bucket.count);
+                        targetRange.values().forEach(bucket -> result.targetRows += bucket.count);
+                    }
+
+                    BigDecimal width = range.width(fanOut);
+                    Set<Long> bucketIds = new TreeSet<>(sourceRange.keySet());
+                    bucketIds.addAll(targetRange.keySet());
+                    for (Long bucketId : bucketIds) {
+                        Bucket sourceBucket = sourceRange.get(bucketId);
+                        Bucket targetBucket = targetRange.get(bucketId);
+                        if (sourceBucket != null && sourceBucket.matches(targetBucket)) {
+                            continue;
+                        }
+                        BigDecimal subLow = range.low.add(width.multiply(BigDecimal.valueOf(bucketId)));
+                        BigDecimal subEnd = subLow.add(width).min(range.end);
+                        Range subRange = new Range(subLow, subEnd);
+                        boolean oneSided = sourceBucket == null || targetBucket == null || sourceBucket.count == 0 || targetBucket.count == 0;
+                        if (oneSided || width.compareTo(BigDecimal.ONE) <= 0 || subEnd.subtract(subLow).compareTo(BigDecimal.valueOf(leafSize)) <= 0) {
+                            result.mismatches.add(new Mismatch(subLow, subEnd,
+                                    sourceBucket == null ? 0 : sourceBucket.count, targetBucket == null ? 0 : targetBucket.count));
+                        } else {
+                            next.add(subRange);
+                        }
+                    }
+                }
+                LOGGER.info(tableName + ": " + pending.size() + " ranges compared, " + next.size() + " to drill into");
+                pending = next;
+                topLevel = false;
+            }
+        } finally {
+            sourceExecutor.shutdownNow();
+            targetExecutor.shutdownNow();
+        }
+        result.mismatches.sort(Comparator.comparing(Mismatch::getLow));
+        mergeOneSided(result.mismatches);
+        return result;
+    }
+
+    /**
+     * Joins adjacent ranges that are empty on the same side, such as the unloaded tail of a target, into one.
+     */
+    private static void mergeOneSided(List<Mismatch> mismatches) {
+        List<Mismatch> merged = new ArrayList<>();
+        for (Mismatch mismatch : mismatches) {
+            Mismatch last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            boolean adjacent = last != null && last.end.compareTo(mismatch.low) == 0;
+            boolean sameSideEmpty = last != null && ((last.sourceCount == 0 && mismatch.sourceCount == 0)
+                    || (last.targetCount == 0 && mismatch.targetCount == 0));
+            if (adjacent && sameSideEmpty) {
+                merged.set(merged.size() - 1, new Mismatch(last.low, mismatch.end,
+                        last.sourceCount + mismatch.sourceCount, last.targetCount + mismatch.targetCount));
+            } else {
+                merged.add(mismatch);
+            }
+        }
+        mismatches.clear();
+        mismatches.addAll(merged);
+    }
+
+    /**
+     * Picks the column the key space is cut on: the first of the key columns, in name order, that is numeric on
+     * both sides.
+     *
+     * @param keyColumns The primary key or unique index columns of the table
+     * @return The key column, or null if none of them is numeric on both sides
+     */
+    public static String findKeyColumn(Side source, Side target, String tableName, Collection<String> keyColumns) throws SQLException {
+        Map<String, ColumnKind> sourceColumns = describe(source, tableName);
+        Map<String, ColumnKind> targetColumns = describe(target, tableName);
+        for (String keyColumn : new TreeSet<>(keyColumns)) {
+            String key = keyColumn.toUpperCase();
+            if (sourceColumns.get(key) == ColumnKind.NUMBER && targetColumns.get(key) == ColumnKind.NUMBER) {
+                return keyColumn;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes the summary and the mismatching ranges to a workbook.
+     */
+    public static void writeExcel(Result result, String tableName, String keyColumn, String outputFileName) throws IOException {
+        Workbook workbook = EvidenceWorkbooks.newWorkbook();
+        try {
+            Sheet sheet = workbook.createSheet("Checksum");
+            ColumnWidthTracker columnWidths = new ColumnWidthTracker();
+            int rowNum = 0;
+
+            String[][] lines = {
+                    {"Table Name: ", tableName},
+                    {"Key Column: ", keyColumn},
+                    {"Source Rows: ", String.valueOf(result.sourceRows)},
+                    {"Target Rows: ", String.valueOf(result.targetRows)},
+                    {"Ranges Compared: ", String.valueOf(result.rangesCompared)},
+                    {"Queries Executed: ", String.valueOf(result.queries)},
+                    {"Hashed Columns: ", String.join(", ", result.hashedColumns)},
+                    {"Skipped Columns: ", String.join(", ", result.skippedColumns)}
+            };
+            for (String[] line : lines) {
+                Row row = sheet.createRow(rowNum++);
+                row.createCell(0).setCellValue(line[0]);
+                row.createCell(1).setCellValue(line[1]);
+                columnWidths.track(0, line[0]);
+            }
+
+            rowNum++;
+            Row headerRow = sheet.createRow(rowNum++);
+            String[] headers = {"Key From", "Key Below", "Source Rows", "Target Rows"};
+            for (int i = 0; i < headers.length; i++) {
+                headerRow.createCell(i).setCellValue(headers[i]);
+                columnWidths.track(i, headers[i]);
+            }
+            for (Mismatch mismatch : result.mismatches) {
+                Row row = sheet.createRow(rowNum++);
+                String[] values = {mismatch.low.toPlainString(), mismatch.end.toPlainString(),
+                        String.valueOf(mismatch.sourceCount), String.valueOf(mismatch.targetCount)};
+                for (int i = 0; i < values.length; i++) {
+                    row.createCell(i).setCellValue(values[i]);
+                    columnWidths.track(i, values[i]);
+                }
+            }
+
+            columnWidths.apply(sheet);
+            EvidenceWorkbooks.write(workbook, outputFileName);
+        } finally {
+            EvidenceWorkbooks.close(workbook);
+        }
+    }
+
+    /**
+     * Reads the columns of the table and how each of them can be hashed; columns that cannot, such as LOBs and
+     * binary columns, map to null.
+     */
+    private static Map<String, ColumnKind> describe(Side side, String tableName) throws SQLException {
+        Map<String, ColumnKind> columns = new LinkedHashMap<>();
+        try (Connection connection = side.dataSource.getConnection();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT * FROM " + side.schema + "." + tableName + " WHERE 1 = 0")) {
+            ResultSetMetaData rsmd = rs.getMetaData();
+            for (int i = 1; i <= rsmd.getColumnCount(); i++) {
+                columns.put(rsmd.getColumnName(i).toUpperCase(), kindOf(rsmd.getColumnType(i), rsmd.getColumnTypeName(i)));
+            }
+        }
+        return columns;
+    }
+
+    private static ColumnKind kindOf(int columnType, String typeName) {
+        switch (columnType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return ColumnKind.NUMBER;
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+            case ORACLE_TIMESTAMPTZ:
+            case ORACLE_TIMESTAMPLTZ:
+                return ColumnKind.TIMESTAMP_TZ;
+            case Types.DATE:
+            case Types.TIMESTAMP:
+                // Vertica and Snowflake report some zoned timestamps as plain TIMESTAMP and only tell them apart by name
+                if (TimestampTypes.isZoned(typeName)) {
+                    return ColumnKind.TIMESTAMP_TZ;
+                }
+                return ColumnKind.TIMESTAMP;
+            case Types.CHAR:
+            case Types.NCHAR:
+            case Types.VARCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.LONGNVARCHAR:
+                return ColumnKind.STRING;
+            default:
+                return null;
+        }
+    }
+
+    private static BigDecimal[] bounds(Side side, String tableName, String key) throws SQLException {
+        try (Connection connection = side.dataSource.getConnection();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(" + key + "), MAX(" + key + ") FROM " + side.schema + "." + tableName)) {
+            rs.next();
+            return new BigDecimal[]{rs.getBigDecimal(1), rs.getBigDecimal(2)};
+        }
+    }
+
+    /**
+     * Splits the range into {@code fanOut} buckets and returns the count and hash sums of every non-empty one.
+     */
+    private static Map<Long, Bucket> buckets(Side side, String tableName, String key, String rowText, Range range, int fanOut)
+            throws SQLException {
+        String bucket = "FLOOR((" + key + " - " + range.low.toPlainString() + ") / " + range.width(fanOut).toPlainString() + ")";
+        String query = "SELECT " + bucket + " AS BUCKET, COUNT(*) AS ROW_COUNT, SUM(H1) AS H1, SUM(H2) AS H2"
+                + " FROM (SELECT " + key + ", " + side.dialect.hashSlice("ROW_TEXT", 1) + " AS H1, " + side.dialect.hashSlice("ROW_TEXT", 9) + " AS H2"
+                + " FROM (SELECT " + key + ", " + rowText + " AS ROW_TEXT"
+                + " FROM " + side.schema + "." + tableName
+                + " WHERE " + key + " >= " + range.low.toPlainString() + " AND " + key + " < " + range.end.toPlainString() + ") t) r"
+                + " GROUP BY " + bucket;
+
+        Map<Long, Bucket> buckets = new HashMap<>();
+        try (Connection connection = side.dataSource.getConnection();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            while (rs.next()) {
+                buckets.put(rs.getLong(1), new Bucket(rs.getLong(2), rs.getBigDecimal(3), rs.getBigDecimal(4)));
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Checksum query failed on " + side.name + ": " + query, e);
+        }
+        return buckets;
+    }
+
+    private static ExecutorService newExecutor(int threads, String name) {
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static <T> T get(Future<T> future) throws SQLException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while reconciling", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException(e.getCause());
+        }
+    }
+
+    private static BigDecimal min(BigDecimal a, BigDecimal b) {
+        return a == null ? b : b == null ? a : a.min(b);
+    }
+
+    private static BigDecimal max(BigDecimal a, BigDecimal b) {
+        return a == null ? b : b == null ? a : a.max(b);
+    }
+}
@@ -1,20 +1,24 @@
 package org.oracle.com.ods.services.collectData.validation;
 
+import com.zaxxer.hikari.HikariDataSource;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.CellRangeAddress;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.oracle.com.ods.config.Config;
+import org.oracle.com.ods.db.Database;
 import org.oracle.com.ods.db.PrimaryKeyExtractor;
+import org.oracle.com.ods.db.RowCounter;
+import org.oracle.com.ods.services.collectData.codec.RowCodec;
+import org.oracle.com.ods.services.collectData.excel.ColumnWidthTracker;
+import org.oracle.com.ods.services.collectData.excel.EvidenceWorkbooks;
+import org.oracle.com.ods.services.collectData.snowflake.SnowflakeQueryExecutor;
 import org.oracle.com.ods.services.collectData.vertica.VerticaQueryExecutor;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.sql.*;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Map;
-import java.util.Scanner;
-import java.util.Set;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -24,7 +28,9 @@ import static org.oracle.com.ods.services.collectData.vertica.VerticaQueryExecut
 public class FunctionalValidation {
 
     private static final Logger LOGGER = Logger.getLogger(FunctionalValidation.class.getName());
-    private static final SimpleDateFormat DATE_FORMATTER = new SimpleDateFormat("dd MMM yyyy");
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd MMM yyyy");
+    private static final String VERTICA_SCHEMA = "APP_CMTDEV";
+    private static final String ORACLE_SCHEMA = "V500";
 
     public static Connection connectToVertica(String host, int port, String database, String user, String password) throws SQLException {
         String url = "jdbc:vertica://" + host + ":" + port + "/" + database;
@@ -36,7 +42,14 @@ public class FunctionalValidation {
         return DriverManager.getConnection(url, user, password);
     }
 
-    public static void executeQueryAndWriteExcel(Connection verticaConnection, Connection oracleConnection, String tableName, String outputDir, String associateId) {
+    /**
+     * Writes both sides of a table and their row counts to {@code <table>_validation_output.xlsx}.
+     *
+     * @param verticaCounts The row counts of the Vertica schema, read with {@link RowCounter}
+     * @param oracleCounts  The row counts of the Oracle schema
+     */
+    public static void executeQueryAndWriteExcel(Connection verticaConnection, Connection oracleConnection, String tableName, String outputDir,
+                                                 String associateId, RowCounter.Counts verticaCounts, RowCounter.Counts oracleCounts) {
         Set<String> primaryKeys = PrimaryKeyExtractor.extractPrimaryKeys(tableName);
 
         String orderByClause = "";
@@ -44,11 +57,10 @@ public class FunctionalValidation {
             orderByClause = " ORDER BY " + String.join(", ", primaryKeys);
         }
 
-        String verticaSchema = "APP_CMTDEV";
-        String oracleSchema = "V500";
+        String verticaSchema = VERTICA_SCHEMA;
+        String oracleSchema = ORACLE_SCHEMA;
         String verticaQuery = "SELECT * FROM " + verticaSchema + "." + tableName + " WHERE UPDT_CNT=150" + orderByClause;
         String oracleQuery = "SELECT * FROM " + oracleSchema + "." + tableName + " WHERE UPDT_CNT=150" + orderByClause;
-        String countQuery = "SELECT COUNT(*) FROM ";
 
         String outputFileName = outputDir + tableName + "_validation_output.xlsx";
 
@@ -60,130 +72,223 @@ public class FunctionalValidation {
             ResultSetMetaData verticaRsmd = verticaRs.getMetaData();
             ResultSetMetaData oracleRsmd = oracleRs.getMetaData();
 
-            Workbook workbook = new XSSFWorkbook();
-            Sheet sheet = workbook.createSheet("Validation");
+            Workbook workbook = EvidenceWorkbooks.newWorkbook();
+            try {
+                Sheet sheet = workbook.createSheet("Validation");
+                ColumnWidthTracker columnWidths = new ColumnWidthTracker();
 
-            // Add test header metadata
-            addTestMetadata(sheet, tableName, associateId);
+                // Add test header metadata
+                addTestMetadata(sheet, tableName, associateId, columnWidths);
 
-            int rowNum = 8;
+                int rowNum = 8;
 
-            // Add Vertica Metadata and Data
-            rowNum = addDBMetadataAndData(sheet, rowNum, "Vertica", verticaSchema, tableName, verticaQuery, verticaRs, verticaRsmd);
+                // Add Vertica Metadata and Data
+                rowNum = addDBMetadataAndData(sheet, rowNum, "Vertica", verticaSchema, tableName, verticaQuery, verticaRs, verticaRsmd, columnWidths);
 
-            rowNum += 3; // Add space before Oracle data
+                rowNum += 3; // Add space before Oracle data
 
-            // Add Oracle Metadata and Data
-            rowNum = addDBMetadataAndData(sheet, rowNum, "Oracle", oracleSchema, tableName, oracleQuery, oracleRs, oracleRsmd);
+                // Add Oracle Metadata and Data
+                rowNum = addDBMetadataAndData(sheet, rowNum, "Oracle", oracleSchema, tableName, oracleQuery, oracleRs, oracleRsmd, columnWidths);
 
-            // Add Count Comparison
-            rowNum += 3;
-            addCountComparison(sheet, rowNum, verticaStmt, oracleStmt, countQuery, verticaSchema, oracleSchema, tableName);
+                // Add Count Comparison
+                rowNum += 3;
+                addCountComparison(sheet, rowNum, verticaCounts.get(tableName), oracleCounts.get(tableName), columnWidths);
 
-            for (int i = 0; i < verticaRsmd.getColumnCount(); i++) {
-                sheet.autoSizeColumn(i);
-            }
+                columnWidths.apply(sheet);
 
-            // Write to Excel
-            try (FileOutputStream fileOut = new FileOutputStream(outputFileName)) {
-                workbook.write(fileOut);
+                // Write to Excel
+                EvidenceWorkbooks.write(workbook, outputFileName);
+            } finally {
+                EvidenceWorkbooks.close(workbook);
             }
 
-            workbook.close();
-
         } catch (SQLException | IOException e) {
             LOGGER.log(Level.SEVERE, "Error executing query or writing Excel file", e);
         }
     }
 
-    private static void addTestMetadata(Sheet sheet, String tableName, String associateId) {
+    /**
+     * Compares the rows of a table between Oracle and Vertica with {@link RowDiffComparator} and writes only the
+     * differences to {@code <table>_row_diff.xlsx}.
+     *
+     * @param filter The row filter without the WHERE keyword, or null to compare the whole table
+     */
+    public static void compareRows(Connection verticaConnection, Connection oracleConnection, String tableName, String outputDir, String filter) {
+        Set<String> primaryKeys = PrimaryKeyExtractor.extractPrimaryKeys(tableName);
+        if (primaryKeys.isEmpty()) {
+            LOGGER.severe("No primary key or unique index found for " + tableName + ", rows cannot be compared");
+            return;
+        }
+        List<String> keyColumns = new ArrayList<>(new TreeSet<>(primaryKeys));
+
+        String oracleQuery = RowDiffComparator.buildQuery(ORACLE_SCHEMA, tableName, filter, keyColumns);
+        String verticaQuery = RowDiffComparator.buildQuery(VERTICA_SCHEMA, tableName, filter, keyColumns);
+        String outputFileName = outputDir + tableName + "_row_diff.xlsx";
+
+        try {
+            RowDiffComparator.Summary summary = RowDiffComparator.compare(oracleConnection, oracleQuery, verticaConnection, verticaQuery,
+                    keyColumns, outputFileName);
+            LOGGER.info(tableName + ": " + summary + (summary.getColumnMismatches().isEmpty() ? "" : ", mismatches per column " + summary.getColumnMismatches()));
+        } catch (SQLException | IOException e) {
+            LOGGER.log(Level.SEVERE, "Error comparing rows of " + tableName, e);
+        }
+    }
+
+    /**
+     * Reconciles the tables between Oracle and Vertica or Snowflake with {@link ChecksumReconciler}, comparing
+     * per-range row counts and hashes computed inside each database, and writes {@code <table>_checksum.xlsx}.
+     */
+    public static void reconcileChecksums(String[] tables, boolean snowflake, String targetSchema, String outputDir) throws IOException {
+        int threads = Config.getReconcileThreads();
+        Map<String, Object> targetConfig = snowflake ? SnowflakeQueryExecutor.loadConfig() : loadConfig();
+        try (HikariDataSource oraclePool = Database.createConnectionPool(threads);
+             HikariDataSource targetPool = snowflake
+                     ? SnowflakeQueryExecutor.createConnectionPool(targetConfig, threads)
+                     : VerticaQueryExecutor.createConnectionPool(targetConfig, threads)) {
+
+            ChecksumReconciler.Side source = new ChecksumReconciler.Side("Oracle", oraclePool, ChecksumDialect.ORACLE, ORACLE_SCHEMA);
+            ChecksumReconciler.Side target = snowflake
+                    ? new ChecksumReconciler.Side("Snowflake", targetPool, ChecksumDialect.SNOWFLAKE, targetSchema)
+                    : new ChecksumReconciler.Side("Vertica", targetPool, ChecksumDialect.VERTICA, targetSchema);
+
+            for (String table : tables) {
+                String tableName = table.trim();
+                Set<String> primaryKeys = PrimaryKeyExtractor.extractPrimaryKeys(tableName);
+                if (primaryKeys.isEmpty()) {
+                    LOGGER.severe("No primary key or unique index found for " + tableName + ", checksums cannot be compared");
+                    continue;
+                }
+                try {
+                    // ranges are cut on a numeric key column; further key columns are covered by the row hash
+                    String keyColumn = ChecksumReconciler.findKeyColumn(source, target, tableName, primaryKeys);
+                    if (keyColumn == null) {
+                        LOGGER.severe("No numeric key column in " + primaryKeys + " of " + tableName + ", checksums cannot be compared");
+                        continue;
+                    }
+                    ChecksumReconciler.Result result = ChecksumReconciler.reconcile(source, target, tableName, keyColumn,
+                            Config.getReconcileFanOut(), Config.getReconcileLeafSize(), threads);
+                    LOGGER.info(tableName + ": " + result);
+                    ChecksumReconciler.writeExcel(result, tableName, keyColumn, outputDir + tableName + "_checksum.xlsx");
+                } catch (SQLException | IllegalArgumentException e) {
+                    LOGGER.log(Level.SEVERE, "Error reconciling " + tableName, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the ids missing from or extra in the target with {@link PkSetReconciler} for tables with a single
+     * numeric key, and writes them as ranges to {@code <table>_missing_in_<target>.txt} and
+     * {@code <table>_extra_in_<target>.txt}.
+     */
+    public static void reconcileKeys(String[] tables, Connection oracleConnection, Connection targetConnection, String targetName,
+                                     String targetSchema, String outputDir) {
+        for (String table : tables) {
+            String tableName = table.trim();
+            Set<String> primaryKeys = PrimaryKeyExtractor.extractPrimaryKeys(tableName);
+            if (primaryKeys.size() != 1) {
+                LOGGER.severe(tableName + " needs a single key column to compare ids, found " + primaryKeys);
+                continue;
+            }
+            String keyColumn = primaryKeys.iterator().next();
+
+            try {
+                PkSetReconciler.Result result = PkSetReconciler.reconcile(
+                        oracleConnection, PkSetReconciler.buildQuery(ORACLE_SCHEMA, tableName, keyColumn),
+                        targetConnection, PkSetReconciler.buildQuery(targetSchema, tableName, keyColumn));
+                long missingRanges = PkSetReconciler.writeRanges(result.getMissing(), outputDir + tableName + "_missing_in_" + targetName + ".txt");
+                long extraRanges = PkSetReconciler.writeRanges(result.getExtra(), outputDir + tableName + "_extra_in_" + targetName + ".txt");
+                LOGGER.info(tableName + ": " + result + "; written as " + missingRanges + " and " + extraRanges + " ranges");
+            } catch (SQLException | IOException e) {
+                LOGGER.log(Level.SEVERE, "Error comparing the ids of " + tableName, e);
+            }
+        }
+    }
+
+    private static void addTestMetadata(Sheet sheet, String tableName, String associateId, ColumnWidthTracker columnWidths) {
         Row row1 = sheet.createRow(0);
-        row1.createCell(0).setCellValue("Issue: ODS Mappings for " + tableName);
+        setCell(row1, 0, "Issue: ODS Mappings for " + tableName, columnWidths);
 
         Row row2 = sheet.createRow(1);
-        row2.createCell(0).setCellValue("Solution: Operational Data Store – Crawlers");
+        setCell(row2, 0, "Solution: Operational Data Store – Crawlers", columnWidths);
 
         Row row3 = sheet.createRow(2);
-        row3.createCell(0).setCellValue("Test Date: " + DATE_FORMATTER.format(new Date()));
+        setCell(row3, 0, "Test Date: " + DATE_FORMATTER.format(LocalDate.now()), columnWidths);
 
         Row row4 = sheet.createRow(3);
-        row4.createCell(0).setCellValue("Environment: Dev");
+        setCell(row4, 0, "Environment: Dev", columnWidths);
 
         Row row5 = sheet.createRow(4);
-        row5.createCell(0).setCellValue("Operating System: Mac");
+        setCell(row5, 0, "Operating System: Mac", columnWidths);
 
         Row row6 = sheet.createRow(5);
-        row6.createCell(0).setCellValue("Associate ID: " + associateId);
+        setCell(row6, 0, "Associate ID: " + associateId, columnWidths);
     }
 
-    private static int addDBMetadataAndData(Sheet sheet, int rowNum, String dbName, String schemaName, String tableName, String query, ResultSet rs, ResultSetMetaData rsmd) throws SQLException {
+    private static int addDBMetadataAndData(Sheet sheet, int rowNum, String dbName, String schemaName, String tableName, String query, ResultSet rs, ResultSetMetaData rsmd, ColumnWidthTracker columnWidths) throws SQLException {
         // Add DB Metadata
         Row dbMetadataRow1 = sheet.createRow(rowNum++);
-        dbMetadataRow1.createCell(0).setCellValue("DB: ");
-        dbMetadataRow1.createCell(1).setCellValue(dbName);
+        setCell(dbMetadataRow1, 0, "DB: ", columnWidths);
+        setCell(dbMetadataRow1, 1, dbName, columnWidths);
 
         Row dbMetadataRow2 = sheet.createRow(rowNum++);
-        dbMetadataRow2.createCell(0).setCellValue("Schema Name: ");
-        dbMetadataRow2.createCell(1).setCellValue(schemaName);
+        setCell(dbMetadataRow2, 0, "Schema Name: ", columnWidths);
+        setCell(dbMetadataRow2, 1, schemaName, columnWidths);
 
         Row dbMetadataRow3 = sheet.createRow(rowNum++);
-        dbMetadataRow3.createCell(0).setCellValue("Table Name: ");
-        dbMetadataRow3.createCell(1).setCellValue(tableName);
+        setCell(dbMetadataRow3, 0, "Table Name: ", columnWidths);
+        setCell(dbMetadataRow3, 1, tableName, columnWidths);
 
         Row dbMetadataRow4 = sheet.createRow(rowNum++);
-        dbMetadataRow4.createCell(0).setCellValue("Query Executed: ");
+        setCell(dbMetadataRow4, 0, "Query Executed: ", columnWidths);
         dbMetadataRow4.createCell(1).setCellValue(query);
 
         sheet.addMergedRegion(new CellRangeAddress(dbMetadataRow4.getRowNum(), dbMetadataRow4.getRowNum(), 1, rsmd.getColumnCount() - 1));
 
         // Add Table Headers
+        RowCodec codec = RowCodec.compile(rsmd);
         Row headerRow = sheet.createRow(rowNum++);
-        int columnCount = rsmd.getColumnCount();
-        for (int i = 1; i <= columnCount; i++) {
-            headerRow.createCell(i - 1).setCellValue(rsmd.getColumnName(i));
+        int columnCount = codec.getColumnCount();
+        for (int i = 0; i < columnCount; i++) {
+            setCell(headerRow, i, codec.getColumnName(i), columnWidths);
         }
 
         // Add Data
         while (rs.next()) {
             Row row = sheet.createRow(rowNum++);
-            for (int i = 1; i <= columnCount; i++) {
-                Cell cell = row.createCell(i - 1);
-                Object value = rs.getObject(i);
-                if (value != null) {
-                    cell.setCellValue(value.toString());
-                } else {
-                    cell.setCellValue("null");
-                }
+            for (int i = 0; i < columnCount; i++) {
+                setCell(row, i, codec.format(rs, i), columnWidths);
             }
         }
 
         return rowNum;
     }
 
-    private static void addCountComparison(Sheet sheet, int rowNum, Statement verticaStmt, Statement oracleStmt, String countQuery, String verticaSchema, String oracleSchema, String tableName) throws SQLException {
-        // Vertica count
-        ResultSet verticaCountRs = verticaStmt.executeQuery(countQuery + verticaSchema + "." + tableName);
-        verticaCountRs.next();
-        int verticaCount = verticaCountRs.getInt(1);
-
-        // Oracle count
-        ResultSet oracleCountRs = oracleStmt.executeQuery(countQuery + oracleSchema + "." + tableName);
-        oracleCountRs.next();
-        int oracleCount = oracleCountRs.getInt(1);
-
+    private static void addCountComparison(Sheet sheet, int rowNum, Long verticaCount, Long oracleCount, ColumnWidthTracker columnWidths) {
         // Add count comparison header row (Row Count (Vertica), Row Count (Oracle), Difference)
         Row countComparisonHeaderRow = sheet.createRow(rowNum);
-        countComparisonHeaderRow.createCell(0).setCellValue("Row Count (Vertica):");
-        countComparisonHeaderRow.createCell(1).setCellValue("Row Count (Oracle):");
-        countComparisonHeaderRow.createCell(2).setCellValue("Difference:");
+        setCell(countComparisonHeaderRow, 0, "Row Count (Vertica):", columnWidths);
+        setCell(countComparisonHeaderRow, 1, "Row Count (Oracle):", columnWidths);
+        setCell(countComparisonHeaderRow, 2, "Difference:", columnWidths);
 
         // Add count values row (with Vertica count, Oracle count, and Difference)
         Row countComparisonValuesRow = sheet.createRow(rowNum + 1);
+        // a count is missing when the strategy is METADATA and the catalog has no statistics for the table
+        if (verticaCount == null || oracleCount == null) {
+            setCell(countComparisonValuesRow, 0, verticaCount == null ? "unknown" : verticaCount.toString(), columnWidths);
+            setCell(countComparisonValuesRow, 1, oracleCount == null ? "unknown" : oracleCount.toString(), columnWidths);
+            return;
+        }
         countComparisonValuesRow.createCell(0).setCellValue(verticaCount); // Vertica count
         countComparisonValuesRow.createCell(1).setCellValue(oracleCount);  // Oracle count
         countComparisonValuesRow.createCell(2).setCellValue(Math.abs(verticaCount - oracleCount));
     }
 
+    private static void setCell(Row row, int column, String value, ColumnWidthTracker columnWidths) {
+        row.createCell(column).setCellValue(value);
+        columnWidths.track(column, value);
+    }
+
     public static void main(String[] args) {
         try {
             // Vertica DB Connection
@@ -209,11 +314,53 @@ public class FunctionalValidation {
             String tableNames = scanner.nextLine();
             String[] tables = tableNames.split(",");
 
-            System.out.print("Please provide the Associate Id: ");
-            String associateId = scanner.nextLine();
+            System.out.print("Validation mode? (list: both tables side by side, diff: row differences, checksum: range checksums, keys: missing and extra ids): ");
+            String mode = scanner.nextLine().trim().toLowerCase();
+
+            if (mode.equals("checksum") || mode.equals("keys")) {
+                System.out.print("Target warehouse? (vertica/snowflake): ");
+                boolean snowflake = scanner.nextLine().trim().equalsIgnoreCase("snowflake");
+                System.out.print("Target schema (empty for " + VERTICA_SCHEMA + "): ");
+                String targetSchema = scanner.nextLine().trim();
+                targetSchema = targetSchema.isEmpty() ? VERTICA_SCHEMA : targetSchema;
+                if (mode.equals("checksum")) {
+                    reconcileChecksums(tables, snowflake, targetSchema, outputDir);
+                } else if (snowflake) {
+                    Map<String, Object> snowflakeConfig = SnowflakeQueryExecutor.loadConfig();
+                    try (Connection snowflakeConnection = SnowflakeQueryExecutor.connectToSnowflake(
+                            (String) snowflakeConfig.get("user"),
+                            (String) snowflakeConfig.get("password"),
+                            (String) snowflakeConfig.get("account"),
+                            (String) snowflakeConfig.get("warehouse"),
+                            (String) snowflakeConfig.get("database"))) {
+                        reconcileKeys(tables, oracleConnection, snowflakeConnection, "snowflake", targetSchema, outputDir);
+                    }
+                } else {
+                    reconcileKeys(tables, oracleConnection, verticaConnection, "vertica", targetSchema, outputDir);
+                }
+            } else if (mode.equals("diff")) {
+                System.out.print("Row filter, e.g. UPDT_CNT=150 (empty for the whole table): ");
+                String filter = scanner.nextLine().trim();
+                for (String table : tables) {
+                    compareRows(verticaConnection, oracleConnection, table.trim(), outputDir, filter.isEmpty() ? null : filter);
+                }
+            } else {
+                System.out.print("Please provide the Associate Id: ");
+                String associateId = scanner.nextLine();
+
+                // Row counts are read for all tables with one query per schema
+                List<String> tableList = new ArrayList<>();
+                for (String table : tables) {
+                    tableList.add(table.trim());
+                }
+                RowCounter.Strategy strategy = RowCounter.getConfiguredStrategy();
+                RowCounter.Counts verticaCounts = RowCounter.count(verticaConnection, RowCounter.Dialect.VERTICA, VERTICA_SCHEMA, tableList, strategy);
+                RowCounter.Counts oracleCounts = RowCounter.count(oracleConnection, RowCounter.Dialect.ORACLE, ORACLE_SCHEMA, tableList, strategy);
+                RowCounter.recountMismatches(verticaConnection, verticaCounts, oracleConnection, oracleCounts, tableList, strategy);
 
-            for (String table : tables) {
-                executeQueryAndWriteExcel(verticaConnection, oracleConnection, table.trim(), outputDir, associateId);
+                for (String table : tableList) {
+                    executeQueryAndWriteExcel(verticaConnection, oracleConnection, table, outputDir, associateId, verticaCounts, oracleCounts);
+                }
             }
 
             verticaConnection.close();
@@ -0,0 +1,246 @@
+package org.oracle.com.ods.services.collectData.validation;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A compressed set of primitive longs for key reconciliation. Values are grouped into chunks of 65536 by their
+ * high bits; a chunk holds its low 16 bits as a sorted {@code char[]} while it has at most 4096 values and as a
+ * 65536-bit bitmap once it has more. Dense surrogate keys therefore cost about one bit each and sparse keys
+ * two bytes each, with no boxing. Keys may be added in any order: a key above the last one of its chunk is
+ * appended without searching, any other key is placed by a binary search within its chunk, which costs at most
+ * a copy of 8 KB while the chunk is an array. Not thread-safe.
+ */
+public class LongBitmap {
+
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private long[] chunkKeys = new long[16];
+    private Chunk[] chunks = new Chunk[16];
+    private int chunkCount;
+    private long cardinality;
+
+    /**
+     * Receives the runs of consecutive values of a bitmap.
+     */
+    @FunctionalInterface
+    public interface RangeConsumer {
+        void accept(long from, long to) throws IOException;
+    }
+
+    private static final class Chunk {
+        private char[] values = new char[4];
+        private int size;
+        private long[] bits;
+
+        private boolean add(char low) {
+            if (bits != null) {
+                long mask = 1L << low;
+                int word = low >>> 6;
+                if ((bits[word] & mask) != 0) {
+                    return false;
+                }
+                bits[word] |= mask;
+                size++;
+                return true;
+            }
+            int index = size > 0 && values[size - 1] < low ? -(size + 1) : Arrays.binarySearch(values, 0, size, low);
+            if (index >= 0) {
+                return false;
+            }
+            if (size == ARRAY_LIMIT) {
+                toBitmap();
+                return add(low);
+            }
+            int insertAt = -(index + 1);
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.min(values.length * 2, ARRAY_LIMIT));
+            }
+            System.arraycopy(values, insertAt, values, insertAt + 1, size - insertAt);
+            values[insertAt] = low;
+            size++;
+            return true;
+        }
+
+        private boolean contains(char low) {
+            if (bits != null) {
+                return (bits[low >>> 6] & (1L << low)) != 0;
+            }
+            return Arrays.binarySearch(values, 0, size, low) >= 0;
+        }
+
+        private void toBitmap() {
+            bits = new long[BITMAP_WORDS];
+            for (int i = 0; i < size; i++) {
+                bits[values[i] >>> 6] |= 1L << values[i];
+            }
+            values = null;
+        }
+
+        private long[] words() {
+            if (bits != null) {
+                return bits;
+            }
+            long[] words = new long[BITMAP_WORDS];
+            for (int i = 0; i < size; i++) {
+                words[values[i] >>> 6] |= 1L << values[i];
+            }
+            return words;
+        }
+
+        private long memoryBytes() {
+            return bits != null ? BITMAP_WORDS * 8L : values.length * 2L;
+        }
+    }
+
+    /**
+     * Adds a value.
+     *
+     * @return true if the value was not in the set yet
+     */
+    public boolean add(long value) {
+        Chunk chunk = chunkFor(value >> 16, true);
+        if (chunk.add((char) value)) {
+            cardinality++;
+            return true;
+        }
+        return false;
+    }
+
+    public boolean contains(long value) {
+        Chunk chunk = chunkFor(value >> 16, false);
+        return chunk != null && chunk.contains((char) value);
+    }
+
+    public long getCardinality() {
+        return cardinality;
+    }
+
+    /**
+     * @return The approximate heap used by the values, for logging
+     */
+    public long getMemoryBytes() {
+        long bytes = chunkKeys.length * 8L + chunks.length * 8L;
+        for (int i = 0; i < chunkCount; i++) {
+            bytes += chunks[i].memoryBytes() + 32;
+        }
+        return bytes;
+    }
+
+    /**
+     * Computes the values of this set that are not in the other one. Bitmap chunks are subtracted a word at a time.
+     *
+     * @param other The set to subtract
+     * @return A new set
+     */
+    public LongBitmap andNot(LongBitmap other) {
+        LongBitmap result = new LongBitmap();
+        for (int i = 0; i < chunkCount; i++) {
+            Chunk chunk = chunks[i];
+            Chunk otherChunk = other.chunkFor(chunkKeys[i], false);
+            long base = chunkKeys[i] << 16;
+            if (chunk.bits == null) {
+                for (int v = 0; v < chunk.size; v++) {
+                    if (otherChunk == null || !otherChunk.contains(chunk.values[v])) {
+                        result.add(base + chunk.values[v]);
+                    }
+                }
+                continue;
+            }
+            long[] otherWords = otherChunk == null ? null : otherChunk.words();
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long word = otherWords == null ? chunk.bits[w] : chunk.bits[w] & ~otherWords[w];
+                while (word != 0) {
+                    result.add(base + (w << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Passes every run of consecutive values, in ascending order.
+     */
+    public void forEachRange(RangeConsumer consumer) throws IOException {
+        RangeBuilder ranges = new RangeBuilder(consumer);
+        for (int i = 0; i < chunkCount; i++) {
+            Chunk chunk = chunks[i];
+            long base = chunkKeys[i] << 16;
+            if (chunk.bits == null) {
+                for (int v = 0; v < chunk.size; v++) {
+                    ranges.next(base + chunk.values[v]);
+                }
+                continue;
+            }
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long word = chunk.bits[w];
+                while (word != 0) {
+                    ranges.next(base + (w << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+        ranges.finish();
+    }
+
+    /**
+     * Joins ascending values into runs.
+     */
+    private static final class RangeBuilder {
+        private final RangeConsumer consumer;
+        private boolean open;
+        private long from;
+        private long to;
+
+        private RangeBuilder(RangeConsumer consumer) {
+            this.consumer = consumer;
+        }
+
+        private void next(long value) throws IOException {
+            if (open && value == to + 1) {
+                to = value;
+                return;
+            }
+            finish();
+            open = true;
+            from = value;
+            to = value;
+        }
+
+        private void finish() throws IOException {
+            if (open) {
+                consumer.accept(from, to);
+                open = false;
+            }
+        }
+    }
+
+    private Chunk chunkFor(long chunkKey, boolean create) {
+        // keys usually arrive in order, so the last chunk is checked before searching
+        if (chunkCount > 0 && chunkKeys[chunkCount - 1] == chunkKey) {
+            return chunks[chunkCount - 1];
+        }
+        int index = chunkCount > 0 && chunkKeys[chunkCount - 1] < chunkKey
+                ? -(chunkCount + 1)
+                : Arrays.binarySearch(chunkKeys, 0, chunkCount, chunkKey);
+        if (index >= 0) {
+            return chunks[index];
+        }
+        if (!create) {
+            return null;
+        }
+        int insertAt = -(index + 1);
+        if (chunkCount == chunkKeys.length) {
+            chunkKeys = Arrays.copyOf(chunkKeys, chunkCount * 2);
+            chunks = Arrays.copyOf(chunks, chunkCount * 2);
+        }
+        System.arraycopy(chunkKeys, insertAt, chunkKeys, insertAt + 1, chunkCount - insertAt);
+        System.arraycopy(chunks, insertAt, chunks, insertAt + 1, chunkCount - insertAt);
+        chunkKeys[insertAt] = chunkKey;
+        chunks[insertAt] = new Chunk();
+        chunkCount++;
+        return chunks[insertAt];
+    }
+}
@@ -0,0 +1,190 @@
+package org.oracle.com.ods.services.collectData.validation;
+
+import org.oracle.com.ods.config.Config;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Finds the ids missing from or extra in an ODS target for tables with a single numeric key. Only the key column
+ * is read, on both sides concurrently, into {@link LongBitmap}s as primitives; the set differences are computed
+ * once both reads are done. Hundreds of millions of dense ids fit in a few tens of megabytes. The ids are read
+ * without an ORDER BY, so the databases need not sort them; keys of a NUMBER column without a declared scale of 0
+ * are checked to be integers as they are read.
+ */
+public class PkSetReconciler {
+
+    /**
+     * The ids found on only one side.
+     */
+    public static class Result {
+        private final LongBitmap missing;
+        private final LongBitmap extra;
+        private final long sourceKeys;
+        private final long targetKeys;
+        private final long readMillis;
+        private final long diffMillis;
+
+        private Result(LongBitmap missing, LongBitmap extra, long sourceKeys, long targetKeys, long readMillis, long diffMillis) {
+            this.missing = missing;
+            this.extra = extra;
+            this.sourceKeys = sourceKeys;
+            this.targetKeys = targetKeys;
+            this.readMillis = readMillis;
+            this.diffMillis = diffMillis;
+        }
+
+        /**
+         * @return The ids of the source that the target does not have
+         */
+        public LongBitmap getMissing() {
+            return missing;
+        }
+
+        /**
+         * @return The ids of the target that the source does not have
+         */
+        public LongBitmap getExtra() {
+            return extra;
+        }
+
+        public long getSourceKeys() {
+            return sourceKeys;
+        }
+
+        public long getTargetKeys() {
+            return targetKeys;
+        }
+
+        @Override
+        public String toString() {
+            return sourceKeys + " source ids, " + targetKeys + " target ids, " + missing.getCardinality() + " missing, "
+                    + extra.getCardinality() + " extra; read in " + readMillis + " ms, compared in " + diffMillis + " ms";
+        }
+    }
+
+    /**
+     * @return The query reading only the key column of the table
+     */
+    public static String buildQuery(String schema, String tableName, String keyColumn) {
+        return "SELECT " + keyColumn + " FROM " + schema + "." + tableName;
+    }
+
+    /**
+     * Reads the key column on both sides and computes the differences.
+     *
+     * @param source      The Oracle connection
+     * @param sourceQuery The query returning the source ids as its only column
+     * @param target      The ODS connection
+     * @param targetQuery The query returning the target ids as its only column
+     * @return The missing and extra ids
+     */
+    public static Result reconcile(Connection source, String sourceQuery, Connection target, String targetQuery) throws SQLException {
+        ExecutorService executor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "pk-set-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            long start = System.currentTimeMillis();
+            Future<LongBitmap> sourceIds = executor.submit(() -> readIds(source, sourceQuery));
+            Future<LongBitmap> targetIds = executor.submit(() -> readIds(target, targetQuery));
+            LongBitmap sourceBitmap = get(sourceIds);
+            LongBitmap targetBitmap = get(targetIds);
+            long readMillis = System.currentTimeMillis() - start;
+
+            start = System.currentTimeMillis();
+            Future<LongBitmap> missing = executor.submit(() -> sourceBitmap.andNot(targetBitmap));
+            Future<LongBitmap> extra = executor.submit(() -> targetBitmap.andNot(sourceBitmap));
+            return new Result(get(missing), get(extra), sourceBitmap.getCardinality(), targetBitmap.getCardinality(),
+                    readMillis, System.currentTimeMillis() - start);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Writes the ids as ranges, one per line: {@code 1200} for a single id, {@code 1300-1450} for a run.
+     *
+     * @return The number of lines written
+     */
+    public static long writeRanges(LongBitmap ids, String fileName) throws IOException {
+        long[] lines = {0};
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
+            ids.forEachRange((from, to) -> {
+                writer.write(from == to ? Long.toString(from) : from + "-" + to);
+                writer.newLine();
+                lines[0]++;
+            });
+        }
+        return lines[0];
+    }
+
+    private static LongBitmap readIds(Connection connection, String query) throws SQLException {
+        LongBitmap ids = new LongBitmap();
+        try (Statement stmt = connection.createStatement()) {
+            stmt.setFetchSize(Config.getValidationFetchSize());
+            try (ResultSet rs = stmt.executeQuery(query)) {
+                ResultSetMetaData rsmd = rs.getMetaData();
+                int columnType = rsmd.getColumnType(1);
+                if (columnType != Types.NUMERIC && columnType != Types.DECIMAL && columnType != Types.BIGINT
+                        && columnType != Types.INTEGER && columnType != Types.SMALLINT && columnType != Types.TINYINT) {
+                    throw new SQLException("Key column must be an integer, got " + rsmd.getColumnTypeName(1) + ": " + query);
+                }
+                // getLong would silently truncate fractional keys, merging distinct ones
+                boolean decimal = columnType == Types.NUMERIC || columnType == Types.DECIMAL;
+                if (decimal && rsmd.getScale(1) > 0) {
+                    throw new SQLException("Key column must be an integer, got " + rsmd.getColumnTypeName(1)
+                            + " with scale " + rsmd.getScale(1) + ": " + query);
+                }
+                // an unconstrained Oracle NUMBER reports no precision and a scale of 0 or -127, so every value is checked
+                if (decimal && (rsmd.getPrecision(1) <= 0 || rsmd.getScale(1) != 0)) {
+                    readCheckedIds(rs, ids, query);
+                    return ids;
+                }
+                while (rs.next()) {
+                    long id = rs.getLong(1);
+                    if (!rs.wasNull()) {
+                        ids.add(id);
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static void readCheckedIds(ResultSet rs, LongBitmap ids, String query) throws SQLException {
+        while (rs.next()) {
+            BigDecimal id = rs.getBigDecimal(1);
+            if (id == null) {
+                continue;
+            }
+            try {
+                ids.add(id.longValueExact());
+            } catch (ArithmeticException e) {
+                throw new SQLException("Key column must hold integers that fit a long, got " + id.toPlainString() + ": " + query, e);
+            }
+        }
+    }
+
+    private static <T> T get(Future<T> future) throws SQLException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while reading ids", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException(e.getCause());
+        }
+    }
+}
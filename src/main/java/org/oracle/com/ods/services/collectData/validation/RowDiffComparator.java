@@ -0,0 +1,560 @@
+package org.oracle.com.ods.services.collectData.validation;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.oracle.com.ods.config.Config;
+import org.oracle.com.ods.db.TimestampTypes;
+import org.oracle.com.ods.services.collectData.excel.ColumnWidthTracker;
+import org.oracle.com.ods.services.collectData.excel.EvidenceWorkbooks;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Compares a table between Oracle and Vertica row by row in constant memory. Both sides are read ordered by the
+ * primary key, each on its own connection and thread, and merge-joined as the rows arrive. Values are normalized
+ * by type before they are compared:
+ * <ul>
+ *     <li>numbers are compared by value, so {@code 1}, {@code 1.0} and {@code 1.00} are equal;</li>
+ *     <li>timestamps are compared to the microsecond, time zone aware ones in UTC;</li>
+ *     <li>CHAR padding is ignored and empty strings equal NULL, as Oracle stores them.</li>
+ * </ul>
+ * Key columns are only normalized as far as it keeps the order each database returns them in: they must be of the
+ * same kind, number, timestamp or text, on both sides, and empty key strings are kept apart from NULL.
+ * Only rows missing from Vertica, extra in Vertica and rows with differing values are written to the workbook,
+ * one line per differing column, followed by a summary sheet with the per-column mismatch counts.
+ */
+public class RowDiffComparator {
+
+    private static final Logger LOGGER = Logger.getLogger(RowDiffComparator.class.getName());
+    private static final int QUEUE_CAPACITY = 1000;
+    private static final int MAX_DETAIL_ROWS = SpreadsheetVersion.EXCEL2007.getLastRowIndex();
+    private static final Calendar UTC = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    // Oracle's vendor type codes for TIMESTAMP WITH (LOCAL) TIME ZONE
+    private static final int ORACLE_TIMESTAMPTZ = -101;
+    private static final int ORACLE_TIMESTAMPLTZ = -102;
+
+    /**
+     * The counts of one comparison.
+     */
+    public static class Summary {
+        private long matched;
+        private long missing;
+        private long extra;
+        private long differing;
+        private final Map<String, Long> columnMismatches = new LinkedHashMap<>();
+
+        public long getMatched() {
+            return matched;
+        }
+
+        public long getMissing() {
+            return missing;
+        }
+
+        public long getExtra() {
+            return extra;
+        }
+
+        public long getDiffering() {
+            return differing;
+        }
+
+        public Map<String, Long> getColumnMismatches() {
+            return columnMismatches;
+        }
+
+        @Override
+        public String toString() {
+            return matched + " matching, " + missing + " missing in Vertica, " + extra + " extra in Vertica, "
+                    + differing + " differing";
+        }
+    }
+
+    /**
+     * Reads one column of the current row as a value that compares equal across databases.
+     */
+    @FunctionalInterface
+    private interface Normalizer {
+        Object read(ResultSet rs, int column) throws SQLException;
+    }
+
+    /**
+     * How a column is normalized, and so how its values sort.
+     */
+    private enum ValueKind {
+        NUMBER,
+        TIMESTAMP,
+        TEXT
+    }
+
+    /**
+     * Builds the query reading one side in key order.
+     *
+     * @param schema     The schema of the table
+     * @param tableName  The table
+     * @param where      The filter without the {@code WHERE} keyword, or null for the whole table
+     * @param keyColumns The key columns, in the order used by {@link #compare}
+     * @return The query
+     */
+    public static String buildQuery(String schema, String tableName, String where, List<String> keyColumns) {
+        StringBuilder query = new StringBuilder("SELECT * FROM ").append(schema).append('.').append(tableName);
+        if (where != null) {
+            query.append(" WHERE ").append(where);
+        }
+        query.append(" ORDER BY ");
+        for (int i = 0; i < keyColumns.size(); i++) {
+            query.append(i > 0 ? ", " : "").append(keyColumns.get(i)).append(" NULLS LAST");
+        }
+        return query.toString();
+    }
+
+    /**
+     * Compares the two ordered queries and writes the differences to a workbook.
+     *
+     * @param oracleConnection  The Oracle connection
+     * @param oracleQuery       The Oracle query, ordered by the key columns
+     * @param verticaConnection The Vertica connection
+     * @param verticaQuery      The Vertica query, ordered by the key columns
+     * @param keyColumns        The columns identifying a row, present on both sides
+     * @param outputFileName    The workbook to write
+     * @return The counts of matching, missing, extra and differing rows
+     */
+    public static Summary compare(Connection oracleConnection, String oracleQuery, Connection verticaConnection, String verticaQuery,
+                                  List<String> keyColumns, String outputFileName) throws SQLException, IOException {
+        SideReader oracle = new SideReader("Oracle", oracleConnection, oracleQuery, keyColumns);
+        SideReader vertica = new SideReader("Vertica", verticaConnection, verticaQuery, keyColumns);
+        oracle.start();
+        vertica.start();
+
+        Workbook workbook = EvidenceWorkbooks.newWorkbook();
+        try {
+            List<String> oracleColumns = oracle.getColumnNames();
+            List<String> verticaColumns = vertica.getColumnNames();
+
+            int[] oracleKeys = new int[keyColumns.size()];
+            int[] verticaKeys = new int[keyColumns.size()];
+            for (int k = 0; k < keyColumns.size(); k++) {
+                oracleKeys[k] = indexOf(oracleColumns, keyColumns.get(k), "Oracle");
+                verticaKeys[k] = indexOf(verticaColumns, keyColumns.get(k), "Vertica");
+                // each database sorts by its own type, so the merge join only works if both sort alike
+                ValueKind oracleKind = oracle.getColumnKinds().get(oracleKeys[k]);
+                ValueKind verticaKind = vertica.getColumnKinds().get(verticaKeys[k]);
+                if (oracleKind != verticaKind) {
+                    throw new SQLException("Key column " + keyColumns.get(k) + " is " + oracleKind + " in Oracle but "
+                            + verticaKind + " in Vertica, the rows cannot be matched in key order");
+                }
+            }
+
+            List<String> commonColumns = new ArrayList<>();
+            for (String column : oracleColumns) {
+                if (verticaColumns.contains(column)) {
+                    commonColumns.add(column);
+                }
+            }
+            int[] oracleCommon = new int[commonColumns.size()];
+            int[] verticaCommon = new int[commonColumns.size()];
+            for (int c = 0; c < commonColumns.size(); c++) {
+                oracleCommon[c] = oracleColumns.indexOf(commonColumns.get(c));
+                verticaCommon[c] = verticaColumns.indexOf(commonColumns.get(c));
+            }
+            long[] mismatches = new long[commonColumns.size()];
+
+            Sheet sheet = workbook.createSheet("Differences");
+            ColumnWidthTracker columnWidths = new ColumnWidthTracker();
+            int rowNum = 0;
+            Row headerRow = sheet.createRow(rowNum++);
+            setCell(headerRow, 0, "Status", columnWidths);
+            for (int k = 0; k < keyColumns.size(); k++) {
+                setCell(headerRow, k + 1, keyColumns.get(k), columnWidths);
+            }
+            setCell(headerRow, keyColumns.size() + 1, "Column", columnWidths);
+            setCell(headerRow, keyColumns.size() + 2, "Oracle Value", columnWidths);
+            setCell(headerRow, keyColumns.size() + 3, "Vertica Value", columnWidths);
+
+            Summary summary = new Summary();
+            long detailRows = 0;
+            Object[] oracleRow = oracle.next();
+            Object[] verticaRow = vertica.next();
+            while (oracleRow != null || verticaRow != null) {
+                int order = oracleRow == null ? 1 : verticaRow == null ? -1
+                        : compareKeys(oracleRow, oracleKeys, verticaRow, verticaKeys);
+                if (order < 0) {
+                    summary.missing++;
+                    if (detailRows++ < MAX_DETAIL_ROWS) {
+                        writeKey(sheet.createRow(rowNum++), "MISSING IN VERTICA", oracleRow, oracleKeys, columnWidths);
+                    }
+                    oracleRow = oracle.next();
+                } else if (order > 0) {
+                    summary.extra++;
+                    if (detailRows++ < MAX_DETAIL_ROWS) {
+                        writeKey(sheet.createRow(rowNum++), "EXTRA IN VERTICA", verticaRow, verticaKeys, columnWidths);
+                    }
+                    verticaRow = vertica.next();
+                } else {
+                    boolean differs = false;
+                    for (int c = 0; c < commonColumns.size(); c++) {
+                        Object oracleValue = oracleRow[oracleCommon[c]];
+                        Object verticaValue = verticaRow[verticaCommon[c]];
+                        if (!Objects.equals(oracleValue, verticaValue)) {
+                            differs = true;
+                            mismatches[c]++;
+                            if (detailRows++ < MAX_DETAIL_ROWS) {
+                                Row row = sheet.createRow(rowNum++);
+                                writeKey(row, "DIFFERENT", oracleRow, oracleKeys, columnWidths);
+                                setCell(row, keyColumns.size() + 1, commonColumns.get(c), columnWidths);
+                                setCell(row, keyColumns.size() + 2, display(oracleValue), columnWidths);
+                                setCell(row, keyColumns.size() + 3, display(verticaValue), columnWidths);
+                            }
+                        }
+                    }
+                    if (differs) {
+                        summary.differing++;
+                    } else {
+                        summary.matched++;
+                    }
+                    oracleRow = oracle.next();
+                    verticaRow = vertica.next();
+                }
+            }
+            columnWidths.apply(sheet);
+
+            for (int c = 0; c < commonColumns.size(); c++) {
+                if (mismatches[c] > 0) {
+                    summary.columnMismatches.put(commonColumns.get(c), mismatches[c]);
+                }
+            }
+            List<String> oracleOnly = new ArrayList<>(oracleColumns);
+            oracleOnly.removeAll(verticaColumns);
+            List<String> verticaOnly = new ArrayList<>(verticaColumns);
+            verticaOnly.removeAll(oracleColumns);
+            addSummarySheet(workbook, summary, oracleQuery, verticaQuery, oracleOnly, verticaOnly, detailRows);
+
+            EvidenceWorkbooks.write(workbook, outputFileName);
+            return summary;
+        } finally {
+            oracle.cancel();
+            vertica.cancel();
+            EvidenceWorkbooks.close(workbook);
+        }
+    }
+
+    private static void addSummarySheet(Workbook workbook, Summary summary, String oracleQuery, String verticaQuery,
+                                        List<String> oracleOnly, List<String> verticaOnly, long detailRows) {
+        Sheet sheet = workbook.createSheet("Summary");
+        ColumnWidthTracker columnWidths = new ColumnWidthTracker();
+        int rowNum = 0;
+
+        String[][] lines = {
+                {"Oracle Query: ", oracleQuery},
+                {"Vertica Query: ", verticaQuery},
+                {"Matching Rows: ", String.valueOf(summary.matched)},
+                {"Missing In Vertica: ", String.valueOf(summary.missing)},
+                {"Extra In Vertica: ", String.valueOf(summary.extra)},
+                {"Differing Rows: ", String.valueOf(summary.differing)},
+                {"Columns Only In Oracle: ", String.join(", ", oracleOnly)},
+                {"Columns Only In Vertica: ", String.join(", ", verticaOnly)}
+        };
+        for (String[] line : lines) {
+            Row row = sheet.createRow(rowNum++);
+            setCell(row, 0, line[0], columnWidths);
+            row.createCell(1).setCellValue(line[1]);
+        }
+        if (detailRows > MAX_DETAIL_ROWS) {
+            Row row = sheet.createRow(rowNum++);
+            setCell(row, 0, "Note: ", columnWidths);
+            row.createCell(1).setCellValue("Only the first " + MAX_DETAIL_ROWS + " of " + detailRows + " differences are listed.");
+        }
+
+        rowNum++;
+        Row headerRow = sheet.createRow(rowNum++);
+        setCell(headerRow, 0, "Column", columnWidths);
+        setCell(headerRow, 1, "Mismatches", columnWidths);
+        for (Map.Entry<String, Long> mismatch : summary.columnMismatches.entrySet()) {
+            Row row = sheet.createRow(rowNum++);
+            setCell(row, 0, mismatch.getKey(), columnWidths);
+            row.createCell(1).setCellValue(mismatch.getValue());
+        }
+        columnWidths.apply(sheet);
+    }
+
+    private static void writeKey(Row row, String status, Object[] values, int[] keys, ColumnWidthTracker columnWidths) {
+        setCell(row, 0, status, columnWidths);
+        for (int k = 0; k < keys.length; k++) {
+            setCell(row, k + 1, display(values[keys[k]]), columnWidths);
+        }
+    }
+
+    private static void setCell(Row row, int column, String value, ColumnWidthTracker columnWidths) {
+        row.createCell(column).setCellValue(value);
+        columnWidths.track(column, value);
+    }
+
+    private static String display(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        return value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString();
+    }
+
+    private static int indexOf(List<String> columns, String column, String side) throws SQLException {
+        int index = columns.indexOf(column.toUpperCase());
+        if (index < 0) {
+            throw new SQLException("Key column " + column + " is not selected on the " + side + " side");
+        }
+        return index;
+    }
+
+    /**
+     * Orders keys the way both databases do with {@code NULLS LAST}. The key kinds were checked to match on both
+     * sides, so both values of a key column have the same type.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareKeys(Object[] left, int[] leftKeys, Object[] right, int[] rightKeys) {
+        for (int k = 0; k < leftKeys.length; k++) {
+            Object a = left[leftKeys[k]];
+            Object b = right[rightKeys[k]];
+            int order;
+            if (a == null || b == null) {
+                order = a == null ? (b == null ? 0 : 1) : -1;
+            } else {
+                order = ((Comparable) a).compareTo(b);
+            }
+            if (order != 0) {
+                return order;
+            }
+        }
+        return 0;
+    }
+
+    private static ValueKind kindOf(int columnType, String typeName) {
+        switch (columnType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return ValueKind.NUMBER;
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+            case ORACLE_TIMESTAMPTZ:
+            case ORACLE_TIMESTAMPLTZ:
+            case Types.DATE:
+            case Types.TIMESTAMP:
+                return ValueKind.TIMESTAMP;
+            default:
+                return ValueKind.TEXT;
+        }
+    }
+
+    /**
+     * @param key Whether the column is a key column, whose empty strings stay apart from NULL to keep the sort order
+     */
+    private static Normalizer normalizerFor(int columnType, String typeName, boolean key) {
+        switch (columnType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return (rs, column) -> {
+                    BigDecimal value = rs.getBigDecimal(column);
+                    return value == null ? null : value.stripTrailingZeros();
+                };
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+            case ORACLE_TIMESTAMPTZ:
+            case ORACLE_TIMESTAMPLTZ:
+                return RowDiffComparator::readUtcTimestamp;
+            case Types.DATE:
+            case Types.TIMESTAMP:
+                // Vertica reports TIMESTAMPTZ as a plain TIMESTAMP and only tells them apart by name
+                if (TimestampTypes.isZoned(typeName)) {
+                    return RowDiffComparator::readUtcTimestamp;
+                }
+                return (rs, column) -> {
+                    Timestamp value = rs.getTimestamp(column);
+                    return value == null ? null : value.toLocalDateTime().truncatedTo(ChronoUnit.MICROS);
+                };
+            case Types.CHAR:
+            case Types.NCHAR:
+                if (key) {
+                    return (rs, column) -> stripTrailingSpaces(rs.getString(column));
+                }
+                return (rs, column) -> emptyToNull(stripTrailingSpaces(rs.getString(column)));
+            default:
+                if (key) {
+                    return (rs, column) -> rs.getString(column);
+                }
+                return (rs, column) -> emptyToNull(rs.getString(column));
+        }
+    }
+
+    private static Object readUtcTimestamp(ResultSet rs, int column) throws SQLException {
+        Timestamp value = rs.getTimestamp(column, (Calendar) UTC.clone());
+        return value == null ? null
+                : LocalDateTime.ofInstant(value.toInstant(), ZoneOffset.UTC).truncatedTo(ChronoUnit.MICROS);
+    }
+
+    private static String stripTrailingSpaces(String value) {
+        if (value == null) {
+            return null;
+        }
+        int end = value.length();
+        while (end > 0 && value.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return value.substring(0, end);
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Runs one side's query on its own thread and hands the normalized rows over through a bounded queue.
+     */
+    private static class SideReader implements Runnable {
+        private static final Object[] END = new Object[0];
+
+        private final String side;
+        private final Connection connection;
+        private final String query;
+        private final Set<String> keyColumns = new HashSet<>();
+        private final BlockingQueue<Object[]> rows = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final CountDownLatch opened = new CountDownLatch(1);
+        private volatile List<String> columnNames;
+        private volatile List<ValueKind> columnKinds;
+        private volatile Exception error;
+        private volatile boolean cancelled;
+
+        SideReader(String side, Connection connection, String query, List<String> keyColumns) {
+            this.side = side;
+            this.connection = connection;
+            this.query = query;
+            keyColumns.forEach(column -> this.keyColumns.add(column.toUpperCase()));
+        }
+
+        void start() {
+            Thread thread = new Thread(this, "row-diff-" + side.toLowerCase());
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public void run() {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.setFetchSize(Config.getValidationFetchSize());
+                try (ResultSet rs = stmt.executeQuery(query)) {
+                    ResultSetMetaData rsmd = rs.getMetaData();
+                    int columnCount = rsmd.getColumnCount();
+                    List<String> names = new ArrayList<>(columnCount);
+                    List<ValueKind> kinds = new ArrayList<>(columnCount);
+                    Normalizer[] normalizers = new Normalizer[columnCount];
+                    for (int i = 1; i <= columnCount; i++) {
+                        String name = rsmd.getColumnName(i).toUpperCase();
+                        names.add(name);
+                        kinds.add(kindOf(rsmd.getColumnType(i), rsmd.getColumnTypeName(i)));
+                        normalizers[i - 1] = normalizerFor(rsmd.getColumnType(i), rsmd.getColumnTypeName(i), keyColumns.contains(name));
+                    }
+                    columnKinds = kinds;
+                    columnNames = names;
+                    opened.countDown();
+
+                    while (rs.next() && !cancelled) {
+                        Object[] row = new Object[columnCount];
+                        for (int i = 0; i < columnCount; i++) {
+                            row[i] = normalizers[i].read(rs, i + 1);
+                        }
+                        offer(row);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                error = e;
+            } catch (Exception e) {
+                error = e;
+            } finally {
+                opened.countDown();
+                try {
+                    offer(END);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private void offer(Object[] row) throws InterruptedException {
+            while (!cancelled && !rows.offer(row, 100, TimeUnit.MILLISECONDS)) {
+                // wait for the merge to catch up
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            rows.clear();
+        }
+
+        List<String> getColumnNames() throws SQLException, IOException {
+            try {
+                opened.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the " + side + " query");
+            }
+            if (columnNames == null) {
+                throw failure();
+            }
+            return columnNames;
+        }
+
+        /**
+         * @return The kind of every column, in the order of {@link #getColumnNames()}, which must be called first
+         */
+        List<ValueKind> getColumnKinds() {
+            return columnKinds;
+        }
+
+        Object[] next() throws SQLException, IOException {
+            Object[] row;
+            try {
+                row = rows.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while reading the " + side + " rows");
+            }
+            if (row == END) {
+                if (error != null) {
+                    throw failure();
+                }
+                return null;
+            }
+            return row;
+        }
+
+        private SQLException failure() {
+            LOGGER.log(Level.SEVERE, "Error reading " + side + " rows", error);
+            return new SQLException("Reading " + side + " rows failed: " + error.getMessage(), error);
+        }
+    }
+}
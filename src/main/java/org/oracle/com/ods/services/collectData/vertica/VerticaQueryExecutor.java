@@ -2,13 +2,20 @@ package org.oracle.com.ods.services.collectData.vertica;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
+import com.zaxxer.hikari.HikariDataSource;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.CellRangeAddress;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.oracle.com.ods.config.Config;
+import org.oracle.com.ods.db.RowCounter;
+import org.oracle.com.ods.services.collectData.avro.AvroEvidenceExporter;
+import org.oracle.com.ods.services.collectData.excel.ColumnWidthTracker;
+import org.oracle.com.ods.services.collectData.excel.EvidenceWorkbooks;
+import org.oracle.com.ods.services.collectData.parallel.EvidenceJob;
+import org.oracle.com.ods.services.collectData.parallel.EvidenceRows;
+import org.oracle.com.ods.services.collectData.parallel.ParallelEvidenceCollector;
 
 import java.io.*;
 import java.sql.*;
-import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -16,7 +23,6 @@ import java.util.logging.Logger;
 public class VerticaQueryExecutor {
 
     private static final Logger LOGGER = Logger.getLogger(VerticaQueryExecutor.class.getName());
-    private static final SimpleDateFormat DATE_FORMATTER = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
 
     public static Connection connectToVertica(String host, int port, String database, String user, String password) throws SQLException {
         String url = "jdbc:vertica://" + host + ":" + port + "/" + database;
@@ -38,31 +44,41 @@ public class VerticaQueryExecutor {
         }
     }
 
-    private static void executeQueryAndWriteExcel(Connection connection, String dataQuery, String countQuery, String schemaName, String tableName, String outputFileName) {
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(dataQuery)) {
+    public static HikariDataSource createConnectionPool(Map<String, Object> config, int size) {
+        String url = "jdbc:vertica://" + config.get("host") + ":" + ((Double) config.get("port")).intValue() + "/" + config.get("database");
+        Properties props = new Properties();
+        props.put("user", config.get("user"));
+        props.put("password", config.get("password"));
+        return ParallelEvidenceCollector.newConnectionPool("vertica-evidence", url, props, size);
+    }
 
-            ResultSetMetaData rsmd = rs.getMetaData();
+    private static void writeExcel(EvidenceJob job, EvidenceRows rows) throws IOException {
+        String[] columnNames = rows.getColumnNames();
 
-            Workbook workbook = new XSSFWorkbook();
+        Workbook workbook = EvidenceWorkbooks.newWorkbook();
+        try {
             Sheet sheet = workbook.createSheet("Data");
+            ColumnWidthTracker columnWidths = new ColumnWidthTracker();
 
             int rowNum = 0;
             Row metadataRow1 = sheet.createRow(rowNum++);
             metadataRow1.createCell(0).setCellValue("Schema Name: ");
-            metadataRow1.createCell(1).setCellValue(schemaName);
+            metadataRow1.createCell(1).setCellValue(job.getSchemaName());
+            columnWidths.track(1, job.getSchemaName());
 
             Row metadataRow2 = sheet.createRow(rowNum++);
             metadataRow2.createCell(0).setCellValue("Table Name: ");
-            metadataRow2.createCell(1).setCellValue(tableName);
+            metadataRow2.createCell(1).setCellValue(job.getTableName());
+            columnWidths.track(1, job.getTableName());
 
             Row metadataRow3 = sheet.createRow(rowNum++);
             metadataRow3.createCell(0).setCellValue("Query Executed: ");
             Cell queryCell = metadataRow3.createCell(1);
-            queryCell.setCellValue(dataQuery);
+            queryCell.setCellValue(job.getDataQuery());
+            columnWidths.track(0, "Query Executed: ");
 
-            if (rsmd.getColumnCount() > 1) {
-                int endColumn = rsmd.getColumnCount() - 1;
+            if (columnNames.length > 1) {
+                int endColumn = columnNames.length - 1;
                 if (endColumn > 1) {
                     sheet.addMergedRegion(new CellRangeAddress(metadataRow3.getRowNum(), metadataRow3.getRowNum(), 1, endColumn));
                 } else {
@@ -73,110 +89,101 @@ public class VerticaQueryExecutor {
             rowNum += 2;
 
             Row headerRow = sheet.createRow(rowNum++);
-            int columnCount = rsmd.getColumnCount();
-            for (int i = 1; i <= columnCount; i++) {
-                headerRow.createCell(i - 1).setCellValue(rsmd.getColumnName(i));
+            for (int i = 0; i < columnNames.length; i++) {
+                headerRow.createCell(i).setCellValue(columnNames[i]);
+                columnWidths.track(i, columnNames[i]);
             }
 
-            while (rs.next()) {
+            String[] values;
+            while ((values = rows.next()) != null) {
                 Row row = sheet.createRow(rowNum++);
-                for (int i = 1; i <= columnCount; i++) {
-                    Cell cell = row.createCell(i - 1);
-                    int columnType = rsmd.getColumnType(i);
-
-                    if (columnType == Types.TIMESTAMP || columnType == Types.DATE) {
-                        Timestamp timestamp = rs.getTimestamp(i);
-                        if (timestamp != null) {
-                            cell.setCellValue(DATE_FORMATTER.format(timestamp));
-                        } else {
-                            cell.setCellValue("null");
-                        }
-                    } else {
-                        String value = rs.getString(i);
-                        if (value != null) {
-                            cell.setCellValue(value);
-                        } else {
-                            cell.setCellValue("null");
-                        }
-                    }
+                for (int i = 0; i < values.length; i++) {
+                    row.createCell(i).setCellValue(values[i]);
+                    columnWidths.track(i, values[i]);
                 }
             }
 
             rowNum += 2;
 
-            if (countQuery != null) {
-                ResultSet countRs = stmt.executeQuery(countQuery);
-                if (countRs.next()) {
-                    Row countRow = sheet.createRow(rowNum++);
-                    countRow.createCell(0).setCellValue("Total Row Count: ");
-                    countRow.createCell(1).setCellValue(countRs.getString(1));
-                }
+            if (rows.getTotalRowCount() != null) {
+                Row countRow = sheet.createRow(rowNum++);
+                countRow.createCell(0).setCellValue("Total Row Count: ");
+                countRow.createCell(1).setCellValue(rows.getTotalRowCount());
+                columnWidths.track(0, "Total Row Count: ");
+                columnWidths.track(1, rows.getTotalRowCount());
             }
 
-            for (int i = 0; i < columnCount; i++) {
-                sheet.autoSizeColumn(i);
-            }
+            columnWidths.apply(sheet);
 
-            try (FileOutputStream fileOut = new FileOutputStream(outputFileName)) {
-                workbook.write(fileOut);
-            }
-            workbook.close();
-
-        } catch (SQLException | IOException e) {
-            LOGGER.log(Level.SEVERE, "Error executing query or writing Excel file", e);
+            EvidenceWorkbooks.write(workbook, job.getOutputFileName());
+        } finally {
+            EvidenceWorkbooks.close(workbook);
         }
     }
 
+    /**
+     * Collects the evidence of every (table, schema) pair in {@code tables.json}, or of one custom query,
+     * as Excel workbooks or as Avro container files written by {@link AvroEvidenceExporter}.
+     * The jobs run concurrently on {@code evidence.query.threads} pooled connections and
+     * {@code evidence.writer.threads} workbook writers; see {@link ParallelEvidenceCollector}.
+     */
     public static void main(String[] args) {
         try {
             Map<String, Object> config = loadConfig();
             List<Map<String, Object>> tables = loadTables();
 
-            try (Connection connection = connectToVertica(
-                    (String) config.get("host"),
-                    ((Double) config.get("port")).intValue(),
-                    (String) config.get("database"),
-                    (String) config.get("user"),
-                    (String) config.get("password"))) {
-
-                Scanner scanner = new Scanner(System.in);
-                System.out.print("Please provide the output directory path: ");
-                String outputDir = scanner.nextLine();
-                if (!outputDir.endsWith(File.separator)) {
-                    outputDir += File.separator;
-                }
+            Scanner scanner = new Scanner(System.in);
+            System.out.print("Please provide the output directory path: ");
+            String outputDir = scanner.nextLine();
+            if (!outputDir.endsWith(File.separator)) {
+                outputDir += File.separator;
+            }
 
-                System.out.print("Do you want to execute a custom query? (yes/no): ");
-                String customQueryOption = scanner.nextLine();
-
-                if (customQueryOption.equalsIgnoreCase("yes")) {
-                    System.out.print("Enter your custom query: ");
-                    String customQuery = scanner.nextLine();
-                    System.out.print("Enter the schema name for the custom query: ");
-                    String schemaName = scanner.nextLine();
-                    System.out.print("Enter the table name for the custom query: ");
-                    String tableName = scanner.nextLine();
-                    String outputFileName = outputDir + schemaName + "_" + tableName + "_custom_query_output.xlsx";
-                    executeQueryAndWriteExcel(connection, customQuery, null, schemaName, tableName, outputFileName);
-                } else {
-                    // Default Query Execution
-                    for (Map<String, Object> table : tables) {
-                        String tableName = (String) table.get("name");
-                        String columns = (String) table.get("columns");
-                        List<String> schemas = (List<String>) table.get("schemas");
-
-                        for (String schema : schemas) {
-                            String defaultQuery = "SELECT " + columns + " FROM " + schema + "." + tableName + " WHERE UPDT_CNT=150";
-                            String countQuery = "SELECT COUNT(*) FROM " + schema + "." + tableName;
-
-                            String outputFileName = outputDir + schema + "_" + tableName + "_output.xlsx";
-                            System.out.println(defaultQuery);
-                            executeQueryAndWriteExcel(connection, defaultQuery, countQuery, schema, tableName, outputFileName);
-                        }
+            System.out.print("Output format? (excel/avro): ");
+            boolean avro = scanner.nextLine().trim().equalsIgnoreCase("avro");
+            String extension = avro ? ".avro" : ".xlsx";
+
+            System.out.print("Do you want to execute a custom query? (yes/no): ");
+            String customQueryOption = scanner.nextLine();
+
+            List<EvidenceJob> jobs = new ArrayList<>();
+            if (customQueryOption.equalsIgnoreCase("yes")) {
+                System.out.print("Enter your custom query: ");
+                String customQuery = scanner.nextLine();
+                System.out.print("Enter the schema name for the custom query: ");
+                String schemaName = scanner.nextLine();
+                System.out.print("Enter the table name for the custom query: ");
+                String tableName = scanner.nextLine();
+                String outputFileName = outputDir + schemaName + "_" + tableName + "_custom_query_output" + extension;
+                jobs.add(new EvidenceJob(schemaName, tableName, customQuery, null, outputFileName));
+            } else {
+                // Default Query Execution
+                for (Map<String, Object> table : tables) {
+                    String tableName = (String) table.get("name");
+                    String columns = (String) table.get("columns");
+                    List<String> schemas = (List<String>) table.get("schemas");
+
+                    for (String schema : schemas) {
+                        String defaultQuery = "SELECT " + columns + " FROM " + schema + "." + tableName + " WHERE UPDT_CNT=150";
+                        String countQuery = "SELECT COUNT(*) FROM " + schema + "." + tableName;
+
+                        String outputFileName = outputDir + schema + "_" + tableName + "_output" + extension;
+                        System.out.println(defaultQuery);
+                        jobs.add(new EvidenceJob(schema, tableName, defaultQuery, countQuery, outputFileName));
                     }
                 }
+            }
 
-            } catch (SQLException e) {
+            int queryThreads = Config.getEvidenceQueryThreads();
+            long start = System.currentTimeMillis();
+            try (HikariDataSource dataSource = createConnectionPool(config, queryThreads)) {
+                jobs = ParallelEvidenceCollector.countRows(dataSource, jobs, RowCounter.Dialect.VERTICA, RowCounter.getConfiguredStrategy());
+                List<ParallelEvidenceCollector.JobTiming> timings = avro
+                        ? ParallelEvidenceCollector.run(dataSource, jobs, queryThreads, AvroEvidenceExporter::export)
+                        : ParallelEvidenceCollector.run(dataSource, jobs, queryThreads, Config.getEvidenceWriterThreads(),
+                        Config.getEvidenceRowBufferSize(), VerticaQueryExecutor::writeExcel);
+                ParallelEvidenceCollector.log(timings, System.currentTimeMillis() - start);
+            } catch (RuntimeException e) {
                 LOGGER.log(Level.SEVERE, "Database connection error", e);
             }
 
@@ -184,4 +191,4 @@ public class VerticaQueryExecutor {
             LOGGER.log(Level.SEVERE, "Error loading configuration or tables", e);
         }
     }
-}
\ No newline at end of file
+}
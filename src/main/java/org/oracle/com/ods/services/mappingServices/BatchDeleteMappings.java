@@ -1,24 +1,35 @@
 package org.oracle.com.ods.services.mappingServices;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import okhttp3.Response;
 import org.oracle.com.ods.config.Config;
+import org.oracle.com.ods.services.utility.Environment;
+import org.oracle.com.ods.services.utility.EnvironmentFanOut;
+import org.oracle.com.ods.services.utility.EnvironmentRegistry;
 import org.oracle.com.ods.services.utility.HttpClientHelper;
-import org.oracle.com.ods.services.utility.SchemaType;
+import org.oracle.com.ods.services.utility.RateLimiter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * This class provides functionality to delete a latest version of a mapping in the development or staging environment.
+ * This class provides functionality to delete a latest version of a mapping in any of the configured environments,
+ * running the selected environments concurrently.
  * The mapping is identified by its ID and version number.
+ * In purge mode it instead deletes every version selected by a retention policy, concurrently and rate limited,
+ * once the planned deletes have been shown and confirmed.
  */
 public class BatchDeleteMappings {
 
     private static final Logger logger = LoggerFactory.getLogger(BatchDeleteMappings.class);
+    private static final String KEEP_LATEST = "keep-latest";
+    private static final String BELOW_VERSION = "below-version";
 
     /**
      * Main method that prompts the user for a mapping ID
@@ -38,49 +49,117 @@ public class BatchDeleteMappings {
             return;
         }
 
-        System.out.print("Which service to post the model mapping? (dev, staging, both): ");
-        String serviceChoice = scanner.nextLine().trim().toLowerCase();
-
-        boolean postToDev = serviceChoice.equals("dev") || serviceChoice.equals("both");
-        boolean postToStaging = serviceChoice.equals("staging") || serviceChoice.equals("both");
+        System.out.print("Which environments to delete the model mapping from? (" + String.join(", ", EnvironmentRegistry.getNames()) + ", all; comma-separated): ");
+        List<Environment> environments;
+        try {
+            environments = EnvironmentRegistry.select(scanner.nextLine());
+        } catch (IllegalArgumentException e) {
+            logger.error("{}. Exiting...", e.getMessage());
+            return;
+        }
 
         List<String> mappingIds = Arrays.asList(mappingIdsInput.split(","));
         mappingIds.replaceAll(String::trim);
 
-        if (postToDev) {
-            String devToken = HttpClientHelper.getDevOAuthToken();
-            processMappings(mappingIds, devToken, "dev");
+        System.out.print("Delete mode? (latest, purge): ");
+        String mode = scanner.nextLine().trim().toLowerCase();
+        if (!mode.equals("latest") && !mode.equals("purge")) {
+            logger.error("Unknown delete mode '{}', expected latest or purge. Exiting...", mode);
+            return;
+        }
+
+        String purgePolicy = null;
+        int purgeValue = 0;
+        if (mode.equals("purge")) {
+            System.out.print("Purge policy? (keep-latest <N>, below-version <V>): ");
+            String[] policyInput = scanner.nextLine().trim().toLowerCase().split("\\s+");
+            if (policyInput.length != 2 || !(policyInput[0].equals(KEEP_LATEST) || policyInput[0].equals(BELOW_VERSION))) {
+                logger.error("Unknown purge policy. Exiting...");
+                return;
+            }
+            purgePolicy = policyInput[0];
+            try {
+                purgeValue = Integer.parseInt(policyInput[1]);
+            } catch (NumberFormatException e) {
+                logger.error("{} needs a whole number, got '{}'. Exiting...", purgePolicy, policyInput[1]);
+                return;
+            }
+            // keep-latest 0 would delete every version, including the latest one
+            if (purgeValue < 1) {
+                logger.error("{} needs a number of at least 1, got {}. Exiting...", purgePolicy, purgeValue);
+                return;
+            }
         }
 
-        if (postToStaging) {
-            String stagingToken = HttpClientHelper.getStagingOAuthToken();
-            processMappings(mappingIds, stagingToken, "staging");
+        if (purgePolicy == null) {
+            Map<String, EnvironmentFanOut.Result<Void>> results = EnvironmentFanOut.run(environments, environment -> {
+                processMappings(mappingIds, environment);
+                return null;
+            });
+            EnvironmentFanOut.log(logger, "Deleting model mappings", results);
+            return;
         }
+
+        String policy = purgePolicy;
+        int value = purgeValue;
+        Map<String, EnvironmentFanOut.Result<List<MappingVersion>>> plans = EnvironmentFanOut.run(environments,
+                environment -> planPurge(mappingIds, environment, policy, value));
+        EnvironmentFanOut.log(logger, "Planning the purge", plans);
+
+        List<Environment> targets = new ArrayList<>();
+        int total = 0;
+        for (Environment environment : environments) {
+            EnvironmentFanOut.Result<List<MappingVersion>> plan = plans.get(environment.getName());
+            if (plan.isSuccess() && !plan.getValue().isEmpty()) {
+                System.out.println("Versions to delete in " + environment.getName() + " (" + plan.getValue().size() + "):");
+                for (MappingVersion version : plan.getValue()) {
+                    System.out.println("  " + version);
+                }
+                targets.add(environment);
+                total += plan.getValue().size();
+            }
+        }
+        if (total == 0) {
+            logger.info("No versions matched the purge policy. Nothing was deleted.");
+            return;
+        }
+
+        System.out.print("Delete " + total + " mapping versions? (yes/no): ");
+        if (!scanner.nextLine().trim().equalsIgnoreCase("yes")) {
+            logger.info("Nothing was deleted.");
+            return;
+        }
+
+        Map<String, EnvironmentFanOut.Result<Void>> results = EnvironmentFanOut.run(targets, environment -> {
+            purgeMappings(plans.get(environment.getName()).getValue(), environment);
+            return null;
+        });
+        EnvironmentFanOut.log(logger, "Purging model mappings", results);
     }
 
     /**
-     * Process mappings for the specified environment.
+     * Process mappings for the specified environment. All mappings of the batch are listed
+     * once up front and both the latest version and its internal id are read from that listing.
      *
-     * @param mappingIds The list of mapping IDs
-     * @param token      The OAuth token for authentication
-     * @param environment The environment (dev or staging)
+     * @param mappingIds  The list of mapping IDs
+     * @param environment The environment to delete from
      * @throws IOException If there is an issue with the HTTP request
      */
-    private static void processMappings(List<String> mappingIds, String token, String environment) throws IOException {
-        String baseUrl = environment.equals("dev") ? Config.getDevModelMappingUrl() : Config.getStagingModelMappingUrl();
-        SchemaType schemaType = environment.equals("dev") ? SchemaType.VERTICA : SchemaType.SNOWFLAKE;
+    private static void processMappings(List<String> mappingIds, Environment environment) throws IOException {
+        MappingCatalog catalog = new MappingCatalog(environment);
+        catalog.prefetch(mappingIds);
 
         for (String mappingId : mappingIds) {
             if (mappingId.isEmpty()) continue;
 
-            String latestVersion = getLatestVersionForMapping(mappingId, token, baseUrl);
+            MappingVersion latestVersion = getLatestVersionForMapping(mappingId, catalog);
 
             if (latestVersion != null) {
-                String extractedId = HttpClientHelper.extractIdForMapping(mappingId, latestVersion, token, schemaType);
-                if (extractedId != null && !extractedId.trim().isEmpty()) {
-                    deleteMapping(mappingId, latestVersion, extractedId, token, baseUrl);
+                if (latestVersion.getId() != null && !latestVersion.getId().trim().isEmpty()) {
+                    deleteMapping(mappingId, latestVersion.getVersion(), latestVersion.getId(), environment);
+                    catalog.invalidate(mappingId);
                 } else {
-                    logger.error("Couldn't find the record for mapping ID {} and version {}. Skipping...", mappingId, latestVersion);
+                    logger.error("Couldn't find the record for mapping ID {} and version {}. Skipping...", mappingId, latestVersion.getVersion());
                 }
             } else {
                 logger.error("Failed to fetch the latest version for mapping ID {}. Skipping...", mappingId);
@@ -89,48 +168,106 @@ public class BatchDeleteMappings {
     }
 
     /**
-     * Fetch the latest version of the mapping for the given mapping ID.
+     * Plans the purge of old versions of the given mappings from a single listing of the batch.
      *
-     * @param mappingId The mapping ID
-     * @param token     OAuth token for authentication
-     * @param baseUrl   The base URL of the environment (dev or staging)
-     * @return The latest version as a String, or null if not found
+     * @param mappingIds  The list of mapping IDs
+     * @param environment The environment to purge
+     * @param policy      Either keep-latest, keeping the N highest versions, or below-version, deleting versions lower than V
+     * @param value       N or V of the policy, at least 1
+     * @return The versions to delete
      */
-    private static String getLatestVersionForMapping(String mappingId, String token, String baseUrl) {
-        try {
-            List<String> versions = getMappingVersions(mappingId, token, baseUrl);
+    private static List<MappingVersion> planPurge(List<String> mappingIds, Environment environment, String policy, int value) {
+        MappingCatalog catalog = new MappingCatalog(environment);
+        catalog.prefetch(mappingIds);
+
+        List<MappingVersion> plan = new ArrayList<>();
+        for (String mappingId : mappingIds) {
+            if (mappingId.isEmpty()) continue;
 
-            if (!versions.isEmpty()) {
-                OptionalInt maxVersion = versions.stream()
-                        .mapToInt(Integer::parseInt)
-                        .max();
+            try {
+                List<MappingVersion> versions = new ArrayList<>(catalog.getVersions(mappingId));
+                versions.sort(Comparator.comparingInt(MappingVersion::getVersionNumber).reversed());
 
-                return String.valueOf(maxVersion.getAsInt());
+                for (int i = 0; i < versions.size(); i++) {
+                    MappingVersion version = versions.get(i);
+                    boolean purge = policy.equals(KEEP_LATEST) ? i >= value : version.getVersionNumber() < value;
+                    if (!purge) {
+                        continue;
+                    }
+                    if (version.getId() != null && !version.getId().trim().isEmpty()) {
+                        plan.add(version);
+                    } else {
+                        logger.error("Couldn't find the record for mapping ID {} and version {}. Skipping...", mappingId, version.getVersion());
+                    }
+                }
+            } catch (IOException e) {
+                logger.error("Error fetching the versions for mapping ID {}: {}", mappingId, e.getMessage());
+            } catch (NumberFormatException e) {
+                // the versions cannot be ranked, so none of them is purged
+                logger.error("Mapping ID {} has a non-numeric version ({}). Skipping...", mappingId, e.getMessage());
             }
-        } catch (Exception e) {
-            logger.error("Error fetching the latest version for mapping ID {}: {}", mappingId, e.getMessage());
         }
-        return null;
-    }
-
-    private static List<String> getMappingVersions(String mappingId, String token, String baseUrl) throws IOException {
-        boolean useProxy = !baseUrl.equals(Config.getDevModelMappingUrl());
-        String jsonResponse = HttpClientHelper.get(baseUrl, Map.of("mapping_id", mappingId), token, useProxy);
 
-        ObjectMapper objectMapper = new ObjectMapper();
-        JsonNode rootNode = objectMapper.readTree(jsonResponse);
+        logger.info("Planned {} deletes in {} environment", plan.size(), environment);
+        return plan;
+    }
 
-        JsonNode itemsNode = rootNode.get("items");
+    /**
+     * Deletes the planned versions concurrently under the configured rate limit.
+     *
+     * @param plan        The versions to delete, as returned by {@link #planPurge}
+     * @param environment The environment to purge
+     */
+    private static void purgeMappings(List<MappingVersion> plan, Environment environment) {
+        RateLimiter rateLimiter = new RateLimiter(Config.getModelMappingDeleteRatePerSecond());
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Config.getModelMappingFetchThreads());
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (MappingVersion version : plan) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        rateLimiter.acquire();
+                        deleteMapping(version.getMappingId(), version.getVersion(), version.getId(), environment);
+                    } catch (IOException e) {
+                        failed.incrementAndGet();
+                        logger.error("Failed to delete {}: {}", version, e.getMessage());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        failed.incrementAndGet();
+                    }
+                    logger.info("Purge progress: {}/{}", completed.incrementAndGet(), plan.size());
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.error("Purge task failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
 
-        List<String> versions = new ArrayList<>();
+        logger.info("Purge finished in {} environment: {} deleted, {} failed", environment, plan.size() - failed.get(), failed.get());
+    }
 
-        if (itemsNode.isArray()) {
-            for (JsonNode itemNode : itemsNode) {
-                String version = itemNode.get("version").asText();
-                versions.add(version);
-            }
+    /**
+     * Fetch the latest version of the mapping for the given mapping ID.
+     *
+     * @param mappingId The mapping ID
+     * @param catalog   The catalog of the environment
+     * @return The latest version, or null if not found
+     */
+    private static MappingVersion getLatestVersionForMapping(String mappingId, MappingCatalog catalog) {
+        try {
+            return catalog.getLatest(mappingId);
+        } catch (Exception e) {
+            logger.error("Error fetching the latest version for mapping ID {}: {}", mappingId, e.getMessage());
         }
-        return versions;
+        return null;
     }
 
     /**
@@ -139,17 +276,13 @@ public class BatchDeleteMappings {
      * @param mappingId     The mapping ID
      * @param version       The version to be deleted
      * @param extractedId   The internal ID for deletion
-     * @param token         OAuth token for authentication
-     * @param baseUrl       The base URL of the environment (dev or staging)
+     * @param environment   The environment to delete from
      * @throws IOException  If an issue occurs with the deletion request
      */
-    private static void deleteMapping(String mappingId, String version, String extractedId, String token, String baseUrl) throws IOException {
-        boolean useProxy = !baseUrl.equals(Config.getDevModelMappingUrl());
-        String env = useProxy ? "Staging" : "Dev";
-
-        try (Response response = HttpClientHelper.delete(baseUrl, extractedId, token, useProxy)) {
+    private static void deleteMapping(String mappingId, String version, String extractedId, Environment environment) throws IOException {
+        try (Response response = HttpClientHelper.delete(environment, environment.getModelMappingUrl(), extractedId)) {
             if (response.code() == 204) {
-                logger.info("Mapping ID {} with version {} deleted successfully from {} environment", mappingId, version, env);
+                logger.info("Mapping ID {} with version {} deleted successfully from {} environment", mappingId, version, environment.getName());
             } else {
                 String responseBody = response.body() != null ? response.body().string() : "No response body";
                 throw new IOException("Failed to delete schema. Unexpected code " + response.code() + ": " + response.message() + " - " + responseBody);
@@ -1,30 +1,30 @@
 package org.oracle.com.ods.services.mappingServices;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 import org.oracle.com.ods.config.Config;
+import org.oracle.com.ods.services.mappingServices.MappingPostReport.Outcome;
+import org.oracle.com.ods.services.utility.Environment;
+import org.oracle.com.ods.services.utility.EnvironmentFanOut;
+import org.oracle.com.ods.services.utility.EnvironmentRegistry;
 import org.oracle.com.ods.services.utility.HttpClientHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * This class provides functionality to post the model mappings in the development or staging environment services
- * for a given list of mappings ids.
+ * This class provides functionality to post the model mappings to any of the configured environments
+ * for a given list of mappings ids. The selected environments are posted to concurrently.
  * The mapping is identified by its ID and version number.
+ * All mappings are validated locally before any network call, then the content hash of each local mapping
+ * is compared with the latest remote version and only mappings that actually changed are posted.
  */
 public class BatchPostMappings {
     private static final Logger logger = LoggerFactory.getLogger(BatchPostMappings.class);
 
-    private static boolean postToDev;
-    private static boolean postToStaging;
-    private static final ObjectMapper objectMapper = new ObjectMapper();
-
     public static void main(String[] args) throws IOException {
         Scanner scanner = new Scanner(System.in);
         String parentDirectory = Config.getModelMappingConfigPath();
@@ -32,81 +32,95 @@ public class BatchPostMappings {
         System.out.print("Enter the mapping ids (comma-separated): ");
         String mappingIdsInput = scanner.nextLine();
 
-        System.out.print("Which service to post the model mapping? (dev, staging, both): ");
-        String serviceChoice = scanner.nextLine().trim().toLowerCase();
-
-         postToDev = serviceChoice.equals("dev") || serviceChoice.equals("both");
-         postToStaging = serviceChoice.equals("staging") || serviceChoice.equals("both");
+        System.out.print("Which environments to post the model mapping? (" + String.join(", ", EnvironmentRegistry.getNames()) + ", all; comma-separated): ");
+        List<Environment> environments;
+        try {
+            environments = EnvironmentRegistry.select(scanner.nextLine());
+        } catch (IllegalArgumentException e) {
+            logger.error("{}. Model mapping was not posted.", e.getMessage());
+            return;
+        }
+        if (environments.isEmpty()) {
+            logger.warn("No environment selected. Model mapping was not posted.");
+            return;
+        }
 
+        Map<String, File> mappingFiles = new LinkedHashMap<>();
         String[] mappingIds = mappingIdsInput.split(",");
         for (String mappingId : mappingIds) {
-            processAndPostMapping(parentDirectory, mappingId.trim());
+            File mappingFile = new File(parentDirectory + "/" + mappingId.trim() + ".json");
+            if (!mappingFile.exists()) {
+                System.out.println("Mapping file not found for ID: " + mappingId.trim());
+                continue;
+            }
+            mappingFiles.put(mappingId.trim(), mappingFile);
         }
-    }
 
-    /**
-     * Reads the model mappings from the given path for the given mappingId.
-     *
-     * @param parentDirectory The Path for model mappings
-     * @param mappingId      The mapping id to be processed
-     * @throws IOException If there is an issue with the HTTP request
-     */
-    private static void processAndPostMapping(String parentDirectory, String mappingId) throws IOException {
-        File mappingFile = new File(parentDirectory + "/" + mappingId + ".json");
-        if (!mappingFile.exists()) {
-            System.out.println("Mapping file not found for ID: " + mappingId);
+        Map<String, List<String>> validationErrors = MappingValidator.validateFiles(mappingFiles.values());
+        if (!validationErrors.isEmpty()) {
+            MappingValidator.logErrors(validationErrors);
+            logger.error("{} mapping files failed validation. Nothing was posted.", validationErrors.size());
             return;
         }
 
-        String fileContent = new String(Files.readAllBytes(Paths.get(mappingFile.getPath())));
-        JsonNode jsonNode = objectMapper.readTree(fileContent);
-
-        String version = jsonNode.get("version").asText();
-        String entityType = jsonNode.get("recordType").get("entityType").asText();
-        String recordFormat = jsonNode.get("recordType").get("format").asText();
-
-        String compressedContent = fileContent.replaceAll("\\s+", "");
+        Map<String, MappingDocument> mappings = new LinkedHashMap<>();
+        for (Map.Entry<String, File> mappingFile : mappingFiles.entrySet()) {
+            mappings.put(mappingFile.getKey(), MappingDocument.read(mappingFile.getKey(), mappingFile.getValue()));
+        }
 
-        ObjectNode jsonBody = objectMapper.createObjectNode();
+        MappingPostReport report = new MappingPostReport();
 
-        jsonBody.put("mapping_id", mappingId);
-        jsonBody.put("version", version);
-        jsonBody.put("record_format", recordFormat);
-        jsonBody.put("entity_type", entityType);
-        jsonBody.put("model_mapping_document", compressedContent);
+        Map<String, EnvironmentFanOut.Result<Void>> results = EnvironmentFanOut.run(environments, environment -> {
+            postChangedMappings(mappings, environment, report);
+            return null;
+        });
 
-        postModelMapping(jsonBody);
-        System.out.println(jsonBody);
+        report.log(logger);
+        EnvironmentFanOut.log(logger, "Posting model mappings", results);
+        logger.info(HttpClientHelper.getCacheStatistics());
     }
 
     /**
-     * Posts the model mappings for the given mappingId into the chosen environment.
+     * Compares every local mapping with the latest version stored in the given environment and posts
+     * only those whose content changed. The remote versions of the whole batch are listed up front.
      *
-     * @param postBody The Body for model mappings to be posted
+     * @param mappings    The local mappings, keyed by mapping id
+     * @param target      The environment to post to
+     * @param report      The report receiving the outcome of every mapping
      */
-    private static void postModelMapping(ObjectNode postBody) {
-        if (postToDev) {
-            try {
-                String token = HttpClientHelper.getDevOAuthToken();
-                HttpClientHelper.post(Config.getDevModelMappingUrl(), postBody, token, false);
-                logger.info("Model mapping posted successfully to Vertica.");
-            } catch (IOException e) {
-                logger.error("Failed to post model mapping to Vertica", e);
-            }
-        }
+    private static void postChangedMappings(Map<String, MappingDocument> mappings, Environment target, MappingPostReport report) {
+        String environment = target.getName();
+
+        MappingCatalog catalog = new MappingCatalog(target);
+        catalog.prefetch(mappings.keySet());
+
+        for (Map.Entry<String, MappingDocument> entry : mappings.entrySet()) {
+            String mappingId = entry.getKey();
+            MappingDocument mapping = entry.getValue();
+            String localVersion = mapping.getVersion();
 
-        if (postToStaging) {
             try {
-                String token = HttpClientHelper.getStagingOAuthToken();
-                HttpClientHelper.post(Config.getStagingModelMappingUrl(), postBody, token, true);
-                logger.info("Model mapping posted successfully to Snowflake.");
-            } catch (IOException e) {
-                logger.error("Failed to post model mapping to Snowflake", e);
+                MappingVersion latest = catalog.getLatest(mappingId);
+                String localHash = mapping.getContentHash();
+
+                if (latest != null && localHash.equals(latest.getContentHash())) {
+                    report.record(environment, mappingId, Outcome.SKIPPED, "unchanged since version " + latest.getVersion());
+                    continue;
+                }
+                if (latest != null && Integer.parseInt(localVersion) <= latest.getVersionNumber()) {
+                    report.record(environment, mappingId, Outcome.CONFLICTED,
+                            "local version " + localVersion + " differs from remote latest version " + latest.getVersion());
+                    continue;
+                }
+
+                HttpClientHelper.post(target, catalog.getBaseUrl(), mapping.toRequestBody());
+                catalog.invalidate(mappingId);
+                logger.info("Model mapping {} posted successfully to {}.", mappingId, environment);
+                report.record(environment, mappingId, Outcome.POSTED, "version " + localVersion);
+            } catch (IOException | NumberFormatException e) {
+                logger.error("Failed to post model mapping {} to {}", mappingId, environment, e);
+                report.record(environment, mappingId, Outcome.FAILED, e.getMessage());
             }
         }
-
-        if (!postToDev && !postToStaging) {
-            logger.warn("No valid service selected. Model mapping was not posted.");
-        }
     }
 }
@@ -0,0 +1,193 @@
+package org.oracle.com.ods.services.mappingServices;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.oracle.com.ods.config.Config;
+import org.oracle.com.ods.services.utility.Environment;
+import org.oracle.com.ods.services.utility.EnvironmentRegistry;
+import org.oracle.com.ods.services.utility.HttpClientHelper;
+import org.oracle.com.ods.services.utility.JsonResponseHandlers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * This class exports the model mappings of one configured environment into a single
+ * compressed zip archive. Every stored mapping version becomes one {@code <mapping_id>/<version>.json}
+ * entry and an {@code index.json} entry lists the exported versions.
+ * Either the whole listing is paged through concurrently, or only the given mapping ids are fetched in parallel.
+ */
+public class ExportMappings {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportMappings.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Main method that prompts the user for the environment, an optional list of mapping ids and
+     * the archive path, then writes the archive.
+     *
+     * @param args Command line arguments (not used)
+     * @throws IOException If the archive cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        Scanner scanner = new Scanner(System.in);
+
+        System.out.print("Which environment to export the model mappings from? (" + String.join(", ", EnvironmentRegistry.getNames()) + "): ");
+        Environment environment;
+        try {
+            environment = EnvironmentRegistry.get(scanner.nextLine());
+        } catch (IllegalArgumentException e) {
+            logger.error("{}. Exiting...", e.getMessage());
+            return;
+        }
+
+        System.out.print("Enter the mapping ids to export (comma-separated, empty for all): ");
+        String mappingIdsInput = scanner.nextLine().trim();
+
+        System.out.print("Enter the archive file path (.zip): ");
+        String archivePath = scanner.nextLine().trim();
+        if (archivePath.isEmpty()) {
+            logger.error("Archive file path cannot be empty. Exiting...");
+            return;
+        }
+
+        // a repeated id would produce duplicate zip entries
+        Set<String> mappingIds = new LinkedHashSet<>();
+        for (String mappingId : mappingIdsInput.split(",")) {
+            if (!mappingId.trim().isEmpty()) {
+                mappingIds.add(mappingId.trim());
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        int exported;
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(archivePath))) {
+            try (Stream<ObjectNode> mappings = mappingIds.isEmpty()
+                    ? new ModelMappingPager(environment).stream()
+                    : fetchMappings(mappingIds, environment)) {
+                exported = writeArchive(mappings.iterator(), out, environment.getName());
+            }
+        }
+        logger.info("Exported {} mapping versions from {} to {} in {} ms", exported, environment.getName(), archivePath, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Fetches the listed versions of the given mappings in parallel and returns them in input order,
+     * keeping only a bounded number of responses ahead of the archive writer. Closing the stream stops
+     * any fetches still in flight.
+     */
+    private static Stream<ObjectNode> fetchMappings(Collection<String> mappingIds, Environment environment) {
+        String baseUrl = environment.getModelMappingUrl();
+        int threads = Config.getModelMappingFetchThreads();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "model-mapping-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Deque<Future<List<ObjectNode>>> pending = new ArrayDeque<>();
+        Iterator<String> remaining = mappingIds.iterator();
+
+        Iterator<ObjectNode> iterator = new Iterator<>() {
+            private Iterator<ObjectNode> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext()) {
+                    while (remaining.hasNext() && pending.size() < threads * 2) {
+                        String mappingId = remaining.next();
+                        pending.add(executor.submit(() -> HttpClientHelper.get(environment, baseUrl, Map.of("mapping_id", mappingId),
+                                JsonResponseHandlers.items())));
+                    }
+                    if (pending.isEmpty()) {
+                        executor.shutdown();
+                        return false;
+                    }
+                    try {
+                        current = pending.poll().get().iterator();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        executor.shutdownNow();
+                        throw new IllegalStateException("Interrupted while fetching model mappings", e);
+                    } catch (ExecutionException e) {
+                        executor.shutdownNow();
+                        throw new IllegalStateException("Failed to fetch model mappings", e.getCause());
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public ObjectNode next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(executor::shutdownNow);
+    }
+
+    /**
+     * Streams every mapping into the zip archive as soon as it arrives and appends the index last.
+     *
+     * @return The number of exported mapping versions
+     */
+    private static int writeArchive(Iterator<ObjectNode> mappings, OutputStream out, String environment) throws IOException {
+        ArrayNode index = objectMapper.createArrayNode();
+
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.setLevel(9);
+            while (mappings.hasNext()) {
+                ObjectNode mapping = mappings.next();
+                String mappingId = mapping.path("mapping_id").asText();
+                String version = mapping.path("version").asText();
+                String entryName = mappingId + "/" + version + ".json";
+
+                zip.putNextEntry(new ZipEntry(entryName));
+                zip.write(objectMapper.writeValueAsBytes(mapping));
+                zip.closeEntry();
+
+                ObjectNode indexEntry = index.addObject();
+                indexEntry.put("mapping_id", mappingId);
+                indexEntry.put("version", version);
+                indexEntry.put("id", mapping.path("id").asText());
+                indexEntry.put("entity_type", mapping.path("entity_type").asText());
+                indexEntry.put("entry", entryName);
+
+                if (index.size() % 500 == 0) {
+                    logger.info("Exported {} mapping versions so far", index.size());
+                }
+            }
+
+            ObjectNode indexDocument = objectMapper.createObjectNode();
+            indexDocument.put("environment", environment);
+            indexDocument.put("exported_at", Instant.now().toString());
+            indexDocument.put("count", index.size());
+            indexDocument.set("mappings", index);
+
+            zip.putNextEntry(new ZipEntry("index.json"));
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(zip);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.useDefaultPrettyPrinter();
+            objectMapper.writeTree(generator, indexDocument);
+            generator.flush();
+            zip.closeEntry();
+        }
+        return index.size();
+    }
+}
@@ -0,0 +1,152 @@
+package org.oracle.com.ods.services.mappingServices;
+
+import org.oracle.com.ods.config.Config;
+import org.oracle.com.ods.services.utility.Environment;
+import org.oracle.com.ods.services.utility.HttpClientHelper;
+import org.oracle.com.ods.services.utility.JsonResponseHandlers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Local index of {@code mapping_id -> [(version, id, content hash)]} for one mapping service.
+ * Each mapping is listed at most once; version lookups and internal id resolution are then
+ * answered from the index, so callers no longer issue one GET to find the latest version
+ * and a second identical GET to find its internal id.
+ */
+public class MappingCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappingCatalog.class);
+
+    private final Environment environment;
+    private final Map<String, List<MappingVersion>> versionsByMappingId = new ConcurrentHashMap<>();
+
+    /**
+     * @param environment The environment whose mapping service is indexed
+     */
+    public MappingCatalog(Environment environment) {
+        this.environment = environment;
+    }
+
+    public Environment getEnvironment() {
+        return environment;
+    }
+
+    public String getBaseUrl() {
+        return environment.getModelMappingUrl();
+    }
+
+    /**
+     * Lists every given mapping concurrently so that the following lookups for the batch
+     * are answered locally. Mappings that fail to load are logged and fetched again on demand.
+     *
+     * @param mappingIds The mapping ids of the batch
+     */
+    public void prefetch(Collection<String> mappingIds) {
+        List<String> missing = new ArrayList<>();
+        for (String mappingId : mappingIds) {
+            if (!mappingId.isEmpty() && !versionsByMappingId.containsKey(mappingId)) {
+                missing.add(mappingId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(missing.size(), Config.getModelMappingFetchThreads()));
+        try {
+            Map<String, Future<List<MappingVersion>>> futures = new LinkedHashMap<>();
+            for (String mappingId : missing) {
+                futures.put(mappingId, executor.submit(() -> fetchVersions(mappingId)));
+            }
+            for (Map.Entry<String, Future<List<MappingVersion>>> entry : futures.entrySet()) {
+                try {
+                    versionsByMappingId.put(entry.getKey(), entry.getValue().get());
+                } catch (ExecutionException e) {
+                    logger.error("Failed to prefetch versions for mapping ID {}: {}", entry.getKey(), e.getCause().getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns every stored version of the mapping, listing it on first use.
+     *
+     * @param mappingId The mapping ID
+     * @return The versions in the order the service listed them
+     * @throws IOException If the listing request fails
+     */
+    public List<MappingVersion> getVersions(String mappingId) throws IOException {
+        try {
+            return versionsByMappingId.computeIfAbsent(mappingId, id -> {
+                try {
+                    return fetchVersions(id);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * @param mappingId The mapping ID
+     * @return The highest numbered version of the mapping, or null if it has none
+     * @throws IOException If the listing request fails
+     */
+    public MappingVersion getLatest(String mappingId) throws IOException {
+        return getVersions(mappingId).stream()
+                .max(Comparator.comparingInt(MappingVersion::getVersionNumber))
+                .orElse(null);
+    }
+
+    /**
+     * @param mappingId The mapping ID
+     * @param version   The version to resolve
+     * @return The internal id of the version, or null if the version is not stored
+     * @throws IOException If the listing request fails
+     */
+    public String resolveId(String mappingId, String version) throws IOException {
+        for (MappingVersion mappingVersion : getVersions(mappingId)) {
+            if (mappingVersion.getVersion().equals(version)) {
+                return mappingVersion.getId();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Drops the cached listing of a mapping after it has been changed remotely.
+     *
+     * @param mappingId The mapping ID
+     */
+    public void invalidate(String mappingId) {
+        versionsByMappingId.remove(mappingId);
+    }
+
+    private List<MappingVersion> fetchVersions(String mappingId) throws IOException {
+        // the listing decides which versions are posted or deleted, so it must not come from the response cache
+        List<Map<String, String>> versions = HttpClientHelper.getUncached(environment, getBaseUrl(), Map.of("mapping_id", mappingId),
+                JsonResponseHandlers.mappingVersions());
+
+        List<MappingVersion> mappingVersions = new ArrayList<>();
+        for (Map<String, String> version : versions) {
+            mappingVersions.add(new MappingVersion(mappingId, version.get("version"), version.get("id"), version.get("contentHash")));
+        }
+        return Collections.unmodifiableList(mappingVersions);
+    }
+}
@@ -0,0 +1,119 @@
+package org.oracle.com.ods.services.mappingServices;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import org.oracle.com.ods.util.JsonCompactor;
+import org.oracle.com.ods.util.MappingDocumentHasher;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A local model mapping file compacted for posting. The file is read once through a streaming
+ * parser that drops formatting whitespace and picks up the header fields needed for the post body;
+ * the compact document is kept as UTF-8 bytes and streamed straight into the request body.
+ */
+public class MappingDocument {
+
+    private static final MediaType JSON_MEDIA_TYPE = MediaType.parse("application/json");
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    private static final String VERSION = "version";
+    private static final String ENTITY_TYPE = "recordType.entityType";
+    private static final String RECORD_FORMAT = "recordType.format";
+
+    private final String mappingId;
+    private final byte[] compactDocument;
+    private final String version;
+    private final String entityType;
+    private final String recordFormat;
+    private String contentHash;
+
+    private MappingDocument(String mappingId, byte[] compactDocument, Map<String, String> header) {
+        this.mappingId = mappingId;
+        this.compactDocument = compactDocument;
+        this.version = header.get(VERSION);
+        this.entityType = header.get(ENTITY_TYPE);
+        this.recordFormat = header.get(RECORD_FORMAT);
+    }
+
+    /**
+     * Reads and compacts a mapping file.
+     *
+     * @param mappingId   The mapping id the file belongs to
+     * @param mappingFile The mapping file
+     * @return The compacted mapping
+     * @throws IOException If the file cannot be read or is not valid JSON
+     */
+    public static MappingDocument read(String mappingId, File mappingFile) throws IOException {
+        ByteArrayOutputStream compact = new ByteArrayOutputStream((int) Math.min(mappingFile.length(), Integer.MAX_VALUE));
+        Map<String, String> header;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(mappingFile))) {
+            header = JsonCompactor.compact(in, compact, Set.of(VERSION, ENTITY_TYPE, RECORD_FORMAT));
+        }
+        return new MappingDocument(mappingId, compact.toByteArray(), header);
+    }
+
+    public String getMappingId() {
+        return mappingId;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public String getRecordFormat() {
+        return recordFormat;
+    }
+
+    /**
+     * @return The canonical hash of the compacted document, computed on first use
+     */
+    public synchronized String getContentHash() {
+        if (contentHash == null) {
+            contentHash = MappingDocumentHasher.hash(compactDocument);
+        }
+        return contentHash;
+    }
+
+    /**
+     * Builds the post body for the mapping service. The envelope is generated while the request is
+     * written and the document bytes are escaped into it directly, without an intermediate String.
+     *
+     * @return A request body that can be written more than once, for retries
+     */
+    public RequestBody toRequestBody() {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return JSON_MEDIA_TYPE;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                JsonGenerator generator = jsonFactory.createGenerator(sink.outputStream());
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+                generator.writeStartObject();
+                generator.writeStringField("mapping_id", mappingId);
+                generator.writeStringField("version", version);
+                generator.writeStringField("record_format", recordFormat);
+                generator.writeStringField("entity_type", entityType);
+                generator.writeFieldName("model_mapping_document");
+                try (Reader document = new InputStreamReader(new ByteArrayInputStream(compactDocument), StandardCharsets.UTF_8)) {
+                    generator.writeString(document, -1);
+                }
+                generator.writeEndObject();
+                generator.close();
+            }
+        };
+    }
+}
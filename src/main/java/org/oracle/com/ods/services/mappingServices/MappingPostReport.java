@@ -0,0 +1,20 @@
+package org.oracle.com.ods.services.mappingServices;
+
+import org.oracle.com.ods.services.utility.OutcomeReport;
+
+/**
+ * The outcome of every mapping considered by a batch post or a sync.
+ */
+public class MappingPostReport extends OutcomeReport<MappingPostReport.Outcome> {
+
+    public enum Outcome {
+        POSTED,
+        SKIPPED,
+        CONFLICTED,
+        FAILED
+    }
+
+    public MappingPostReport() {
+        super(Outcome.class, "Mapping");
+    }
+}
@@ -0,0 +1,201 @@
+package org.oracle.com.ods.services.mappingServices;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.oracle.com.ods.config.Config;
+import org.oracle.com.ods.services.mappingServices.MappingPostReport.Outcome;
+import org.oracle.com.ods.services.utility.Environment;
+import org.oracle.com.ods.services.utility.EnvironmentFanOut;
+import org.oracle.com.ods.services.utility.EnvironmentRegistry;
+import org.oracle.com.ods.services.utility.HttpClientHelper;
+import org.oracle.com.ods.services.utility.JsonResponseHandlers;
+import org.oracle.com.ods.util.MappingDocumentHasher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+/**
+ * This class reconciles the model mappings of a source environment with any number of target environments.
+ * All catalogs are listed concurrently and reduced to {@code mapping_id -> version -> content hash};
+ * only mapping versions missing from a target are then fetched from the source and posted, with bounded parallelism
+ * per target and all targets in parallel.
+ * Versions present on both sides with different content are reported as conflicts and left alone.
+ */
+public class MappingSync {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappingSync.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Main method that prompts the user for the sync direction and whether to only report the deltas.
+     *
+     * @param args Command line arguments (not used)
+     * @throws Exception If a catalog cannot be listed
+     */
+    public static void main(String[] args) throws Exception {
+        Scanner scanner = new Scanner(System.in);
+        String names = String.join(", ", EnvironmentRegistry.getNames());
+
+        System.out.print("Which environment is the source of truth? (" + names + "): ");
+        String sourceChoice = scanner.nextLine().trim();
+
+        System.out.print("Which environments to sync to? (" + names + ", all; comma-separated): ");
+        String targetChoice = scanner.nextLine().trim();
+
+        Environment source;
+        List<Environment> targets;
+        try {
+            source = EnvironmentRegistry.get(sourceChoice);
+            targets = new ArrayList<>(EnvironmentRegistry.select(targetChoice));
+        } catch (IllegalArgumentException e) {
+            logger.error("{}. Exiting...", e.getMessage());
+            return;
+        }
+        targets.remove(source);
+        if (targets.isEmpty()) {
+            logger.error("No target environment other than the source selected. Exiting...");
+            return;
+        }
+
+        System.out.print("Dry run, only report the deltas? (yes/no): ");
+        boolean dryRun = !scanner.nextLine().trim().equalsIgnoreCase("no");
+
+        MappingPostReport report = sync(source, targets, dryRun);
+        report.log(logger);
+    }
+
+    /**
+     * Pushes every mapping version that exists in the source but not in a target.
+     *
+     * @param source  The environment to copy from
+     * @param targets The environments to copy to
+     * @param dryRun  If true, deltas are only reported
+     * @return The outcome of every delta
+     * @throws Exception If a catalog cannot be listed
+     */
+    public static MappingPostReport sync(Environment source, List<Environment> targets, boolean dryRun) throws Exception {
+        List<Environment> listed = new ArrayList<>(targets);
+        listed.add(0, source);
+
+        Map<String, EnvironmentFanOut.Result<Map<String, Map<String, String>>>> catalogs = EnvironmentFanOut.run(listed, MappingSync::loadHashes);
+        EnvironmentFanOut.log(logger, "Listing model mappings", catalogs);
+
+        EnvironmentFanOut.Result<Map<String, Map<String, String>>> sourceResult = catalogs.get(source.getName());
+        if (!sourceResult.isSuccess()) {
+            throw new IOException("Failed to list the model mappings of " + source.getName(), sourceResult.getError());
+        }
+        Map<String, Map<String, String>> sourceCatalog = sourceResult.getValue();
+
+        MappingPostReport report = new MappingPostReport();
+        List<Environment> reachableTargets = new ArrayList<>();
+        for (Environment target : targets) {
+            if (catalogs.get(target.getName()).isSuccess()) {
+                reachableTargets.add(target);
+            } else {
+                report.record(target.getName(), "*", Outcome.FAILED, "catalog could not be listed");
+            }
+        }
+
+        Map<String, EnvironmentFanOut.Result<Void>> results = EnvironmentFanOut.run(reachableTargets, target -> {
+            syncTarget(source, sourceCatalog, target, catalogs.get(target.getName()).getValue(), dryRun, report);
+            return null;
+        });
+        EnvironmentFanOut.log(logger, dryRun ? "Comparing model mappings" : "Syncing model mappings", results);
+        return report;
+    }
+
+    /**
+     * Computes the deltas of one target against the source catalog and posts them unless this is a dry run.
+     */
+    private static void syncTarget(Environment source, Map<String, Map<String, String>> sourceCatalog, Environment target,
+                                   Map<String, Map<String, String>> targetCatalog, boolean dryRun, MappingPostReport report) throws Exception {
+        logger.info("Listed {} mappings in {} and {} mappings in {}", sourceCatalog.size(), source.getName(), targetCatalog.size(), target.getName());
+
+        Map<String, List<String>> deltas = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, String>> entry : sourceCatalog.entrySet()) {
+            String mappingId = entry.getKey();
+            Map<String, String> targetVersions = targetCatalog.getOrDefault(mappingId, Collections.emptyMap());
+
+            for (Map.Entry<String, String> version : entry.getValue().entrySet()) {
+                String targetHash = targetVersions.get(version.getKey());
+                if (targetHash == null) {
+                    deltas.computeIfAbsent(mappingId, id -> new ArrayList<>()).add(version.getKey());
+                } else if (!targetHash.equals(version.getValue())) {
+                    report.record(target.getName(), mappingId, Outcome.CONFLICTED, "version " + version.getKey() + " differs between environments");
+                }
+            }
+        }
+
+        if (dryRun) {
+            deltas.forEach((mappingId, versions) -> report.record(target.getName(), mappingId, Outcome.SKIPPED, "dry run, would post versions " + versions));
+            return;
+        }
+
+        ExecutorService posting = Executors.newFixedThreadPool(Config.getModelMappingFetchThreads());
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Map.Entry<String, List<String>> delta : deltas.entrySet()) {
+                futures.add(posting.submit(() -> pushVersions(delta.getKey(), delta.getValue(), source, target, report)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            posting.shutdownNow();
+        }
+    }
+
+    /**
+     * Lists a whole catalog, bypassing the response cache, and keeps only the content hash of every mapping version.
+     */
+    private static Map<String, Map<String, String>> loadHashes(Environment environment) {
+        Map<String, Map<String, String>> hashes = new HashMap<>();
+        try (Stream<ObjectNode> mappings = new ModelMappingPager(environment, Collections.emptyMap(), true).stream()) {
+            mappings.forEach(mapping -> hashes
+                    .computeIfAbsent(mapping.path("mapping_id").asText(), id -> new HashMap<>())
+                    .put(mapping.path("version").asText(), hashOf(mapping.path("model_mapping_document"))));
+        }
+        return hashes;
+    }
+
+    /**
+     * Fetches the source documents of one mapping and posts the missing versions to the target in ascending order.
+     */
+    private static void pushVersions(String mappingId, List<String> versions, Environment source, Environment target, MappingPostReport report) {
+        try {
+            List<ObjectNode> sourceItems = HttpClientHelper.getUncached(source, source.getModelMappingUrl(), Map.of("mapping_id", mappingId),
+                    JsonResponseHandlers.items());
+
+            sourceItems.sort(Comparator.comparingInt(item -> item.path("version").asInt()));
+            for (ObjectNode item : sourceItems) {
+                String version = item.path("version").asText();
+                if (!versions.contains(version)) {
+                    continue;
+                }
+
+                ObjectNode postBody = objectMapper.createObjectNode();
+                postBody.put("mapping_id", mappingId);
+                postBody.put("version", version);
+                postBody.put("record_format", item.path("record_format").asText());
+                postBody.put("entity_type", item.path("entity_type").asText());
+                JsonNode document = item.path("model_mapping_document");
+                postBody.put("model_mapping_document", document.isTextual() ? document.asText() : document.toString());
+
+                HttpClientHelper.post(target, target.getModelMappingUrl(), postBody);
+                report.record(target.getName(), mappingId, Outcome.POSTED, "version " + version);
+            }
+        } catch (IOException e) {
+            logger.error("Failed to sync mapping {} to {}", mappingId, target.getName(), e);
+            report.record(target.getName(), mappingId, Outcome.FAILED, e.getMessage());
+        }
+    }
+
+    private static String hashOf(JsonNode document) {
+        return document.isTextual() ? MappingDocumentHasher.hash(document.asText()) : MappingDocumentHasher.hash(document);
+    }
+}
@@ -0,0 +1,261 @@
+package org.oracle.com.ods.services.mappingServices;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.oracle.com.ods.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Validates model mapping documents locally before they are posted, covering the structure written by
+ * {@link org.oracle.com.ods.models.ModelMappingGenerator} and the cross-references between the
+ * record map and the target models. Files are validated in parallel.
+ */
+public class MappingValidator {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappingValidator.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final Set<String> SUPPORTED_FORMATS = Set.of("AVRO");
+    private static final Set<String> SUPPORTED_TYPES = Set.of("STRING", "LONG", "TIMESTAMP", "DOUBLE", "FLOAT");
+
+    private MappingValidator() {
+    }
+
+    /**
+     * Validates every mapping file in {@code model.mapping.config.path} and exits with a non-zero status
+     * if any of them is invalid.
+     *
+     * @param args Command line arguments (not used)
+     */
+    public static void main(String[] args) {
+        File[] files = new File(Config.getModelMappingConfigPath()).listFiles((dir, name) -> name.endsWith(".json"));
+        if (files == null) {
+            logger.error("Model mapping config path {} is not a directory", Config.getModelMappingConfigPath());
+            System.exit(1);
+        }
+
+        Map<String, List<String>> errors = validateFiles(Arrays.asList(files));
+        logErrors(errors);
+        logger.info("Validated {} mapping files, {} invalid", files.length, errors.size());
+        if (!errors.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Validates the given mapping files in parallel. The mapping id of each file is taken from its name.
+     *
+     * @param files The mapping files
+     * @return The errors of every invalid file keyed by file name, empty if all files are valid
+     */
+    public static Map<String, List<String>> validateFiles(Collection<File> files) {
+        Map<String, List<String>> errors = new ConcurrentSkipListMap<>();
+        files.parallelStream().forEach(file -> {
+            List<String> fileErrors = validateFile(file);
+            if (!fileErrors.isEmpty()) {
+                errors.put(file.getName(), fileErrors);
+            }
+        });
+        return errors;
+    }
+
+    /**
+     * Logs the errors returned by {@link #validateFiles(Collection)}.
+     *
+     * @param errors The errors keyed by file name
+     */
+    public static void logErrors(Map<String, List<String>> errors) {
+        errors.forEach((file, fileErrors) -> fileErrors.forEach(error -> logger.error("{}: {}", file, error)));
+    }
+
+    private static List<String> validateFile(File file) {
+        String mappingId = file.getName().replaceFirst("\\.json$", "");
+        try {
+            return validate(objectMapper.readTree(file), mappingId);
+        } catch (IOException e) {
+            return List.of("not valid JSON: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Validates one mapping document.
+     *
+     * @param document  The parsed mapping document
+     * @param mappingId The mapping id the document is posted under
+     * @return The validation errors, empty if the document is valid
+     */
+    public static List<String> validate(JsonNode document, String mappingId) {
+        List<String> errors = new ArrayList<>();
+        if (!document.isObject()) {
+            errors.add("document is not a JSON object");
+            return errors;
+        }
+
+        JsonNode documentMappingId = document.get("mappingId");
+        if (!isNonEmptyText(documentMappingId)) {
+            errors.add("mappingId is missing or not a string");
+        } else if (!documentMappingId.asText().equals(mappingId)) {
+            errors.add("mappingId " + documentMappingId.asText() + " does not match file name " + mappingId);
+        }
+
+        JsonNode version = document.get("version");
+        if (version == null || !version.isTextual()) {
+            errors.add("version is missing or not a string");
+        } else if (!version.asText().matches("[1-9][0-9]*")) {
+            errors.add("version " + version.asText() + " is not a positive integer");
+        }
+
+        validateRecordType(document.get("recordType"), errors);
+        Map<String, Set<String>> columnsByTarget = validateTargetModels(document.get("targetModels"), errors);
+        validateRecordMap(document.get("recordMap"), columnsByTarget, errors);
+        return errors;
+    }
+
+    private static void validateRecordType(JsonNode recordType, List<String> errors) {
+        if (recordType == null || !recordType.isObject()) {
+            errors.add("recordType is missing or not an object");
+            return;
+        }
+        if (!isNonEmptyText(recordType.get("entityType"))) {
+            errors.add("recordType.entityType is missing or not a string");
+        }
+        JsonNode format = recordType.get("format");
+        if (!isNonEmptyText(format)) {
+            errors.add("recordType.format is missing or not a string");
+        } else if (!SUPPORTED_FORMATS.contains(format.asText())) {
+            errors.add("recordType.format " + format.asText() + " is not supported");
+        }
+        JsonNode schema = recordType.get("schema");
+        if (!isNonEmptyText(schema)) {
+            errors.add("recordType.schema is missing or not a string");
+        } else {
+            try {
+                Base64.getDecoder().decode(schema.asText());
+            } catch (IllegalArgumentException e) {
+                errors.add("recordType.schema is not Base64 encoded");
+            }
+        }
+    }
+
+    /**
+     * @return The column names of every target model keyed by model name
+     */
+    private static Map<String, Set<String>> validateTargetModels(JsonNode targetModels, List<String> errors) {
+        Map<String, Set<String>> columnsByTarget = new HashMap<>();
+        if (targetModels == null || !targetModels.isArray() || targetModels.isEmpty()) {
+            errors.add("targetModels is missing or empty");
+            return columnsByTarget;
+        }
+
+        for (int i = 0; i < targetModels.size(); i++) {
+            JsonNode targetModel = targetModels.get(i);
+            String path = "targetModels[" + i + "]";
+            if (!isNonEmptyText(targetModel.get("name"))) {
+                errors.add(path + ".name is missing or not a string");
+                continue;
+            }
+            String targetName = targetModel.get("name").asText();
+            if (columnsByTarget.containsKey(targetName)) {
+                errors.add(path + " duplicates target model " + targetName);
+            }
+            if (!targetModel.path("uses").isArray()) {
+                errors.add(path + ".uses is missing or not an array");
+            }
+
+            Set<String> columnNames = new HashSet<>();
+            columnsByTarget.put(targetName, columnNames);
+            JsonNode columns = targetModel.get("columns");
+            if (columns == null || !columns.isArray() || columns.isEmpty()) {
+                errors.add(path + ".columns is missing or empty");
+                continue;
+            }
+
+            for (int j = 0; j < columns.size(); j++) {
+                JsonNode column = columns.get(j);
+                String columnPath = path + ".columns[" + j + "]";
+                if (!isNonEmptyText(column.get("name"))) {
+                    errors.add(columnPath + ".name is missing or not a string");
+                    continue;
+                }
+                String columnName = column.get("name").asText();
+                columnPath = path + ".columns[" + columnName + "]";
+                if (!columnNames.add(columnName)) {
+                    errors.add(columnPath + " is defined more than once");
+                }
+                JsonNode type = column.get("type");
+                if (!isNonEmptyText(type)) {
+                    errors.add(columnPath + ".type is missing or not a string");
+                } else if (!SUPPORTED_TYPES.contains(type.asText())) {
+                    errors.add(columnPath + ".type " + type.asText() + " is not supported");
+                }
+                if (column.has("length") && !column.get("length").isInt()) {
+                    errors.add(columnPath + ".length is not an integer");
+                }
+                if (!column.path("nullable").isBoolean()) {
+                    errors.add(columnPath + ".nullable is missing or not a boolean");
+                }
+            }
+        }
+        return columnsByTarget;
+    }
+
+    private static void validateRecordMap(JsonNode recordMap, Map<String, Set<String>> columnsByTarget, List<String> errors) {
+        if (recordMap == null || !recordMap.isObject()) {
+            errors.add("recordMap is missing or not an object");
+            return;
+        }
+        JsonNode recordId = recordMap.get("recordId");
+        if (!isNonEmptyText(recordId)) {
+            errors.add("recordMap.recordId is missing or not a string");
+        }
+        JsonNode targetMaps = recordMap.get("targetMaps");
+        if (targetMaps == null || !targetMaps.isArray() || targetMaps.isEmpty()) {
+            errors.add("recordMap.targetMaps is missing or empty");
+            return;
+        }
+
+        for (int i = 0; i < targetMaps.size(); i++) {
+            JsonNode targetMap = targetMaps.get(i);
+            String path = "recordMap.targetMaps[" + i + "]";
+            if (!isNonEmptyText(targetMap.get("targetName"))) {
+                errors.add(path + ".targetName is missing or not a string");
+                continue;
+            }
+            String targetName = targetMap.get("targetName").asText();
+            Set<String> columnNames = columnsByTarget.get(targetName);
+            if (columnNames == null) {
+                errors.add(path + " refers to unknown target model " + targetName);
+            }
+
+            JsonNode columnMaps = targetMap.get("columnMaps");
+            if (columnMaps == null || !columnMaps.isArray() || columnMaps.isEmpty()) {
+                errors.add(path + ".columnMaps is missing or empty");
+                continue;
+            }
+            for (int j = 0; j < columnMaps.size(); j++) {
+                JsonNode columnMap = columnMaps.get(j);
+                String columnPath = path + ".columnMaps[" + j + "]";
+                if (!isNonEmptyText(columnMap.get("columnName"))) {
+                    errors.add(columnPath + ".columnName is missing or not a string");
+                } else if (columnNames != null && !columnNames.contains(columnMap.get("columnName").asText())) {
+                    errors.add(columnPath + " maps column " + columnMap.get("columnName").asText() + " which is absent from target model " + targetName);
+                }
+                if (!isNonEmptyText(columnMap.get("fieldName"))) {
+                    errors.add(columnPath + ".fieldName is missing or not a string");
+                }
+                if (isNonEmptyText(recordId) && !recordId.equals(columnMap.get("recordId"))) {
+                    errors.add(columnPath + ".recordId does not match recordMap.recordId");
+                }
+            }
+        }
+    }
+
+    private static boolean isNonEmptyText(JsonNode node) {
+        return node != null && node.isTextual() && !node.asText().trim().isEmpty();
+    }
+}
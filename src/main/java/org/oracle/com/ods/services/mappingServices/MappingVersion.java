@@ -0,0 +1,48 @@
+package org.oracle.com.ods.services.mappingServices;
+
+/**
+ * A single stored version of a model mapping together with the internal id the
+ * mapping service uses to address it and the canonical hash of its document.
+ */
+public class MappingVersion {
+
+    private final String mappingId;
+    private final String version;
+    private final String id;
+    private final String contentHash;
+
+    public MappingVersion(String mappingId, String version, String id, String contentHash) {
+        this.mappingId = mappingId;
+        this.version = version;
+        this.id = id;
+        this.contentHash = contentHash;
+    }
+
+    public String getMappingId() {
+        return mappingId;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return The canonical hash of the stored document, or null if the listing did not include it
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public int getVersionNumber() {
+        return Integer.parseInt(version);
+    }
+
+    @Override
+    public String toString() {
+        return mappingId + "@" + version + " (id " + id + ")";
+    }
+}
@@ -0,0 +1,206 @@
+package org.oracle.com.ods.services.mappingServices;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.oracle.com.ods.config.Config;
+import org.oracle.com.ods.services.utility.Environment;
+import org.oracle.com.ods.services.utility.HttpClientHelper;
+import org.oracle.com.ods.services.utility.JsonResponseHandlers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazily pages through the model mapping listing of one environment.
+ * Pages are requested with {@code offset}/{@code limit} query parameters; while one page is
+ * consumed the next pages are already being fetched in parallel, up to
+ * {@code model.mapping.page.prefetch} pages ahead. Only those pages are held in memory,
+ * so the whole catalog can be scanned with a steady footprint.
+ */
+public class ModelMappingPager implements Iterable<ObjectNode> {
+
+    private final Environment environment;
+    private final Map<String, String> filters;
+    private final int pageSize;
+    private final int prefetch;
+    private final boolean uncached;
+
+    /**
+     * @param environment The environment whose mapping service is listed
+     */
+    public ModelMappingPager(Environment environment) {
+        this(environment, Collections.emptyMap());
+    }
+
+    /**
+     * @param environment The environment whose mapping service is listed
+     * @param filters     Additional query parameters sent with every page request
+     */
+    public ModelMappingPager(Environment environment, Map<String, String> filters) {
+        this(environment, filters, false);
+    }
+
+    /**
+     * @param environment The environment whose mapping service is listed
+     * @param filters     Additional query parameters sent with every page request
+     * @param uncached    Whether every page bypasses the response cache, for listings that decide what is written
+     */
+    public ModelMappingPager(Environment environment, Map<String, String> filters, boolean uncached) {
+        this.environment = environment;
+        this.filters = filters;
+        this.pageSize = Config.getModelMappingPageSize();
+        this.prefetch = Math.max(1, Config.getModelMappingPagePrefetch());
+        this.uncached = uncached;
+    }
+
+    /**
+     * Returns a new iterator over every listed mapping. Closing the iterator stops any
+     * page fetches still in flight.
+     */
+    @Override
+    public PageIterator iterator() {
+        return new PageIterator();
+    }
+
+    /**
+     * @return A sequential stream over every listed mapping, closing it stops any pending page fetches
+     */
+    public Stream<ObjectNode> stream() {
+        PageIterator iterator = iterator();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    }
+
+    private List<ObjectNode> fetchPage(int offset) throws IOException {
+        Map<String, String> params = new LinkedHashMap<>(filters);
+        params.put("offset", String.valueOf(offset));
+        params.put("limit", String.valueOf(pageSize));
+
+        if (uncached) {
+            return HttpClientHelper.getUncached(environment, environment.getModelMappingUrl(), params, JsonResponseHandlers.items());
+        }
+        return HttpClientHelper.get(environment, environment.getModelMappingUrl(), params, JsonResponseHandlers.items());
+    }
+
+    /**
+     * A page request in flight and the offset it was sent with.
+     */
+    private static final class PendingPage {
+        private final int offset;
+        private final Future<List<ObjectNode>> future;
+
+        private PendingPage(int offset, Future<List<ObjectNode>> future) {
+            this.offset = offset;
+            this.future = future;
+        }
+    }
+
+    /**
+     * Iterator that keeps up to {@code prefetch} page requests in flight ahead of the consumer.
+     * Pages are requested ahead assuming the server returns {@code pageSize} items; when a page holds a different
+     * number of items, for example because the server caps {@code limit} lower, the requests ahead are dropped and
+     * the listing continues right after the items actually returned. The listing ends on an empty page.
+     */
+    public class PageIterator implements Iterator<ObjectNode>, AutoCloseable {
+
+        private final ExecutorService executor = Executors.newFixedThreadPool(prefetch, runnable -> {
+            Thread thread = new Thread(runnable, "model-mapping-pager");
+            thread.setDaemon(true);
+            return thread;
+        });
+        private final Deque<PendingPage> pending = new ArrayDeque<>();
+        private Iterator<ObjectNode> current = Collections.emptyIterator();
+        private int nextOffset;
+        private int step = pageSize;
+        private String previousFirstId;
+        private boolean lastPageSeen;
+
+        private PageIterator() {
+            fillPipeline();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                if (pending.isEmpty()) {
+                    close();
+                    return false;
+                }
+                PendingPage request = pending.poll();
+                List<ObjectNode> page = awaitPage(request.future);
+                if (page.isEmpty()) {
+                    lastPageSeen = true;
+                    cancelPending();
+                } else {
+                    String firstId = page.get(0).path("id").asText(null);
+                    if (firstId != null && firstId.equals(previousFirstId)) {
+                        close();
+                        throw new IllegalStateException("Model mapping page at offset " + request.offset
+                                + " repeats the previous page; the service does not seem to honour offset");
+                    }
+                    previousFirstId = firstId;
+                    if (page.size() != step) {
+                        cancelPending();
+                        step = Math.min(page.size(), pageSize);
+                        nextOffset = request.offset + page.size();
+                    }
+                }
+                fillPipeline();
+                current = page.iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public ObjectNode next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+
+        @Override
+        public void close() {
+            cancelPending();
+            executor.shutdownNow();
+        }
+
+        private void fillPipeline() {
+            while (!lastPageSeen && pending.size() < prefetch) {
+                int offset = nextOffset;
+                nextOffset += step;
+                pending.add(new PendingPage(offset, executor.submit(() -> fetchPage(offset))));
+            }
+        }
+
+        private void cancelPending() {
+            PendingPage request;
+            while ((request = pending.poll()) != null) {
+                request.future.cancel(true);
+            }
+        }
+
+        private List<ObjectNode> awaitPage(Future<List<ObjectNode>> future) {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new IllegalStateException("Interrupted while waiting for a model mapping page", e);
+            } catch (ExecutionException e) {
+                close();
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw new UncheckedIOException((IOException) cause);
+                }
+                throw new IllegalStateException("Failed to fetch a model mapping page", cause);
+            }
+        }
+    }
+}
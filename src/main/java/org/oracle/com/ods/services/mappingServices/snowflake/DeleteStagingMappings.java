@@ -2,8 +2,9 @@ package org.oracle.com.ods.services.mappingServices.snowflake;
 
 import okhttp3.Response;
 import org.oracle.com.ods.config.Config;
+import org.oracle.com.ods.services.mappingServices.MappingCatalog;
+import org.oracle.com.ods.services.utility.EnvironmentRegistry;
 import org.oracle.com.ods.services.utility.HttpClientHelper;
-import org.oracle.com.ods.services.utility.SchemaType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,7 +48,7 @@ public class DeleteStagingMappings {
 
         String token = HttpClientHelper.getStagingOAuthToken();
 
-        String extractedId = HttpClientHelper.extractIdForMapping(mappingId, targetVersion, token, SchemaType.SNOWFLAKE);
+        String extractedId = new MappingCatalog(EnvironmentRegistry.get(EnvironmentRegistry.STAGING)).resolveId(mappingId.trim(), targetVersion.trim());
         if (extractedId == null || extractedId.trim().isEmpty()) {
             logger.error("Couldn't find the record for the given version and mapping id. Exiting...");
             return;
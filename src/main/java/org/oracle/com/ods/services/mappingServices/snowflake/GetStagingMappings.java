@@ -55,5 +55,6 @@ public class GetStagingMappings {
         } catch (JSONException e) {
             logger.error("Couldn't fetch the mapping for mapping id: {}", mappingId, e);
         }
+        logger.info(HttpClientHelper.getCacheStatistics());
     }
 }
@@ -1,11 +1,11 @@
 package org.oracle.com.ods.services.mappingServices.vertica;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import okhttp3.Response;
 import org.oracle.com.ods.config.Config;
+import org.oracle.com.ods.services.mappingServices.MappingCatalog;
+import org.oracle.com.ods.services.mappingServices.MappingVersion;
+import org.oracle.com.ods.services.utility.EnvironmentRegistry;
 import org.oracle.com.ods.services.utility.HttpClientHelper;
-import org.oracle.com.ods.services.utility.SchemaType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,18 +43,19 @@ public class DeleteDevMappings {
         mappingIds.replaceAll(String::trim);
 
         String token = HttpClientHelper.getDevOAuthToken();
+        MappingCatalog catalog = new MappingCatalog(EnvironmentRegistry.get(EnvironmentRegistry.DEV));
+        catalog.prefetch(mappingIds);
 
         for (String mappingId : mappingIds) {
             if (mappingId.isEmpty()) continue;
 
-            String latestVersion = getLatestVersionForMapping(mappingId, token);
+            MappingVersion latestVersion = getLatestVersionForMapping(mappingId, catalog);
 
             if (latestVersion != null) {
-                String extractedId = HttpClientHelper.extractIdForMapping(mappingId, latestVersion, token, SchemaType.VERTICA);
-                if (extractedId != null && !extractedId.trim().isEmpty()) {
-                    deleteMapping(mappingId, latestVersion, extractedId, token);
+                if (latestVersion.getId() != null && !latestVersion.getId().trim().isEmpty()) {
+                    deleteMapping(mappingId, latestVersion.getVersion(), latestVersion.getId(), token);
                 } else {
-                    logger.error("Couldn't find the record for mapping ID {} and version {}. Skipping...", mappingId, latestVersion);
+                    logger.error("Couldn't find the record for mapping ID {} and version {}. Skipping...", mappingId, latestVersion.getVersion());
                 }
             } else {
                 logger.error("Failed to fetch the latest version for mapping ID {}. Skipping...", mappingId);
@@ -66,46 +67,18 @@ public class DeleteDevMappings {
      * Fetch the latest version of the mapping for the given mapping ID.
      *
      * @param mappingId The mapping ID
-     * @param token     OAuth token for authentication
-     * @return The latest version as a String, or null if not found
+     * @param catalog   The catalog of the development environment
+     * @return The latest version, or null if not found
      */
-    private static String getLatestVersionForMapping(String mappingId, String token) {
+    private static MappingVersion getLatestVersionForMapping(String mappingId, MappingCatalog catalog) {
         try {
-            List<String> versions = getMappingVersions(mappingId, token);
-
-            if (!versions.isEmpty()) {
-                OptionalInt maxVersion = versions.stream()
-                        .mapToInt(Integer::parseInt)
-                        .max();
-
-                return String.valueOf(maxVersion.getAsInt());
-            }
+            return catalog.getLatest(mappingId);
         } catch (Exception e) {
             logger.error("Error fetching the latest version for mapping ID {}: {}", mappingId, e.getMessage());
         }
         return null;
     }
 
-    private static List<String> getMappingVersions(String mappingId, String token) throws IOException {
-        String jsonResponse = HttpClientHelper.get(Config.getDevModelMappingUrl(), Map.of("mapping_id", mappingId), token, false);
-
-        ObjectMapper objectMapper = new ObjectMapper();
-        JsonNode rootNode = objectMapper.readTree(jsonResponse);
-
-        JsonNode itemsNode = rootNode.get("items");
-
-        List<String> versions = new ArrayList<>();
-
-        if (itemsNode.isArray()) {
-            for (JsonNode itemNode : itemsNode) {
-                String version = itemNode.get("version").asText();
-                versions.add(version);
-            }
-        }
-        return versions;
-    }
-
-
     /**
      * Delete the mapping with the given ID and version.
      *
@@ -56,5 +56,6 @@ public class GetDevMappings {
         } catch (JSONException e) {
             logger.error("Couldn't fetch the mapping for mapping id: {}", mappingId, e);
         }
+        logger.info(HttpClientHelper.getCacheStatistics());
     }
 }
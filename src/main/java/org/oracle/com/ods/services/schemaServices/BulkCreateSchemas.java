@@ -0,0 +1,197 @@
+package org.oracle.com.ods.services.schemaServices;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.oracle.com.ods.config.Config;
+import org.oracle.com.ods.services.schemaServices.SchemaOperationReport.Outcome;
+import org.oracle.com.ods.services.schemaServices.snowflake.CreateSnowflakeSchema;
+import org.oracle.com.ods.services.schemaServices.vertica.CreateVerticaLdSchema;
+import org.oracle.com.ods.services.schemaServices.vertica.CreateVerticaSchema;
+import org.oracle.com.ods.services.utility.Environment;
+import org.oracle.com.ods.services.utility.EnvironmentFanOut;
+import org.oracle.com.ods.services.utility.EnvironmentRegistry;
+import org.oracle.com.ods.services.utility.HttpClientHelper;
+import org.oracle.com.ods.services.utility.SchemaType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * This class creates a list of schemas in one go and can be rerun safely. For every selected environment the
+ * existing schemas are listed with a single request, and only the missing ones are created, concurrently up to
+ * {@code schema.bulk.threads}. The request bodies are those of {@link CreateSnowflakeSchema},
+ * {@link CreateVerticaSchema} and {@link CreateVerticaLdSchema}.
+ */
+public class BulkCreateSchemas {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkCreateSchemas.class);
+
+    /**
+     * Main method that prompts the user for the kind of schema, the schema names and the environments.
+     *
+     * @param args Command line arguments (not used)
+     */
+    public static void main(String[] args) {
+        Scanner scanner = new Scanner(System.in);
+
+        System.out.print("Which kind of schema to create? (snowflake, vertica, vertica-ld): ");
+        String kind = scanner.nextLine().trim().toLowerCase();
+
+        Function<String, ObjectNode> bodyBuilder;
+        SchemaType schemaType;
+        switch (kind) {
+            case "snowflake":
+                bodyBuilder = CreateSnowflakeSchema::buildSchemaBody;
+                schemaType = SchemaType.SNOWFLAKE;
+                break;
+            case "vertica":
+                bodyBuilder = CreateVerticaSchema::buildSchemaBody;
+                schemaType = SchemaType.VERTICA;
+                break;
+            case "vertica-ld":
+                bodyBuilder = CreateVerticaLdSchema::buildSchemaBody;
+                schemaType = SchemaType.VERTICA;
+                break;
+            default:
+                logger.error("Unknown schema kind: {}. Exiting...", kind);
+                return;
+        }
+
+        System.out.print("Enter the schema names (comma-separated): ");
+        Set<String> schemaNames = new LinkedHashSet<>();
+        for (String schemaName : scanner.nextLine().split(",")) {
+            if (!schemaName.trim().isEmpty()) {
+                schemaNames.add(schemaName.trim());
+            }
+        }
+        if (schemaNames.isEmpty()) {
+            logger.error("Schema names cannot be empty. Exiting...");
+            return;
+        }
+
+        System.out.print("Which " + schemaType + " environments? (" + String.join(", ", EnvironmentRegistry.getNames()) + "; comma-separated, empty for all): ");
+        List<Environment> environments;
+        try {
+            environments = EnvironmentRegistry.select(scanner.nextLine(), schemaType);
+        } catch (IllegalArgumentException e) {
+            logger.error("{}. Exiting...", e.getMessage());
+            return;
+        }
+
+        SchemaOperationReport report = new SchemaOperationReport();
+        Map<String, EnvironmentFanOut.Result<Void>> results = EnvironmentFanOut.run(environments, environment -> {
+            createSchemas(new ArrayList<>(schemaNames), bodyBuilder, environment, report);
+            return null;
+        });
+
+        report.log(logger);
+        EnvironmentFanOut.log(logger, "Creating schemas", results);
+        logger.info(HttpClientHelper.getCacheStatistics());
+    }
+
+    /**
+     * Creates the schemas missing from one environment.
+     *
+     * @param schemaNames The schemas that should exist
+     * @param bodyBuilder Builds the create request body of a schema
+     * @param environment The environment to create the schemas in
+     * @param report      The report receiving the outcome of every schema
+     */
+    public static void createSchemas(List<String> schemaNames, Function<String, ObjectNode> bodyBuilder,
+                                     Environment environment, SchemaOperationReport report) {
+        Set<String> unresolved = Collections.synchronizedSet(new HashSet<>());
+        Set<String> existing = findExisting(schemaNames, environment, unresolved);
+
+        List<String> missing = new ArrayList<>();
+        for (String schemaName : schemaNames) {
+            if (unresolved.contains(schemaName)) {
+                report.record(environment.getName(), schemaName, Outcome.FAILED, "existence could not be checked, not created");
+            } else if (existing.contains(schemaName)) {
+                report.record(environment.getName(), schemaName, Outcome.EXISTING, "already exists");
+            } else {
+                missing.add(schemaName);
+            }
+        }
+        logger.info("{} of {} schemas are missing in {}", missing.size(), schemaNames.size(), environment.getName());
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(missing.size(), Config.getSchemaBulkThreads()));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (String schemaName : missing) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        HttpClientHelper.post(environment, environment.getSchemaUrl(), bodyBuilder.apply(schemaName));
+                        report.record(environment.getName(), schemaName, Outcome.CREATED, "created");
+                    } catch (IOException e) {
+                        logger.error("Failed to create schema {} in {}: {}", schemaName, environment.getName(), e.getMessage());
+                        report.record(environment.getName(), schemaName, Outcome.FAILED, e.getMessage());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.error("Schema creation task failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Checks which of the schemas already exist with one listing request, bypassing the response cache so a
+     * schema deleted moments ago is created again. If the listing is not available,
+     * the schemas are looked up by name concurrently instead; a schema whose lookup fails is added to
+     * {@code unresolved}, so it is never created twice.
+     */
+    private static Set<String> findExisting(List<String> schemaNames, Environment environment, Set<String> unresolved) {
+        try {
+            Set<String> existing = new HashSet<>(HttpClientHelper.listSchemasUncached(environment).keySet());
+            existing.retainAll(schemaNames);
+            return existing;
+        } catch (IOException e) {
+            logger.warn("Listing the schemas of {} failed, looking them up by name: {}", environment.getName(), e.getMessage());
+        }
+
+        Set<String> existing = Collections.synchronizedSet(new HashSet<>());
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(schemaNames.size(), Config.getSchemaBulkThreads()));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (String schemaName : schemaNames) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        if (HttpClientHelper.fetchSchemaIdUncached(environment, schemaName) != null) {
+                            existing.add(schemaName);
+                        }
+                    } catch (IOException e) {
+                        logger.error("Failed to look up schema {} in {}: {}", schemaName, environment.getName(), e.getMessage());
+                        unresolved.add(schemaName);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            unresolved.addAll(schemaNames);
+        } catch (ExecutionException e) {
+            logger.error("Schema lookup task failed", e.getCause());
+            unresolved.addAll(schemaNames);
+        } finally {
+            executor.shutdownNow();
+        }
+        return existing;
+    }
+}
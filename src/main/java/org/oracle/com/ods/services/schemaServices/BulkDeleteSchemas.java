@@ -0,0 +1,273 @@
+package org.oracle.com.ods.services.schemaServices;
+
+import okhttp3.Response;
+import org.oracle.com.ods.config.Config;
+import org.oracle.com.ods.services.schemaServices.SchemaOperationReport.Outcome;
+import org.oracle.com.ods.services.utility.Environment;
+import org.oracle.com.ods.services.utility.EnvironmentFanOut;
+import org.oracle.com.ods.services.utility.EnvironmentRegistry;
+import org.oracle.com.ods.services.utility.HttpClientHelper;
+import org.oracle.com.ods.services.utility.RateLimiter;
+import org.oracle.com.ods.services.utility.SchemaType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.Pattern;
+
+/**
+ * This class tears down many schemas at once, e.g. the ephemeral {@code PHANALYTIC_*} test schemas.
+ * Schemas are selected by exact name or by glob ({@code *} and {@code ?}); glob patterns are matched against a
+ * single listing of each environment, exact names are resolved concurrently with coalesced lookups.
+ * The deletes are issued in parallel under {@code schema.delete.rate.per.second}. A delete the service accepts
+ * with 202 is polled with exponential backoff until the schema is gone or
+ * {@code schema.delete.poll.timeout.seconds} has passed.
+ */
+public class BulkDeleteSchemas {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkDeleteSchemas.class);
+    private static final long INITIAL_POLL_MILLIS = 1000;
+    private static final long MAX_POLL_MILLIS = 16000;
+
+    /**
+     * Main method that prompts the user for the schema kind, the names or patterns and the environments,
+     * shows the resolved schemas and deletes them after confirmation.
+     *
+     * @param args Command line arguments (not used)
+     */
+    public static void main(String[] args) {
+        Scanner scanner = new Scanner(System.in);
+
+        System.out.print("Which kind of schema to delete? (snowflake, vertica): ");
+        String kind = scanner.nextLine().trim().toLowerCase();
+        if (!kind.equals("snowflake") && !kind.equals("vertica")) {
+            logger.error("Unknown schema kind: {}. Exiting...", kind);
+            return;
+        }
+        SchemaType schemaType = kind.equals("snowflake") ? SchemaType.SNOWFLAKE : SchemaType.VERTICA;
+
+        System.out.print("Enter the schema names or glob patterns, e.g. PHANALYTIC_* (comma-separated): ");
+        List<String> patterns = new ArrayList<>();
+        for (String pattern : scanner.nextLine().split(",")) {
+            if (!pattern.trim().isEmpty()) {
+                patterns.add(pattern.trim());
+            }
+        }
+        if (patterns.isEmpty()) {
+            logger.error("Schema names cannot be empty. Exiting...");
+            return;
+        }
+
+        System.out.print("Which " + schemaType + " environments? (" + String.join(", ", EnvironmentRegistry.getNames()) + "; comma-separated, empty for all): ");
+        List<Environment> environments;
+        try {
+            environments = EnvironmentRegistry.select(scanner.nextLine(), schemaType);
+        } catch (IllegalArgumentException e) {
+            logger.error("{}. Exiting...", e.getMessage());
+            return;
+        }
+
+        SchemaOperationReport report = new SchemaOperationReport();
+        Map<String, EnvironmentFanOut.Result<Map<String, String>>> resolved = EnvironmentFanOut.run(environments,
+                environment -> resolveSchemas(patterns, environment, report));
+        EnvironmentFanOut.log(logger, "Resolving schemas", resolved);
+
+        List<Environment> targets = new ArrayList<>();
+        int total = 0;
+        for (Environment environment : environments) {
+            EnvironmentFanOut.Result<Map<String, String>> result = resolved.get(environment.getName());
+            if (result.isSuccess() && !result.getValue().isEmpty()) {
+                logger.info("Schemas to delete in {}: {}", environment.getName(), result.getValue().keySet());
+                targets.add(environment);
+                total += result.getValue().size();
+            }
+        }
+        if (total == 0) {
+            report.log(logger);
+            logger.info("No schemas matched. Nothing was deleted.");
+            return;
+        }
+
+        System.out.print("Delete " + total + " schemas? (yes/no): ");
+        if (!scanner.nextLine().trim().equalsIgnoreCase("yes")) {
+            logger.info("Nothing was deleted.");
+            return;
+        }
+
+        Map<String, EnvironmentFanOut.Result<Void>> results = EnvironmentFanOut.run(targets, environment -> {
+            deleteSchemas(resolved.get(environment.getName()).getValue(), environment, report);
+            return null;
+        });
+
+        report.log(logger);
+        EnvironmentFanOut.log(logger, "Deleting schemas", results);
+        logger.info(HttpClientHelper.getCacheStatistics());
+    }
+
+    /**
+     * Resolves names and glob patterns to schema ids. Exact names that do not exist are reported as not found.
+     * The ids are read straight from the schema service, never from the response cache, so a schema recreated by
+     * someone else is deleted under its current id.
+     *
+     * @param patterns    Exact schema names or glob patterns
+     * @param environment The environment to resolve in
+     * @param report      The report receiving the names that were not found
+     * @return The schema ids keyed by schema name, sorted by name
+     * @throws IOException If the schema listing fails
+     */
+    public static Map<String, String> resolveSchemas(List<String> patterns, Environment environment, SchemaOperationReport report) throws IOException {
+        List<Pattern> globs = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (String pattern : patterns) {
+            if (pattern.contains("*") || pattern.contains("?")) {
+                globs.add(toRegex(pattern));
+            } else {
+                names.add(pattern);
+            }
+        }
+
+        Map<String, String> schemaIds = new TreeMap<>();
+        if (!globs.isEmpty()) {
+            Map<String, String> listing = HttpClientHelper.listSchemasUncached(environment);
+            for (Map.Entry<String, String> schema : listing.entrySet()) {
+                for (Pattern glob : globs) {
+                    if (glob.matcher(schema.getKey()).matches()) {
+                        schemaIds.put(schema.getKey(), schema.getValue());
+                    }
+                }
+            }
+            for (String name : names) {
+                if (listing.containsKey(name)) {
+                    schemaIds.put(name, listing.get(name));
+                } else {
+                    report.record(environment.getName(), name, Outcome.NOT_FOUND, "no schema with that name");
+                }
+            }
+            return schemaIds;
+        }
+
+        Map<String, Future<String>> lookups = new LinkedHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(names.size(), Config.getSchemaBulkThreads()));
+        try {
+            for (String name : names) {
+                lookups.put(name, executor.submit(() -> HttpClientHelper.fetchSchemaIdUncached(environment, name)));
+            }
+            for (Map.Entry<String, Future<String>> lookup : lookups.entrySet()) {
+                try {
+                    String schemaId = lookup.getValue().get();
+                    if (schemaId != null) {
+                        schemaIds.put(lookup.getKey(), schemaId);
+                    } else {
+                        report.record(environment.getName(), lookup.getKey(), Outcome.NOT_FOUND, "no schema with that name");
+                    }
+                } catch (ExecutionException e) {
+                    report.record(environment.getName(), lookup.getKey(), Outcome.FAILED, "lookup failed: " + e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while resolving schemas", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        return schemaIds;
+    }
+
+    /**
+     * Deletes the given schemas in parallel under the configured rate limit and waits for asynchronous deletes.
+     *
+     * @param schemaIds   The schema ids keyed by schema name
+     * @param environment The environment to delete from
+     * @param report      The report receiving the outcome of every schema
+     */
+    public static void deleteSchemas(Map<String, String> schemaIds, Environment environment, SchemaOperationReport report) {
+        RateLimiter rateLimiter = new RateLimiter(Config.getSchemaDeleteRatePerSecond());
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(schemaIds.size(), Config.getSchemaBulkThreads()));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Map.Entry<String, String> schema : schemaIds.entrySet()) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        rateLimiter.acquire();
+                        deleteSchema(schema.getKey(), schema.getValue(), environment, report);
+                    } catch (IOException e) {
+                        logger.error("Failed to delete schema {} from {}: {}", schema.getKey(), environment.getName(), e.getMessage());
+                        report.record(environment.getName(), schema.getKey(), Outcome.FAILED, e.getMessage());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        report.record(environment.getName(), schema.getKey(), Outcome.FAILED, "interrupted");
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.error("Schema deletion task failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void deleteSchema(String schemaName, String schemaId, Environment environment, SchemaOperationReport report)
+            throws IOException, InterruptedException {
+        int code;
+        try (Response response = HttpClientHelper.delete(environment, environment.getSchemaUrl(), schemaId)) {
+            code = response.code();
+            if (code != 200 && code != 202 && code != 204 && code != 404) {
+                String responseBody = response.body() != null ? response.body().string() : "No response body";
+                throw new IOException("Unexpected code " + code + ": " + response.message() + " - " + responseBody);
+            }
+        }
+
+        if (code == 404) {
+            report.record(environment.getName(), schemaName, Outcome.NOT_FOUND, "already gone");
+        } else if (code == 202) {
+            awaitDeletion(schemaName, schemaId, environment, report);
+        } else {
+            logger.info("Schema {} deleted from {}", schemaName, environment.getName());
+            report.record(environment.getName(), schemaName, Outcome.DELETED, "id " + schemaId);
+        }
+    }
+
+    /**
+     * Polls the schema service with exponential backoff until the schema no longer resolves to the deleted id.
+     */
+    private static void awaitDeletion(String schemaName, String schemaId, Environment environment, SchemaOperationReport report)
+            throws IOException, InterruptedException {
+        long start = System.currentTimeMillis();
+        long deadline = start + Config.getSchemaDeletePollTimeoutSeconds() * 1000;
+        long delay = INITIAL_POLL_MILLIS;
+
+        while (System.currentTimeMillis() < deadline) {
+            Thread.sleep(Math.min(delay, Math.max(0, deadline - System.currentTimeMillis())));
+            if (!schemaId.equals(HttpClientHelper.fetchSchemaIdUncached(environment, schemaName))) {
+                long elapsed = System.currentTimeMillis() - start;
+                logger.info("Schema {} deleted from {} after {} ms", schemaName, environment.getName(), elapsed);
+                report.record(environment.getName(), schemaName, Outcome.DELETED, "id " + schemaId + ", completed after " + elapsed + " ms");
+                return;
+            }
+            delay = Math.min(delay * 2, MAX_POLL_MILLIS);
+        }
+        report.record(environment.getName(), schemaName, Outcome.FAILED,
+                "delete accepted but schema still present after " + Config.getSchemaDeletePollTimeoutSeconds() + " s");
+    }
+
+    private static Pattern toRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (char c : glob.toCharArray()) {
+            if (c == '*') {
+                regex.append(".*");
+            } else if (c == '?') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE);
+    }
+}
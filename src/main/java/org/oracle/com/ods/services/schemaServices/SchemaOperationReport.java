@@ -0,0 +1,21 @@
+package org.oracle.com.ods.services.schemaServices;
+
+import org.oracle.com.ods.services.utility.OutcomeReport;
+
+/**
+ * The outcome of every schema handled by a bulk schema tool.
+ */
+public class SchemaOperationReport extends OutcomeReport<SchemaOperationReport.Outcome> {
+
+    public enum Outcome {
+        CREATED,
+        EXISTING,
+        DELETED,
+        NOT_FOUND,
+        FAILED
+    }
+
+    public SchemaOperationReport() {
+        super(Outcome.class, "Schema");
+    }
+}
@@ -3,17 +3,23 @@ package org.oracle.com.ods.services.schemaServices.snowflake;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import org.oracle.com.ods.config.Config;
+import org.oracle.com.ods.services.utility.Environment;
+import org.oracle.com.ods.services.utility.EnvironmentFanOut;
+import org.oracle.com.ods.services.utility.EnvironmentRegistry;
 import org.oracle.com.ods.services.utility.HttpClientHelper;
+import org.oracle.com.ods.services.utility.SchemaType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 /**
  * This class handles the creation of a new Snowflake schema by interacting with
  * a remote service via an HTTP POST request. The schema details are provided by the user.
+ * The schema is created in every selected Snowflake environment concurrently.
  */
 public class CreateSnowflakeSchema {
 
@@ -36,17 +42,48 @@ public class CreateSnowflakeSchema {
             return;
         }
 
-        createSnowflakeSchema(schemaName);
+        System.out.print("Which Snowflake environments? (" + String.join(", ", EnvironmentRegistry.getNames()) + "; comma-separated, empty for all): ");
+        List<Environment> environments;
+        try {
+            environments = EnvironmentRegistry.select(scanner.nextLine(), SchemaType.SNOWFLAKE);
+        } catch (IllegalArgumentException e) {
+            logger.error("{}. Exiting...", e.getMessage());
+            return;
+        }
+
+        Map<String, EnvironmentFanOut.Result<Void>> results = EnvironmentFanOut.run(environments, environment -> {
+            createSnowflakeSchema(schemaName, environment);
+            return null;
+        });
+        EnvironmentFanOut.log(logger, "Creating schema " + schemaName, results);
     }
 
     /**
      * Method to create a new Snowflake schema by sending an HTTP POST request with the schema details.
      *
-     * @param schemaName The name of the schema to be created
+     * @param schemaName  The name of the schema to be created
+     * @param environment The environment to create the schema in
+     * @throws IOException If the schema could not be created
      */
-    private static void createSnowflakeSchema(String schemaName) {
-        String token = HttpClientHelper.getStagingOAuthToken();
+    private static void createSnowflakeSchema(String schemaName, Environment environment) throws IOException {
+        ObjectNode snowflakeSchemaBody = buildSchemaBody(schemaName);
 
+        try {
+            HttpClientHelper.post(environment, environment.getSchemaUrl(), snowflakeSchemaBody);
+            logger.info("Schema Created Successfully in {}: {}", environment.getName(), schemaName);
+        } catch (IOException e) {
+            logger.error("Failed to create schema in {}: {}", environment.getName(), schemaName, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Builds the request body that creates a Snowflake schema.
+     *
+     * @param schemaName The name of the schema to be created
+     * @return The request body
+     */
+    public static ObjectNode buildSchemaBody(String schemaName) {
         ObjectMapper objectMapper = new ObjectMapper();
 
         ObjectNode snowflakeSchemaBody = objectMapper.createObjectNode()
@@ -68,11 +105,6 @@ public class CreateSnowflakeSchema {
 
         snowflakeSchemaBody.set("schemaMetadata", schemaMetadataArray);
 
-        try {
-            HttpClientHelper.post(Config.getSnowflakeSchemaUrl(), snowflakeSchemaBody, token, true);
-            logger.info("Schema Created Successfully: {}", schemaName);
-        } catch (IOException e) {
-            logger.error("Failed to create schema: {}", schemaName, e);
-        }
+        return snowflakeSchemaBody;
     }
 }
@@ -1,24 +1,30 @@
 package org.oracle.com.ods.services.schemaServices.snowflake;
 
-import org.oracle.com.ods.config.Config;
+import org.oracle.com.ods.services.utility.Environment;
+import org.oracle.com.ods.services.utility.EnvironmentFanOut;
+import org.oracle.com.ods.services.utility.EnvironmentRegistry;
 import org.oracle.com.ods.services.utility.HttpClientHelper;
 import org.oracle.com.ods.services.utility.SchemaType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 /**
  * This class handles the deletion of an existing Snowflake schema by interacting with
  * a remote service via an HTTP DELETE request. The schema name is provided by the user.
+ * The schema is deleted from every selected Snowflake environment concurrently.
  */
 public class DeleteSnowflakeSchema {
 
     private static final Logger logger = LoggerFactory.getLogger(DeleteSnowflakeSchema.class);
 
     /**
-     * Main method that prompts the user for the schema name and initiates the schema deletion process.
+     * Main method that prompts the user for the schema name and the environments and, once the resolved
+     * environments are confirmed, initiates the schema deletion process.
      *
      * @param args Command line arguments (not used)
      */
@@ -33,39 +39,51 @@ public class DeleteSnowflakeSchema {
             return;
         }
 
-        deleteSnowflakeSchema(schemaName);
+        System.out.print("Which Snowflake environments? (" + String.join(", ", EnvironmentRegistry.getNames()) + "; comma-separated, empty for all): ");
+        List<Environment> environments;
+        try {
+            environments = EnvironmentRegistry.select(scanner.nextLine(), SchemaType.SNOWFLAKE);
+        } catch (IllegalArgumentException e) {
+            logger.error("{}. Exiting...", e.getMessage());
+            return;
+        }
+        if (environments.isEmpty()) {
+            logger.error("No Snowflake environments are configured. Exiting...");
+            return;
+        }
+
+        // an empty selection means every Snowflake environment, so the resolved list is always confirmed
+        System.out.print("Delete schema " + schemaName + " from " + environments + "? (yes/no): ");
+        if (!scanner.nextLine().trim().equalsIgnoreCase("yes")) {
+            logger.info("Nothing was deleted.");
+            return;
+        }
+
+        Map<String, EnvironmentFanOut.Result<Void>> results = EnvironmentFanOut.run(environments, environment -> {
+            deleteSnowflakeSchema(schemaName, environment);
+            return null;
+        });
+        EnvironmentFanOut.log(logger, "Deleting schema " + schemaName, results);
+        logger.info(HttpClientHelper.getCacheStatistics());
     }
 
     /**
      * Method to delete an existing Snowflake schema by sending an HTTP DELETE request with the schema details.
      *
-     * @param schemaName The name of the schema to be deleted
+     * @param schemaName  The name of the schema to be deleted
+     * @param environment The environment to delete the schema from
+     * @throws IOException If the schema could not be found or deleted
      */
-    private static void deleteSnowflakeSchema(String schemaName) {
+    private static void deleteSnowflakeSchema(String schemaName, Environment environment) throws IOException {
         try {
-            String token = HttpClientHelper.getStagingOAuthToken();
-
-            String schemaId = HttpClientHelper.getSchemaId(
-                    Config.getSnowflakeSchemaUrl(),
-                    schemaName,
-                    token,
-                    true,
-                    SchemaType.SNOWFLAKE
-            );
-
-            logger.info("Schema ID retrieved: {}", schemaId);
-
-            HttpClientHelper.deleteSchema(
-                    Config.getSnowflakeSchemaUrl(),
-                    schemaName,
-                    schemaId,
-                    token,
-                    true
-            );
+            String schemaId = HttpClientHelper.getSchemaId(environment, schemaName);
+            logger.info("Schema ID retrieved from {}: {}", environment.getName(), schemaId);
 
-            logger.info("Schema deleted successfully: {}", schemaName);
+            HttpClientHelper.deleteSchema(environment, schemaName, schemaId);
+            logger.info("Schema deleted successfully from {}: {}", environment.getName(), schemaName);
         } catch (IOException e) {
-            logger.error("An error occurred while processing the request to delete schema: {}", schemaName, e);
+            logger.error("An error occurred while processing the request to delete schema {} from {}", schemaName, environment.getName(), e);
+            throw e;
         }
     }
 }
@@ -2,17 +2,23 @@ package org.oracle.com.ods.services.schemaServices.vertica;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import org.oracle.com.ods.config.Config;
+import org.oracle.com.ods.services.utility.Environment;
+import org.oracle.com.ods.services.utility.EnvironmentFanOut;
+import org.oracle.com.ods.services.utility.EnvironmentRegistry;
 import org.oracle.com.ods.services.utility.HttpClientHelper;
+import org.oracle.com.ods.services.utility.SchemaType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 /**
  * This class handles the creation of a new schema in Vertica by sending an HTTP POST request.
  * The schema name is provided by the user.
+ * The schema is created in every selected Vertica environment concurrently.
  */
 public class CreateVerticaSchema {
     private static final Logger logger = LoggerFactory.getLogger(CreateVerticaSchema.class);
@@ -34,18 +40,48 @@ public class CreateVerticaSchema {
             return;
         }
 
-        createVerticaSchemas(schemaName);
+        System.out.print("Which Vertica environments? (" + String.join(", ", EnvironmentRegistry.getNames()) + "; comma-separated, empty for all): ");
+        List<Environment> environments;
+        try {
+            environments = EnvironmentRegistry.select(scanner.nextLine(), SchemaType.VERTICA);
+        } catch (IllegalArgumentException e) {
+            logger.error("{}. Exiting...", e.getMessage());
+            return;
+        }
+
+        Map<String, EnvironmentFanOut.Result<Void>> results = EnvironmentFanOut.run(environments, environment -> {
+            createVerticaSchemas(schemaName, environment);
+            return null;
+        });
+        EnvironmentFanOut.log(logger, "Creating schema " + schemaName, results);
     }
 
     /**
      * Method to create a new schema in Vertica by sending an HTTP POST request with the schema details.
      *
-     * @param schemaName The name of the schema to be created
+     * @param schemaName  The name of the schema to be created
+     * @param environment The environment to create the schema in
      * @throws IOException If an I/O error occurs during the HTTP request
      */
-    private static void createVerticaSchemas(String schemaName) throws IOException {
-        String token = HttpClientHelper.getDevOAuthToken();
+    private static void createVerticaSchemas(String schemaName, Environment environment) throws IOException {
+        ObjectNode fullLoadSchemaBody = buildSchemaBody(schemaName);
 
+        try {
+            HttpClientHelper.post(environment, environment.getSchemaUrl(), fullLoadSchemaBody);
+            logger.info("Schema Created Successfully in {}: {}", environment.getName(), schemaName);
+        } catch (IOException e) {
+            logger.error("Failed to create schema in {}: {}", environment.getName(), schemaName, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Builds the request body that creates a full load Vertica schema.
+     *
+     * @param schemaName The name of the schema to be created
+     * @return The request body
+     */
+    public static ObjectNode buildSchemaBody(String schemaName) {
         ObjectMapper objectMapper = new ObjectMapper();
 
         ObjectNode fullLoadSchemaBody = objectMapper.createObjectNode()
@@ -65,11 +101,6 @@ public class CreateVerticaSchema {
 
         fullLoadSchemaBody.set("attributes", attributesNode);
 
-        try {
-            HttpClientHelper.post(Config.getVerticaSchemaUrl(), fullLoadSchemaBody, token, false);
-            logger.info("Schema Created Successfully: {}", schemaName);
-        } catch (IOException e) {
-            logger.error("Failed to create schema: {}", schemaName, e);
-        }
+        return fullLoadSchemaBody;
     }
 }
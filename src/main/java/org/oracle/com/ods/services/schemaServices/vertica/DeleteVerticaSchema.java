@@ -1,23 +1,29 @@
 package org.oracle.com.ods.services.schemaServices.vertica;
 
-import org.oracle.com.ods.config.Config;
+import org.oracle.com.ods.services.utility.Environment;
+import org.oracle.com.ods.services.utility.EnvironmentFanOut;
+import org.oracle.com.ods.services.utility.EnvironmentRegistry;
 import org.oracle.com.ods.services.utility.HttpClientHelper;
 import org.oracle.com.ods.services.utility.SchemaType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 /**
  * This class handles the deletion of a schema in Vertica by sending an HTTP DELETE request.
  * The schema name is provided by the user.
+ * The schema is deleted from every selected Vertica environment concurrently.
  */
 public class DeleteVerticaSchema {
     private static final Logger logger = LoggerFactory.getLogger(DeleteVerticaSchema.class);
 
     /**
-     * Main method that prompts the user for the schema name and initiates the schema deletion process.
+     * Main method that prompts the user for the schema name and the environments and, once the resolved
+     * environments are confirmed, initiates the schema deletion process.
      *
      * @param args Command line arguments (not used)
      */
@@ -32,24 +38,51 @@ public class DeleteVerticaSchema {
             return;
         }
 
+        System.out.print("Which Vertica environments? (" + String.join(", ", EnvironmentRegistry.getNames()) + "; comma-separated, empty for all): ");
+        List<Environment> environments;
         try {
-            String token = HttpClientHelper.getDevOAuthToken();
-            String schemaId = HttpClientHelper.getSchemaId(Config.getVerticaSchemaUrl(), schemaName, token, false, SchemaType.VERTICA);
+            environments = EnvironmentRegistry.select(scanner.nextLine(), SchemaType.VERTICA);
+        } catch (IllegalArgumentException e) {
+            logger.error("{}. Exiting...", e.getMessage());
+            return;
+        }
+        if (environments.isEmpty()) {
+            logger.error("No Vertica environments are configured. Exiting...");
+            return;
+        }
 
-            if (schemaId == null || schemaId.isEmpty()) {
-                logger.error("Failed to retrieve schema ID for schema: {}", schemaName);
-                return;
-            }
+        // an empty selection means every Vertica environment, so the resolved list is always confirmed
+        System.out.print("Delete schema " + schemaName + " from " + environments + "? (yes/no): ");
+        if (!scanner.nextLine().trim().equalsIgnoreCase("yes")) {
+            logger.info("Nothing was deleted.");
+            return;
+        }
 
-            logger.info("Schema ID retrieved: {}", schemaId);
+        Map<String, EnvironmentFanOut.Result<Void>> results = EnvironmentFanOut.run(environments, environment -> {
+            deleteVerticaSchema(schemaName, environment);
+            return null;
+        });
+        EnvironmentFanOut.log(logger, "Deleting schema " + schemaName, results);
+        logger.info(HttpClientHelper.getCacheStatistics());
+    }
 
-            HttpClientHelper.deleteSchema(Config.getVerticaSchemaUrl(), schemaName, schemaId, token, false);
-            logger.info("Schema Deleted Successfully: {}", schemaName);
+    /**
+     * Deletes the schema with the given name from one Vertica environment.
+     *
+     * @param schemaName  The name of the schema to be deleted
+     * @param environment The environment to delete the schema from
+     * @throws IOException If the schema could not be found or deleted
+     */
+    private static void deleteVerticaSchema(String schemaName, Environment environment) throws IOException {
+        try {
+            String schemaId = HttpClientHelper.getSchemaId(environment, schemaName);
+            logger.info("Schema ID retrieved from {}: {}", environment.getName(), schemaId);
 
+            HttpClientHelper.deleteSchema(environment, schemaName, schemaId);
+            logger.info("Schema Deleted Successfully from {}: {}", environment.getName(), schemaName);
         } catch (IOException e) {
-            logger.error("An error occurred while processing the request for schema: {}", schemaName, e);
-        } finally {
-            scanner.close();
+            logger.error("An error occurred while processing the request for schema {} in {}", schemaName, environment.getName(), e);
+            throw e;
         }
     }
 }
@@ -0,0 +1,114 @@
+package org.oracle.com.ods.services.utility;
+
+/**
+ * One deployment of the model mapping and schema services, with its base URLs, OAuth
+ * credentials and proxy route. Instances are created by {@link EnvironmentRegistry}.
+ */
+public class Environment {
+
+    private final String name;
+    private final SchemaType schemaType;
+    private final String modelMappingUrl;
+    private final String schemaUrl;
+    private final String oauthUrl;
+    private final String consumerKey;
+    private final String consumerSecret;
+    private final String proxyHost;
+    private final int modelMappingProxyPort;
+    private final int modelMappingDeleteProxyPort;
+    private final int schemaProxyPort;
+
+    /**
+     * @param name                  The name the environment is selected by
+     * @param schemaType            The warehouse behind the schema service, which decides the schema request and response shapes
+     * @param modelMappingUrl       The model mapping service URL
+     * @param schemaUrl             The schema service URL
+     * @param oauthUrl              The OAuth access URL
+     * @param consumerKey           The OAuth consumer key
+     * @param consumerSecret        The OAuth consumer secret
+     * @param proxyHost             The proxy host, used when a proxy port is set
+     * @param modelMappingProxyPort       The proxy port for the model mapping service, 0 for a direct connection
+     * @param modelMappingDeleteProxyPort The proxy port for deletes from the model mapping service, 0 for a direct connection
+     * @param schemaProxyPort             The proxy port for the schema service, 0 for a direct connection
+     */
+    public Environment(String name, SchemaType schemaType, String modelMappingUrl, String schemaUrl,
+                       String oauthUrl, String consumerKey, String consumerSecret,
+                       String proxyHost, int modelMappingProxyPort, int modelMappingDeleteProxyPort, int schemaProxyPort) {
+        this.name = name;
+        this.schemaType = schemaType;
+        this.modelMappingUrl = modelMappingUrl;
+        this.schemaUrl = schemaUrl;
+        this.oauthUrl = oauthUrl;
+        this.consumerKey = consumerKey;
+        this.consumerSecret = consumerSecret;
+        this.proxyHost = proxyHost;
+        this.modelMappingProxyPort = modelMappingProxyPort;
+        this.modelMappingDeleteProxyPort = modelMappingDeleteProxyPort;
+        this.schemaProxyPort = schemaProxyPort;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public SchemaType getSchemaType() {
+        return schemaType;
+    }
+
+    public String getModelMappingUrl() {
+        return modelMappingUrl;
+    }
+
+    public String getSchemaUrl() {
+        return schemaUrl;
+    }
+
+    public String getOAuthUrl() {
+        return oauthUrl;
+    }
+
+    public String getConsumerKey() {
+        return consumerKey;
+    }
+
+    public String getConsumerSecret() {
+        return consumerSecret;
+    }
+
+    public String getProxyHost() {
+        return proxyHost;
+    }
+
+    /**
+     * @param url A URL of this environment
+     * @return The proxy port requests to the URL are routed through, 0 for a direct connection
+     */
+    public int getProxyPort(String url) {
+        if (modelMappingUrl != null && url.startsWith(modelMappingUrl)) {
+            return modelMappingProxyPort;
+        }
+        if (schemaUrl != null && url.startsWith(schemaUrl)) {
+            return schemaProxyPort;
+        }
+        return 0;
+    }
+
+    /**
+     * Like {@link #getProxyPort(String)}, but for DELETE requests, which may take a different route
+     * to the model mapping service.
+     *
+     * @param url A URL of this environment
+     * @return The proxy port deletes from the URL are routed through, 0 for a direct connection
+     */
+    public int getDeleteProxyPort(String url) {
+        if (modelMappingUrl != null && url.startsWith(modelMappingUrl)) {
+            return modelMappingDeleteProxyPort;
+        }
+        return getProxyPort(url);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
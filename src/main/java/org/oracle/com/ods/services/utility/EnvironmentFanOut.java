@@ -0,0 +1,120 @@
+package org.oracle.com.ods.services.utility;
+
+import org.slf4j.Logger;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs one operation against several environments concurrently. A failure in one environment
+ * does not stop the others; every environment gets its own {@link Result}.
+ */
+public class EnvironmentFanOut {
+
+    private EnvironmentFanOut() {
+    }
+
+    /**
+     * An operation against a single environment.
+     */
+    @FunctionalInterface
+    public interface EnvironmentTask<T> {
+        T run(Environment environment) throws Exception;
+    }
+
+    /**
+     * The outcome of an operation in one environment.
+     */
+    public static class Result<T> {
+        private final T value;
+        private final Throwable error;
+        private final long durationMillis;
+
+        private Result(T value, Throwable error, long durationMillis) {
+            this.value = value;
+            this.error = error;
+            this.durationMillis = durationMillis;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        public Throwable getError() {
+            return error;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+    }
+
+    /**
+     * Runs the task in every given environment on its own thread and waits for all of them.
+     *
+     * @param environments The environments to run in
+     * @param task         The operation
+     * @return The result of every environment keyed by environment name, in the given order
+     */
+    public static <T> Map<String, Result<T>> run(List<Environment> environments, EnvironmentTask<T> task) {
+        Map<String, Result<T>> results = new LinkedHashMap<>();
+        if (environments.isEmpty()) {
+            return results;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(environments.size(), runnable -> {
+            Thread thread = new Thread(runnable, "environment-fan-out");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Map<String, Future<Result<T>>> futures = new LinkedHashMap<>();
+            for (Environment environment : environments) {
+                futures.put(environment.getName(), executor.submit(() -> {
+                    long start = System.currentTimeMillis();
+                    try {
+                        return new Result<>(task.run(environment), null, System.currentTimeMillis() - start);
+                    } catch (Exception e) {
+                        return new Result<T>(null, e, System.currentTimeMillis() - start);
+                    }
+                }));
+            }
+            for (Map.Entry<String, Future<Result<T>>> entry : futures.entrySet()) {
+                try {
+                    results.put(entry.getKey(), entry.getValue().get());
+                } catch (ExecutionException e) {
+                    results.put(entry.getKey(), new Result<>(null, e.getCause(), 0));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    /**
+     * Logs one line per environment with the outcome of the operation.
+     *
+     * @param logger    The logger to write to
+     * @param operation A short description of the operation
+     * @param results   The results returned by {@link #run(List, EnvironmentTask)}
+     */
+    public static void log(Logger logger, String operation, Map<String, ? extends Result<?>> results) {
+        results.forEach((environment, result) -> {
+            if (result.isSuccess()) {
+                logger.info("{} in {} finished in {} ms", operation, environment, result.getDurationMillis());
+            } else {
+                logger.error("{} in {} failed after {} ms: {}", operation, environment, result.getDurationMillis(), result.getError().getMessage());
+            }
+        });
+    }
+}
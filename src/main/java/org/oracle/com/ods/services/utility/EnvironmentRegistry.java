@@ -0,0 +1,148 @@
+package org.oracle.com.ods.services.utility;
+
+import org.oracle.com.ods.config.Config;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Registry of the environments listed in the {@code environments} config entry. Every environment is
+ * described by {@code environment.<name>.*} entries; {@code dev} and {@code staging} fall back to the
+ * original {@code vertica.*}, {@code snowflake.*} and {@code proxy.*} entries, so existing config files
+ * keep working unchanged.
+ */
+public class EnvironmentRegistry {
+
+    public static final String DEV = "dev";
+    public static final String STAGING = "staging";
+
+    private static final Map<String, Environment> environments = load();
+
+    private EnvironmentRegistry() {
+    }
+
+    /**
+     * @param name The environment name
+     * @return The environment
+     * @throws IllegalArgumentException If no environment with that name is configured
+     */
+    public static Environment get(String name) {
+        Environment environment = environments.get(name.trim().toLowerCase());
+        if (environment == null) {
+            throw new IllegalArgumentException("Unknown environment: " + name + ". Configured environments: " + environments.keySet());
+        }
+        return environment;
+    }
+
+    /**
+     * @return Every configured environment, in configuration order
+     */
+    public static List<Environment> getAll() {
+        return new ArrayList<>(environments.values());
+    }
+
+    /**
+     * @return The names of every configured environment, in configuration order
+     */
+    public static Set<String> getNames() {
+        return Collections.unmodifiableSet(environments.keySet());
+    }
+
+    /**
+     * Parses a user selection of environments.
+     *
+     * @param selection Comma-separated environment names, or {@code all}
+     * @return The selected environments, without duplicates
+     * @throws IllegalArgumentException If a name is not configured
+     */
+    public static List<Environment> select(String selection) {
+        if (selection.trim().equalsIgnoreCase("all")) {
+            return getAll();
+        }
+        Set<Environment> selected = new LinkedHashSet<>();
+        for (String name : selection.split(",")) {
+            if (!name.trim().isEmpty()) {
+                selected.add(get(name));
+            }
+        }
+        return new ArrayList<>(selected);
+    }
+
+    /**
+     * Like {@link #select(String)}, but only accepts environments whose schema service is backed by the given warehouse.
+     *
+     * @param selection  Comma-separated environment names, {@code all}, or empty for the environments of that warehouse
+     * @param schemaType The required warehouse
+     * @return The selected environments
+     * @throws IllegalArgumentException If a name is not configured or belongs to another warehouse
+     */
+    public static List<Environment> select(String selection, SchemaType schemaType) {
+        List<Environment> selected = new ArrayList<>();
+        if (selection.trim().isEmpty() || selection.trim().equalsIgnoreCase("all")) {
+            for (Environment environment : environments.values()) {
+                if (environment.getSchemaType() == schemaType) {
+                    selected.add(environment);
+                }
+            }
+            return selected;
+        }
+        for (Environment environment : select(selection)) {
+            if (environment.getSchemaType() != schemaType) {
+                throw new IllegalArgumentException("Environment " + environment.getName() + " is not a " + schemaType + " environment");
+            }
+            selected.add(environment);
+        }
+        return selected;
+    }
+
+    private static Map<String, Environment> load() {
+        Map<String, Environment> loaded = new LinkedHashMap<>();
+        for (String name : Config.getEnvironmentNames()) {
+            String key = name.trim().toLowerCase();
+            if (!key.isEmpty()) {
+                loaded.put(key, build(key));
+            }
+        }
+        return Collections.unmodifiableMap(loaded);
+    }
+
+    private static Environment build(String name) {
+        boolean dev = name.equals(DEV);
+        boolean staging = name.equals(STAGING);
+
+        SchemaType schemaType = SchemaType.valueOf(property(name, "type",
+                dev ? () -> SchemaType.VERTICA.name() : staging ? () -> SchemaType.SNOWFLAKE.name() : null).toUpperCase());
+
+        // staging reads and writes mappings through SphereStage but has always deleted them through the staging proxy
+        String modelMappingProxyPort = property(name, "model.mapping.proxy.port",
+                staging ? () -> String.valueOf(Config.getProxyPortSphereStage()) : () -> "0");
+        String modelMappingDeleteProxyPort = property(name, "model.mapping.delete.proxy.port",
+                staging ? () -> String.valueOf(Config.getProxyPortStaging()) : () -> modelMappingProxyPort);
+
+        return new Environment(
+                name,
+                schemaType,
+                property(name, "model.mapping.url", dev ? Config::getDevModelMappingUrl : staging ? Config::getStagingModelMappingUrl : null),
+                property(name, "schema.url", dev ? Config::getVerticaSchemaUrl : staging ? Config::getSnowflakeSchemaUrl : null),
+                property(name, "oauth.url", dev ? Config::getDevOAuthAccessUrl : staging ? Config::getStagingOAuthAccessUrl : null),
+                property(name, "consumer.key", dev ? Config::getDevOAuthConsumerKey : staging ? Config::getStagingOAuthConsumerKey : null),
+                property(name, "consumer.secret", dev ? Config::getDevOAuthConsumerSecret : staging ? Config::getStagingOAuthConsumerSecret : null),
+                property(name, "proxy.host", Config::getProxyHost),
+                Integer.parseInt(modelMappingProxyPort),
+                Integer.parseInt(modelMappingDeleteProxyPort),
+                Integer.parseInt(property(name, "schema.proxy.port",
+                        staging ? () -> String.valueOf(Config.getProxyPortStaging()) : () -> "0"))
+        );
+    }
+
+    private static String property(String name, String key, Supplier<String> fallback) {
+        String value = Config.getEnvironmentProperty(name, key);
+        if (value != null) {
+            return value;
+        }
+        if (fallback == null) {
+            throw new IllegalStateException("Missing config entry environment." + name + "." + key);
+        }
+        return fallback.get();
+    }
+}
@@ -0,0 +1,82 @@
+package org.oracle.com.ods.services.utility;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.GzipSink;
+import okio.Okio;
+import okio.Sink;
+
+import java.io.IOException;
+
+/**
+ * Request body that gzip-compresses another request body up front so that the compressed
+ * length is known before the request is sent and the body can be replayed on retries.
+ */
+public class GzipRequestBody extends RequestBody {
+
+    private final MediaType contentType;
+    private final Buffer compressed;
+    private final long originalLength;
+
+    private GzipRequestBody(MediaType contentType, Buffer compressed, long originalLength) {
+        this.contentType = contentType;
+        this.compressed = compressed;
+        this.originalLength = originalLength;
+    }
+
+    /**
+     * Compresses the given body into memory.
+     *
+     * @param delegate The uncompressed request body
+     * @return The compressed request body
+     * @throws IOException If the delegate body cannot be written
+     */
+    public static GzipRequestBody compress(RequestBody delegate) throws IOException {
+        Buffer compressed = new Buffer();
+        CountingSink counter = new CountingSink(new GzipSink(compressed));
+        try (BufferedSink sink = Okio.buffer(counter)) {
+            delegate.writeTo(sink);
+        }
+        return new GzipRequestBody(delegate.contentType(), compressed, counter.bytesWritten);
+    }
+
+    @Override
+    public MediaType contentType() {
+        return contentType;
+    }
+
+    @Override
+    public long contentLength() {
+        return compressed.size();
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        sink.write(compressed.snapshot());
+    }
+
+    public long getOriginalLength() {
+        return originalLength;
+    }
+
+    public long getBytesSaved() {
+        return originalLength - compressed.size();
+    }
+
+    private static class CountingSink extends ForwardingSink {
+        private long bytesWritten;
+
+        CountingSink(Sink delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void write(Buffer source, long byteCount) throws IOException {
+            super.write(source, byteCount);
+            bytesWritten += byteCount;
+        }
+    }
+}
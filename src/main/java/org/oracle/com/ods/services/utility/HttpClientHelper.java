@@ -3,18 +3,20 @@ package org.oracle.com.ods.services.utility;
 import com.cerner.pophealth.programs.util.AuthHeader;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import okhttp3.*;
-import org.json.JSONArray;
-import org.json.JSONObject;
 import org.oracle.com.ods.config.Config;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
 import java.time.Duration;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utility class for handling HTTP requests and OAuth token management.
@@ -24,8 +26,12 @@ public class HttpClientHelper {
     private static final MediaType JSON_MEDIA_TYPE = MediaType.parse("application/json");
 
     private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final Cache cache = buildCache();
     private static final OkHttpClient defaultClient = buildDefaultClient();
-    private static final OkHttpClient proxyClient = buildProxyClient(Config.getProxyHost(), Config.getProxyPortStaging());
+    private static final Map<String, OkHttpClient> proxyClients = new ConcurrentHashMap<>();
+    private static final Map<String, String> tokens = new ConcurrentHashMap<>();
+    private static final Map<String, Boolean> gzipSupport = new ConcurrentHashMap<>();
+    private static final SingleFlight<Object> sharedGets = new SingleFlight<>(Config.getHttpCoalesceMemoMillis());
 
 
     private static OkHttpClient buildDefaultClient() {
@@ -33,6 +39,8 @@ public class HttpClientHelper {
                 .connectTimeout(TIMEOUT)
                 .writeTimeout(TIMEOUT)
                 .readTimeout(TIMEOUT)
+                .cache(cache)
+                .addNetworkInterceptor(HttpClientHelper::applyDefaultCacheTtl)
                 .build();
     }
 
@@ -41,32 +49,173 @@ public class HttpClientHelper {
                 .connectTimeout(TIMEOUT)
                 .writeTimeout(TIMEOUT)
                 .readTimeout(TIMEOUT)
+                .cache(cache)
+                .addNetworkInterceptor(HttpClientHelper::applyDefaultCacheTtl)
                 .proxy(new Proxy(Proxy.Type.HTTP, new InetSocketAddress(proxyHost, proxyPort)))
                 .build();
     }
 
+    /**
+     * Builds the bounded on-disk response cache shared by all clients. OkHttp revalidates cached
+     * responses carrying an ETag or Last-Modified header with conditional requests.
+     */
+    private static Cache buildCache() {
+        if (!Config.isHttpCacheEnabled()) {
+            return null;
+        }
+        return new Cache(new File(Config.getHttpCacheDir()), Config.getHttpCacheMaxBytes());
+    }
+
+    /**
+     * Lets GET responses without any validator or caching header live in the cache for the configured TTL.
+     */
+    private static Response applyDefaultCacheTtl(Interceptor.Chain chain) throws IOException {
+        Response response = chain.proceed(chain.request());
+        long ttlSeconds = Config.getHttpCacheTtlSeconds();
+
+        if (ttlSeconds <= 0
+                || !"GET".equals(chain.request().method())
+                || response.header("ETag") != null
+                || response.header("Last-Modified") != null
+                || response.header("Cache-Control") != null) {
+            return response;
+        }
+        return response.newBuilder()
+                .header("Cache-Control", "max-age=" + ttlSeconds)
+                .build();
+    }
+
     public static OkHttpClient createCustomProxyClient(String proxyHost, int proxyPort) {
         return buildProxyClient(proxyHost, proxyPort);
     }
 
     public static String get(String url, Map<String, String> params, String token, boolean useProxy) throws IOException {
-        OkHttpClient client = shouldUseCustomProxy(url) ? createCustomProxyClient(Config.getProxyHost(), Config.getProxyPortSphereStage()) : getClient(useProxy);
+        OkHttpClient client = getClient(url, useProxy);
 
-        HttpUrl.Builder urlBuilder = HttpUrl.parse(url).newBuilder();
-        params.forEach(urlBuilder::addQueryParameter);
+        try (Response response = client.newCall(buildGetRequest(url, params, token)).execute()) {
+            return handleResponse(response);
+        }
+    }
 
-        Request request = buildRequest(urlBuilder.build().toString(), token)
-                .get()
+    /**
+     * Issues a GET and hands the response body stream to the given handler instead of buffering it.
+     */
+    public static <T> T get(String url, Map<String, String> params, String token, boolean useProxy, ResponseHandler<T> handler) throws IOException {
+        return get(getClient(url, useProxy), url, params, token, handler);
+    }
+
+    /**
+     * Issues a GET against the given environment and hands the response body stream to the handler.
+     */
+    public static <T> T get(Environment environment, String url, Map<String, String> params, ResponseHandler<T> handler) throws IOException {
+        return get(getClient(environment, url), url, params, getOAuthToken(environment), handler);
+    }
+
+    /**
+     * Like {@link #get(Environment, String, Map, ResponseHandler)}, but identical concurrent calls share one request
+     * and its parsed result, which is also memoized for {@code http.coalesce.memo.millis}. Calls are identical when
+     * they target the same environment, URL and parameters and extract the same view; the view must therefore name
+     * everything that distinguishes the handler. The result is shared between callers and must not be modified.
+     *
+     * @param view Names what the handler extracts from the response, e.g. {@code schemaId}
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T getShared(Environment environment, String url, Map<String, String> params, String view, ResponseHandler<T> handler) throws IOException {
+        return (T) sharedGets.execute(sharedKey(environment.getName(), view, url, params), () -> get(environment, url, params, handler));
+    }
+
+    /**
+     * Like {@link #get(Environment, String, Map, ResponseHandler)}, but always asks the service, bypassing the response
+     * cache and request coalescing. Use it for reads that decide what is posted or deleted next, which must see the
+     * changes made by others since the response was cached.
+     */
+    public static <T> T getUncached(Environment environment, String url, Map<String, String> params, ResponseHandler<T> handler) throws IOException {
+        Request request = buildGetRequest(url, params, getOAuthToken(environment))
+                .newBuilder()
+                .cacheControl(CacheControl.FORCE_NETWORK)
                 .build();
+        return get(getClient(environment, url), request, handler);
+    }
+
+    private static <T> T get(OkHttpClient client, String url, Map<String, String> params, String token, ResponseHandler<T> handler) throws IOException {
+        return get(client, buildGetRequest(url, params, token), handler);
+    }
 
+    private static <T> T get(OkHttpClient client, Request request, ResponseHandler<T> handler) throws IOException {
         try (Response response = client.newCall(request).execute()) {
-            return handleResponse(response);
+            validateResponse(response);
+            if (response.body() == null) {
+                throw new IOException("Response body is null");
+            }
+            return handler.handle(response.body().byteStream());
         }
     }
 
     public static void post(String url, ObjectNode body, String token, boolean useProxy) throws IOException {
-        OkHttpClient client = shouldUseCustomProxy(url) ? createCustomProxyClient(Config.getProxyHost(), Config.getProxyPortSphereStage()) : getClient(useProxy);
-        RequestBody requestBody = RequestBody.create(body.toString(), JSON_MEDIA_TYPE);
+        post(url, RequestBody.create(body.toString(), JSON_MEDIA_TYPE), token, useProxy);
+    }
+
+    /**
+     * Posts the given body, gzip-compressing it when enabled and the endpoint has not previously
+     * rejected compressed bodies. A compressed body rejected with 400 or 415 is retried uncompressed.
+     */
+    public static void post(String url, RequestBody requestBody, String token, boolean useProxy) throws IOException {
+        post(getClient(url, useProxy), url, requestBody, token);
+    }
+
+    public static void post(Environment environment, String url, ObjectNode body) throws IOException {
+        post(environment, url, RequestBody.create(body.toString(), JSON_MEDIA_TYPE));
+    }
+
+    /**
+     * Posts the given body to the given environment, see {@link #post(String, RequestBody, String, boolean)}.
+     */
+    public static void post(Environment environment, String url, RequestBody requestBody) throws IOException {
+        post(getClient(environment, url), url, requestBody, getOAuthToken(environment));
+    }
+
+    private static void post(OkHttpClient client, String url, RequestBody requestBody, String token) throws IOException {
+        try {
+            postBody(client, url, requestBody, token);
+        } finally {
+            evictCached(url);
+        }
+    }
+
+    private static void postBody(OkHttpClient client, String url, RequestBody requestBody, String token) throws IOException {
+        String endpoint = endpointKey(url);
+
+        if (shouldGzip(endpoint, requestBody)) {
+            GzipRequestBody gzipBody = GzipRequestBody.compress(requestBody);
+
+            Request request = buildRequest(url, token)
+                    .header("Content-Encoding", "gzip")
+                    .post(gzipBody)
+                    .build();
+
+            try (Response response = client.newCall(request).execute()) {
+                if (response.isSuccessful()) {
+                    gzipSupport.put(endpoint, true);
+                    logger.info("Posted gzip body to {}: {} -> {} bytes ({} bytes saved)",
+                            endpoint, gzipBody.getOriginalLength(), gzipBody.contentLength(), gzipBody.getBytesSaved());
+                    return;
+                }
+                if (response.code() != 400 && response.code() != 415) {
+                    handleUnexpectedResponse(response);
+                }
+                logger.warn("Endpoint {} rejected gzip body with code {}, retrying uncompressed", endpoint, response.code());
+            }
+
+            Request plainRequest = buildRequest(url, token)
+                    .post(requestBody)
+                    .build();
+
+            try (Response response = client.newCall(plainRequest).execute()) {
+                validateResponse(response);
+                gzipSupport.put(endpoint, false);
+            }
+            return;
+        }
 
         Request request = buildRequest(url, token)
                 .post(requestBody)
@@ -78,72 +227,117 @@ public class HttpClientHelper {
     }
 
     public static Response delete(String url, String objectId, String token, boolean useProxy) throws IOException {
-        OkHttpClient client = getClient(useProxy);
+        return delete(getClient(useProxy), url, objectId, token);
+    }
 
+    public static Response delete(Environment environment, String url, String objectId) throws IOException {
+        int proxyPort = environment.getDeleteProxyPort(url);
+        OkHttpClient client = proxyPort > 0 ? getProxyClient(environment.getProxyHost(), proxyPort) : defaultClient;
+        return delete(client, url, objectId, getOAuthToken(environment));
+    }
+
+    private static Response delete(OkHttpClient client, String url, String objectId, String token) throws IOException {
         Request request = buildRequest(url + "/" + objectId, token)
                 .delete()
                 .build();
 
-        return client.newCall(request).execute();
+        Response response = client.newCall(request).execute();
+        evictCached(url);
+        return response;
     }
 
     public static String getSchemaId(String url, String schemaName, String token, boolean useProxy, SchemaType schemaType) throws IOException {
-        String responseBody = get(url, Map.of("name", schemaName), token, useProxy);
+        if (schemaType != SchemaType.VERTICA && schemaType != SchemaType.SNOWFLAKE) {
+            throw new IllegalArgumentException("Unknown schema type: " + schemaType);
+        }
 
-        if (schemaType == SchemaType.VERTICA) {
-            JSONArray jsonArray = new JSONArray(responseBody);
-            if (jsonArray.isEmpty()) {
-                throw new IOException("No schema found with the name: " + schemaName);
-            }
-            JSONObject schemaObject = jsonArray.getJSONObject(0);
-            return String.valueOf(schemaObject.getInt("id"));
-        }
-        else if (schemaType == SchemaType.SNOWFLAKE) {
-            JSONObject jsonResponse = new JSONObject(responseBody);
-            JSONArray itemsArray = jsonResponse.getJSONArray("items");
-            if (itemsArray.isEmpty()) {
-                throw new IOException("No schema found with the name: " + schemaName);
-            }
-            JSONObject schemaObject = itemsArray.getJSONObject(0);
-            return schemaObject.getString("id");
+        Map<String, String> params = Map.of("name", schemaName);
+        String scope = "token:" + Integer.toHexString(String.valueOf(token).hashCode());
+        String schemaId = (String) sharedGets.execute(sharedKey(scope, "schemaId:" + schemaType, url, params),
+                () -> get(url, params, token, useProxy, JsonResponseHandlers.firstSchemaId(schemaType)));
+        if (schemaId == null) {
+            throw new IOException("No schema found with the name: " + schemaName);
         }
-        else {
-            throw new IllegalArgumentException("Unknown schema type: " + schemaType);
+        return schemaId;
+    }
+
+    /**
+     * Looks up the id of a schema about to be deleted straight from the schema service of the given environment,
+     * so a schema dropped and recreated by someone else is never deleted under its old id.
+     *
+     * @throws IOException If the lookup fails or no schema has that name
+     */
+    public static String getSchemaId(Environment environment, String schemaName) throws IOException {
+        String schemaId = fetchSchemaIdUncached(environment, schemaName);
+        if (schemaId == null) {
+            throw new IOException("No schema found with the name: " + schemaName + " in " + environment.getName());
         }
+        return schemaId;
+    }
+
+    /**
+     * Looks up the id of a schema straight from the service, bypassing the response cache and request
+     * coalescing, for polling until an asynchronous change has been applied.
+     *
+     * @return The schema id, or null if no schema has that name
+     */
+    public static String fetchSchemaIdUncached(Environment environment, String schemaName) throws IOException {
+        return getUncached(environment, environment.getSchemaUrl(), Map.of("name", schemaName),
+                JsonResponseHandlers.firstSchemaId(environment.getSchemaType()));
+    }
+
+    /**
+     * Lists every schema of the given environment straight from the service, bypassing the response cache and
+     * request coalescing, for listings that decide which schemas are created or deleted.
+     *
+     * @return The schema ids keyed by schema name
+     */
+    public static Map<String, String> listSchemasUncached(Environment environment) throws IOException {
+        return getUncached(environment, environment.getSchemaUrl(), Map.of(),
+                JsonResponseHandlers.schemaIds(environment.getSchemaType()));
     }
 
     public static void deleteSchema(String url, String schemaName, String schemaId, String token, boolean useProxy) throws IOException {
         try (Response response = delete(url, schemaId, token, useProxy)) {
-            if (response.code() == 204) {
-                logger.info("Schema {} deleted successfully with ID: {}", schemaName, schemaId);
-            } else {
-                handleUnexpectedResponse(response);
-            }
+            checkSchemaDeleted(response, schemaName, schemaId);
+        }
+    }
+
+    public static void deleteSchema(Environment environment, String schemaName, String schemaId) throws IOException {
+        try (Response response = delete(environment, environment.getSchemaUrl(), schemaId)) {
+            checkSchemaDeleted(response, schemaName, schemaId);
+        }
+    }
+
+    private static void checkSchemaDeleted(Response response, String schemaName, String schemaId) throws IOException {
+        if (response.code() == 204) {
+            logger.info("Schema {} deleted successfully with ID: {}", schemaName, schemaId);
+        } else {
+            handleUnexpectedResponse(response);
         }
     }
 
     public static String extractIdForMapping(String mappingId, String targetVersion, String token, SchemaType service) throws IOException {
-        String id = null;
         String stagingUrl = (service != SchemaType.VERTICA) ? Config.getStagingModelMappingUrl() : Config.getDevModelMappingUrl();
 
         Map<String, String> queryParams = new HashMap<>();
         queryParams.put("mapping_id", mappingId);
 
-        String responseBody = get(stagingUrl, queryParams, token, service != SchemaType.VERTICA);
-
-        JSONObject jsonResponse = new JSONObject(responseBody);
-        JSONArray itemsArray = jsonResponse.getJSONArray("items");
-
-        for(int i = 0; i < itemsArray.length(); i++) {
-            JSONObject item = itemsArray.getJSONObject(i);
-            String version = item.getString("version");
+        return get(stagingUrl, queryParams, token, service != SchemaType.VERTICA, JsonResponseHandlers.mappingIdForVersion(targetVersion));
+    }
 
-            if(version.equals(targetVersion)) {
-                id = String.valueOf(item.getInt("id"));
-                break;
-            }
+    /**
+     * Returns the OAuth authorization header of the environment, requesting it on first use.
+     *
+     * @throws IOException If no token could be obtained
+     */
+    public static String getOAuthToken(Environment environment) throws IOException {
+        String token = tokens.computeIfAbsent(environment.getName(),
+                name -> getOauthToken(environment.getOAuthUrl(), environment.getConsumerKey(), environment.getConsumerSecret()));
+        if (token == null) {
+            throw new IOException("Failed to get an OAuth token for " + environment.getName());
         }
-        return id;
+        return token;
     }
 
     public static String getDevOAuthToken() {
@@ -154,8 +348,60 @@ public class HttpClientHelper {
         return getOauthToken(Config.getStagingOAuthAccessUrl(), Config.getStagingOAuthConsumerKey(), Config.getStagingOAuthConsumerSecret());
     }
 
+    /**
+     * @return Hit, miss and network counters of the response cache, for logging at the end of a run
+     */
+    public static String getCacheStatistics() {
+        String coalescing = String.format("; coalesced GETs: %d executed, %d shared",
+                sharedGets.getExecutedCount(), sharedGets.getSharedCount());
+        if (cache == null) {
+            return "HTTP cache disabled" + coalescing;
+        }
+        int requests = cache.requestCount();
+        int hits = cache.hitCount();
+        return String.format("HTTP cache: %d requests, %d hits, %d misses, %d network calls",
+                requests, hits, requests - hits, cache.networkCount()) + coalescing;
+    }
+
+    /**
+     * Drops every cached and memoized response under the given endpoint after it has been changed.
+     */
+    private static void evictCached(String url) {
+        String prefix = endpointKey(url);
+        sharedGets.forget(key -> key.split("\\|", 4)[2].startsWith(prefix));
+        if (cache == null) {
+            return;
+        }
+        try {
+            Iterator<String> urls = cache.urls();
+            while (urls.hasNext()) {
+                if (urls.next().startsWith(prefix)) {
+                    urls.remove();
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to evict cached responses for {}", prefix, e);
+        }
+    }
+
     private static OkHttpClient getClient(boolean useProxy) {
-        return useProxy ? proxyClient : defaultClient;
+        return useProxy ? getProxyClient(Config.getProxyHost(), Config.getProxyPortStaging()) : defaultClient;
+    }
+
+    private static OkHttpClient getClient(String url, boolean useProxy) {
+        return shouldUseCustomProxy(url) ? getProxyClient(Config.getProxyHost(), Config.getProxyPortSphereStage()) : getClient(useProxy);
+    }
+
+    private static OkHttpClient getClient(Environment environment, String url) {
+        int proxyPort = environment.getProxyPort(url);
+        return proxyPort > 0 ? getProxyClient(environment.getProxyHost(), proxyPort) : defaultClient;
+    }
+
+    /**
+     * Returns the shared client of a proxy route, so all environments using the same proxy share one connection pool.
+     */
+    private static OkHttpClient getProxyClient(String proxyHost, int proxyPort) {
+        return proxyClients.computeIfAbsent(proxyHost + ":" + proxyPort, route -> buildProxyClient(proxyHost, proxyPort));
     }
 
     private static Request.Builder buildRequest(String url, String token) {
@@ -164,6 +410,15 @@ public class HttpClientHelper {
                 .addHeader("Authorization", token);
     }
 
+    private static Request buildGetRequest(String url, Map<String, String> params, String token) {
+        HttpUrl.Builder urlBuilder = HttpUrl.parse(url).newBuilder();
+        params.forEach(urlBuilder::addQueryParameter);
+
+        return buildRequest(urlBuilder.build().toString(), token)
+                .get()
+                .build();
+    }
+
     private static void validateResponse(Response response) throws IOException {
         if (!response.isSuccessful()) {
             handleUnexpectedResponse(response);
@@ -185,6 +440,33 @@ public class HttpClientHelper {
         throw new IOException("Unexpected code " + response.code() + ": " + response.message() + " - " + responseBody);
     }
 
+    private static boolean shouldGzip(String endpoint, RequestBody requestBody) throws IOException {
+        if (!Config.isGzipRequestEnabled() || Boolean.FALSE.equals(gzipSupport.get(endpoint))) {
+            return false;
+        }
+        long length = requestBody.contentLength();
+        return length < 0 || length >= Config.getGzipRequestMinBytes();
+    }
+
+    /**
+     * @return {@code scope|view|url|sorted params}, the identity of a shared GET
+     */
+    private static String sharedKey(String scope, String view, String url, Map<String, String> params) {
+        return scope + "|" + view + "|" + endpointKey(url) + "|" + new TreeMap<>(params);
+    }
+
+    /**
+     * @return The URL without its query, keeping a non-default port the way OkHttp writes cache URLs
+     */
+    static String endpointKey(String url) {
+        HttpUrl httpUrl = HttpUrl.parse(url);
+        if (httpUrl == null) {
+            return url;
+        }
+        String port = httpUrl.port() == HttpUrl.defaultPort(httpUrl.scheme()) ? "" : ":" + httpUrl.port();
+        return httpUrl.scheme() + "://" + httpUrl.host() + port + httpUrl.encodedPath();
+    }
+
     private static boolean shouldUseCustomProxy(String url) {
         return url.equalsIgnoreCase(Config.getStagingModelMappingUrl());
     }
@@ -0,0 +1,200 @@
+package org.oracle.com.ods.services.utility;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.oracle.com.ods.util.MappingDocumentHasher;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming response handlers for the schema and model mapping services.
+ * Each handler reads tokens straight from the response stream and returns as soon as
+ * the wanted item has been seen, so the full body is never materialized.
+ */
+public class JsonResponseHandlers {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final JsonFactory JSON_FACTORY = OBJECT_MAPPER.getFactory();
+
+    private JsonResponseHandlers() {
+    }
+
+    /**
+     * Reads the id of the first schema in a schema listing. Vertica returns a bare array of
+     * schemas with numeric ids, Snowflake wraps them in an {@code items} array with string ids.
+     *
+     * @param schemaType The schema service the response came from
+     * @return Handler returning the first schema id, or null if the listing is empty
+     */
+    public static ResponseHandler<String> firstSchemaId(SchemaType schemaType) {
+        return body -> {
+            try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+                if (!moveToItems(parser, schemaType == SchemaType.SNOWFLAKE)) {
+                    return null;
+                }
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    return null;
+                }
+                return readItem(parser, "id").get("id");
+            }
+        };
+    }
+
+    /**
+     * Reads the name and id of every schema in a schema listing, in listing order.
+     *
+     * @param schemaType The schema service the response came from
+     * @return Handler returning the schema ids keyed by schema name
+     */
+    public static ResponseHandler<Map<String, String>> schemaIds(SchemaType schemaType) {
+        return body -> {
+            Map<String, String> schemaIds = new LinkedHashMap<>();
+            try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+                if (!moveToItems(parser, schemaType == SchemaType.SNOWFLAKE)) {
+                    return schemaIds;
+                }
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    Map<String, String> item = readItem(parser, "id", "name");
+                    if (item.get("name") != null) {
+                        schemaIds.put(item.get("name"), item.get("id"));
+                    }
+                }
+            }
+            return schemaIds;
+        };
+    }
+
+    /**
+     * Finds the internal id of the given version in a model mapping listing.
+     *
+     * @param targetVersion The mapping version to look for
+     * @return Handler returning the internal id, or null if the version is not listed
+     */
+    public static ResponseHandler<String> mappingIdForVersion(String targetVersion) {
+        return body -> {
+            try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+                if (!moveToItems(parser, true)) {
+                    return null;
+                }
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    Map<String, String> item = readItem(parser, "id", "version");
+                    if (targetVersion.equals(item.get("version"))) {
+                        return item.get("id");
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Reads every version listed for a mapping together with its internal id and the canonical
+     * hash of its {@code model_mapping_document}. The document itself is not retained.
+     *
+     * @return Handler returning one map per listed version with the keys id, version and contentHash
+     */
+    public static ResponseHandler<List<Map<String, String>>> mappingVersions() {
+        return body -> {
+            List<Map<String, String>> versions = new ArrayList<>();
+            try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+                if (!moveToItems(parser, true)) {
+                    return versions;
+                }
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    Map<String, String> item = new LinkedHashMap<>();
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String field = parser.getCurrentName();
+                        JsonToken value = parser.nextToken();
+                        if ("model_mapping_document".equals(field) && value == JsonToken.VALUE_STRING) {
+                            item.put("contentHash", MappingDocumentHasher.hash(parser.getText()));
+                        } else if ("model_mapping_document".equals(field) && value == JsonToken.START_OBJECT) {
+                            item.put("contentHash", MappingDocumentHasher.hash((JsonNode) parser.readValueAsTree()));
+                        } else if (("id".equals(field) || "version".equals(field)) && value.isScalarValue()) {
+                            item.put(field, parser.getValueAsString());
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    if (item.get("version") != null) {
+                        versions.add(item);
+                    }
+                }
+            }
+            return versions;
+        };
+    }
+
+    /**
+     * Reads the objects of an {@code items} array one at a time, so only the items themselves
+     * are built as trees and not the enclosing response.
+     *
+     * @return Handler returning the listed items
+     */
+    public static ResponseHandler<List<ObjectNode>> items() {
+        return body -> {
+            List<ObjectNode> items = new ArrayList<>();
+            try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+                if (!moveToItems(parser, true)) {
+                    return items;
+                }
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    items.add(parser.readValueAsTree());
+                }
+            }
+            return items;
+        };
+    }
+
+    /**
+     * Positions the parser on the start of the item array, either the root array or
+     * the {@code items} field of the root object.
+     */
+    private static boolean moveToItems(JsonParser parser, boolean wrapped) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (!wrapped) {
+            return token == JsonToken.START_ARRAY;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            return false;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("items".equals(field)) {
+                return value == JsonToken.START_ARRAY;
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    /**
+     * Reads the wanted scalar fields of the object the parser is positioned on and
+     * leaves the parser on its closing token. Nested values are skipped.
+     */
+    private static Map<String, String> readItem(JsonParser parser, String... fields) throws IOException {
+        Map<String, String> values = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if (parser.currentToken().isScalarValue()) {
+                for (String wanted : fields) {
+                    if (wanted.equals(field)) {
+                        values.put(field, parser.getValueAsString());
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,65 @@
+package org.oracle.com.ods.services.utility;
+
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the outcome of every item handled by a bulk tool so that a single summary can be
+ * logged at the end of the run. Safe to use from concurrent tasks.
+ *
+ * @param <E> The outcomes an item can have
+ */
+public class OutcomeReport<E extends Enum<E>> {
+
+    private final Class<E> outcomeType;
+    private final String itemName;
+    private final List<String> lines = new ArrayList<>();
+    private final Map<E, Integer> counts;
+
+    /**
+     * @param outcomeType The enum of possible outcomes
+     * @param itemName    What the items are called in the totals line, for example "Schema"
+     */
+    public OutcomeReport(Class<E> outcomeType, String itemName) {
+        this.outcomeType = outcomeType;
+        this.itemName = itemName;
+        this.counts = new EnumMap<>(outcomeType);
+    }
+
+    /**
+     * Records the outcome for one item in one environment.
+     *
+     * @param environment The environment the item belongs to
+     * @param item        The item name or ID
+     * @param outcome     What happened to the item
+     * @param detail      A short reason shown in the summary
+     */
+    public synchronized void record(String environment, String item, E outcome, String detail) {
+        counts.merge(outcome, 1, Integer::sum);
+        lines.add(String.format("%-10s %-10s %s - %s", outcome, environment, item, detail));
+    }
+
+    public synchronized int getCount(E outcome) {
+        return counts.getOrDefault(outcome, 0);
+    }
+
+    /**
+     * Logs one line per recorded item followed by the total of every outcome, including those that did not occur.
+     *
+     * @param logger The logger of the calling tool
+     */
+    public synchronized void log(Logger logger) {
+        for (String line : lines) {
+            logger.info(line);
+        }
+        Map<E, Integer> totals = new EnumMap<>(outcomeType);
+        for (E outcome : outcomeType.getEnumConstants()) {
+            totals.put(outcome, getCount(outcome));
+        }
+        logger.info("{} totals: {}", itemName, totals);
+    }
+}
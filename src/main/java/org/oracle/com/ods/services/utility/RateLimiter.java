@@ -0,0 +1,38 @@
+package org.oracle.com.ods.services.utility;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spaces out calls from any number of threads so that no more than the configured number
+ * of permits are handed out per second.
+ */
+public class RateLimiter {
+
+    private final long intervalNanos;
+    private long nextFreeSlot = System.nanoTime();
+
+    /**
+     * @param permitsPerSecond The maximum number of calls per second, a value of zero or less disables limiting
+     */
+    public RateLimiter(double permitsPerSecond) {
+        this.intervalNanos = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0;
+    }
+
+    /**
+     * Blocks until the caller may proceed.
+     *
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextFreeSlot);
+            nextFreeSlot = slot + intervalNanos;
+            waitNanos = slot - now;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.oracle.com.ods.services.utility;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Consumes a successful response body directly from the network stream.
+ *
+ * @param <T> The type produced from the response body
+ */
+@FunctionalInterface
+public interface ResponseHandler<T> {
+
+    /**
+     * Reads the response body. The handler may stop reading early; the remaining body is discarded.
+     *
+     * @param body The response body stream
+     * @return The value read from the body
+     * @throws IOException If the body cannot be read or parsed
+     */
+    T handle(InputStream body) throws IOException;
+}
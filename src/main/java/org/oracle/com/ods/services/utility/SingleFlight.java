@@ -0,0 +1,142 @@
+package org.oracle.com.ods.services.utility;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Coalesces concurrent calls for the same key into one: the first caller runs the call and every
+ * caller arriving while it is in flight waits for, and receives, the same result. A completed result
+ * is kept for a short memo period to absorb bursts of identical lookups. Failed calls are not memoized.
+ * Expired results are dropped whenever a new call is run, so a long run over many distinct keys keeps only
+ * the results of its last memo period.
+ *
+ * @param <V> The result type, shared between callers and therefore treated as read-only
+ */
+public class SingleFlight<V> {
+
+    /**
+     * A call that produces the result for a key.
+     */
+    @FunctionalInterface
+    public interface Call<V> {
+        V call() throws IOException;
+    }
+
+    private static class Flight<V> {
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        private volatile long completedAt;
+    }
+
+    private final long memoMillis;
+    private final Map<String, Flight<V>> flights = new ConcurrentHashMap<>();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong shared = new AtomicLong();
+
+    /**
+     * @param memoMillis How long a completed result is handed out to new callers, 0 to only share in-flight calls
+     */
+    public SingleFlight(long memoMillis) {
+        this.memoMillis = memoMillis;
+    }
+
+    /**
+     * Returns the result for the key, running the call only if no identical call is in flight or memoized.
+     *
+     * @param key  Identifies the call, callers with equal keys share the result
+     * @param call The call
+     * @return The result of this or a concurrent identical call
+     * @throws IOException If the shared call failed
+     */
+    public V execute(String key, Call<V> call) throws IOException {
+        while (true) {
+            Flight<V> flight = flights.get(key);
+            if (flight != null && isExpired(flight)) {
+                flights.remove(key, flight);
+                continue;
+            }
+            if (flight == null) {
+                Flight<V> created = new Flight<>();
+                flight = flights.putIfAbsent(key, created);
+                if (flight == null) {
+                    return lead(key, created, call);
+                }
+            }
+            shared.incrementAndGet();
+            return await(flight);
+        }
+    }
+
+    /**
+     * Drops every memoized result whose key matches, after the underlying data has been changed.
+     * Calls still in flight are left alone.
+     *
+     * @param keys Selects the keys to drop
+     */
+    public void forget(Predicate<String> keys) {
+        flights.entrySet().removeIf(entry -> entry.getValue().completedAt > 0 && keys.test(entry.getKey()));
+    }
+
+    /**
+     * @return The number of calls actually run
+     */
+    public long getExecutedCount() {
+        return executed.get();
+    }
+
+    /**
+     * @return The number of callers served by another caller's call
+     */
+    public long getSharedCount() {
+        return shared.get();
+    }
+
+    /**
+     * @return The number of calls in flight or memoized, expired ones included until the next call is run
+     */
+    int size() {
+        return flights.size();
+    }
+
+    private V lead(String key, Flight<V> flight, Call<V> call) throws IOException {
+        executed.incrementAndGet();
+        flights.values().removeIf(this::isExpired);
+        try {
+            V value = call.call();
+            flight.completedAt = System.currentTimeMillis();
+            flight.result.complete(value);
+            if (memoMillis <= 0) {
+                flights.remove(key, flight);
+            }
+            return value;
+        } catch (IOException | RuntimeException e) {
+            flights.remove(key, flight);
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private boolean isExpired(Flight<V> flight) {
+        long completedAt = flight.completedAt;
+        return completedAt > 0 && System.currentTimeMillis() - completedAt > memoMillis;
+    }
+
+    private V await(Flight<V> flight) throws IOException {
+        try {
+            return flight.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a shared call", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+}
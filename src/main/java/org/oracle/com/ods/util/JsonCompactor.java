@@ -1,5 +1,10 @@
 package org.oracle.com.ods.util;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -7,8 +12,16 @@ import org.oracle.com.ods.db.MetadataExtractor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
 public class JsonCompactor {
     private static final Logger logger = LoggerFactory.getLogger(JsonCompactor.class);
+    private static final JsonFactory jsonFactory = new JsonFactory();
 
     public static String compactAndEscapeJson(ObjectNode objectNode) {
         ObjectMapper objectMapper = new ObjectMapper();
@@ -19,4 +32,44 @@ public class JsonCompactor {
             return null;
         }
     }
+
+    /**
+     * Copies JSON from the input to the output token by token, dropping all insignificant whitespace
+     * while leaving string values untouched. Scalar values found at the given dotted paths
+     * (for example {@code recordType.format}) are captured in the same pass.
+     *
+     * @param in           The JSON to compact
+     * @param out          Receives the compact JSON
+     * @param capturePaths Dotted paths of object fields whose values should be returned
+     * @return The captured values keyed by path
+     * @throws IOException If the input is not valid JSON or cannot be read
+     */
+    public static Map<String, String> compact(InputStream in, OutputStream out, Set<String> capturePaths) throws IOException {
+        Map<String, String> captured = new HashMap<>();
+        try (JsonParser parser = jsonFactory.createParser(in);
+             JsonGenerator generator = jsonFactory.createGenerator(out)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token.isScalarValue() && !capturePaths.isEmpty()) {
+                    String path = pathOf(parser.getParsingContext());
+                    if (path != null && capturePaths.contains(path)) {
+                        captured.put(path, parser.getValueAsString());
+                    }
+                }
+                generator.copyCurrentEvent(parser);
+            }
+        }
+        return captured;
+    }
+
+    private static String pathOf(JsonStreamContext context) {
+        StringBuilder path = new StringBuilder();
+        for (JsonStreamContext current = context; !current.inRoot(); current = current.getParent()) {
+            if (!current.inObject()) {
+                return null;
+            }
+            path.insert(0, path.length() == 0 ? current.getCurrentName() : current.getCurrentName() + ".");
+        }
+        return path.toString();
+    }
 }
@@ -0,0 +1,119 @@
+package org.oracle.com.ods.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Computes a canonical content hash of a model mapping document, so that a local
+ * mapping file and a stored remote version can be compared without regard to key order
+ * or formatting.
+ */
+public class MappingDocumentHasher {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private MappingDocumentHasher() {
+    }
+
+    /**
+     * Hashes a mapping document given as JSON text. Text that is not valid JSON is hashed as is.
+     *
+     * @param document The mapping document
+     * @return The hex encoded SHA-256 hash of the canonical form
+     */
+    public static String hash(String document) {
+        try {
+            return hash(objectMapper.readTree(document));
+        } catch (JsonProcessingException e) {
+            MessageDigest digest = newDigest();
+            digest.update(document.getBytes(StandardCharsets.UTF_8));
+            return toHex(digest.digest());
+        }
+    }
+
+    /**
+     * Hashes a mapping document given as UTF-8 encoded JSON. Bytes that are not valid JSON are hashed as is.
+     *
+     * @param document The mapping document
+     * @return The hex encoded SHA-256 hash of the canonical form
+     */
+    public static String hash(byte[] document) {
+        try {
+            return hash(objectMapper.readTree(document));
+        } catch (IOException e) {
+            MessageDigest digest = newDigest();
+            digest.update(document);
+            return toHex(digest.digest());
+        }
+    }
+
+    /**
+     * Hashes a parsed mapping document. Object fields are written in sorted order and without whitespace.
+     *
+     * @param document The mapping document
+     * @return The hex encoded SHA-256 hash of the canonical form
+     */
+    public static String hash(JsonNode document) {
+        MessageDigest digest = newDigest();
+        try (OutputStream out = new DigestOutputStream(OutputStream.nullOutputStream(), digest);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            writeCanonical(generator, document);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to hash mapping document", e);
+        }
+        return toHex(digest.digest());
+    }
+
+    private static void writeCanonical(JsonGenerator generator, JsonNode node) throws IOException {
+        if (node.isObject()) {
+            List<String> fieldNames = new ArrayList<>();
+            Iterator<String> names = node.fieldNames();
+            names.forEachRemaining(fieldNames::add);
+            Collections.sort(fieldNames);
+
+            generator.writeStartObject();
+            for (String fieldName : fieldNames) {
+                generator.writeFieldName(fieldName);
+                writeCanonical(generator, node.get(fieldName));
+            }
+            generator.writeEndObject();
+        } else if (node.isArray()) {
+            generator.writeStartArray();
+            for (JsonNode element : node) {
+                writeCanonical(generator, element);
+            }
+            generator.writeEndArray();
+        } else {
+            objectMapper.writeTree(generator, node);
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,29 @@
+package org.oracle.com.ods.db;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TimestampTypesTest {
+
+    @Test
+    public void recognizesZonedTypeNames() {
+        assertTrue(TimestampTypes.isZoned("TimestampTz"));
+        assertTrue(TimestampTypes.isZoned("TIMESTAMPTZ"));
+        assertTrue(TimestampTypes.isZoned("TIMESTAMPLTZ"));
+        assertTrue(TimestampTypes.isZoned("TIMESTAMP_TZ"));
+        assertTrue(TimestampTypes.isZoned("TIMESTAMP_LTZ"));
+        assertTrue(TimestampTypes.isZoned("TIMESTAMP WITH TIME ZONE"));
+        assertTrue(TimestampTypes.isZoned("TIMESTAMP WITH LOCAL TIME ZONE"));
+    }
+
+    @Test
+    public void rejectsWallClockTypeNames() {
+        assertFalse(TimestampTypes.isZoned("TIMESTAMPNTZ"));
+        assertFalse(TimestampTypes.isZoned("TIMESTAMP_NTZ"));
+        assertFalse(TimestampTypes.isZoned("TIMESTAMP"));
+        assertFalse(TimestampTypes.isZoned("DATE"));
+        assertFalse(TimestampTypes.isZoned(null));
+    }
+}
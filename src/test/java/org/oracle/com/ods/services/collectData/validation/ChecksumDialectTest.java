@@ -0,0 +1,87 @@
+package org.oracle.com.ods.services.collectData.validation;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ChecksumDialectTest {
+
+    private static final List<String> COLUMNS = List.of("ID", "UPDT_DT_TM", "LOAD_DT_TM", "NAME");
+    private static final List<ChecksumDialect.ColumnKind> KINDS = List.of(ChecksumDialect.ColumnKind.NUMBER,
+            ChecksumDialect.ColumnKind.TIMESTAMP, ChecksumDialect.ColumnKind.TIMESTAMP_TZ, ChecksumDialect.ColumnKind.STRING);
+
+    @Test
+    public void rendersOracleRows() {
+        assertEquals("LOWER(RAWTOHEX(STANDARD_HASH('|' || COALESCE(TO_CHAR(ROUND(ID * 1000000)), ''), 'MD5')))"
+                        + " || LOWER(RAWTOHEX(STANDARD_HASH('|' || COALESCE(TO_CHAR(UPDT_DT_TM, 'YYYY-MM-DD HH24:MI:SS'), ''), 'MD5')))"
+                        + " || LOWER(RAWTOHEX(STANDARD_HASH('|' || COALESCE(TO_CHAR(SYS_EXTRACT_UTC(LOAD_DT_TM), 'YYYY-MM-DD HH24:MI:SS'), ''), 'MD5')))"
+                        + " || LOWER(RAWTOHEX(STANDARD_HASH('|' || COALESCE(RTRIM(NAME), ''), 'MD5')))",
+                ChecksumDialect.ORACLE.rowText(COLUMNS, KINDS));
+    }
+
+    @Test
+    public void rendersVerticaRows() {
+        assertEquals("MD5('|' || COALESCE(CAST(CAST(ROUND(ID * 1000000) AS NUMERIC(38,0)) AS VARCHAR), ''))"
+                        + " || MD5('|' || COALESCE(TO_CHAR(UPDT_DT_TM, 'YYYY-MM-DD HH24:MI:SS'), ''))"
+                        + " || MD5('|' || COALESCE(TO_CHAR(LOAD_DT_TM AT TIME ZONE 'UTC', 'YYYY-MM-DD HH24:MI:SS'), ''))"
+                        + " || MD5('|' || COALESCE(RTRIM(NAME), ''))",
+                ChecksumDialect.VERTICA.rowText(COLUMNS, KINDS));
+    }
+
+    @Test
+    public void rendersSnowflakeRows() {
+        assertEquals("MD5('|' || COALESCE(TO_VARCHAR(CAST(ROUND(ID * 1000000) AS NUMBER(38,0))), ''))"
+                        + " || MD5('|' || COALESCE(TO_CHAR(UPDT_DT_TM, 'YYYY-MM-DD HH24:MI:SS'), ''))"
+                        + " || MD5('|' || COALESCE(TO_CHAR(CONVERT_TIMEZONE('UTC', LOAD_DT_TM), 'YYYY-MM-DD HH24:MI:SS'), ''))"
+                        + " || MD5('|' || COALESCE(RTRIM(NAME), ''))",
+                ChecksumDialect.SNOWFLAKE.rowText(COLUMNS, KINDS));
+    }
+
+    @Test
+    public void rendersHashSlices() {
+        assertEquals("TO_NUMBER(SUBSTR(RAWTOHEX(STANDARD_HASH(ROW_TEXT, 'MD5')), 9, 8), 'XXXXXXXX')",
+                ChecksumDialect.ORACLE.hashSlice("ROW_TEXT", 9));
+        assertEquals("HEX_TO_INTEGER(SUBSTR(MD5(ROW_TEXT), 9, 8))", ChecksumDialect.VERTICA.hashSlice("ROW_TEXT", 9));
+        assertEquals("TO_NUMBER(SUBSTR(MD5(ROW_TEXT), 9, 8), 'XXXXXXXX')", ChecksumDialect.SNOWFLAKE.hashSlice("ROW_TEXT", 9));
+    }
+
+    @Test
+    public void hashesWideRowsInChunksOf100Columns() {
+        List<String> columns = new ArrayList<>();
+        for (int i = 1; i <= 250; i++) {
+            columns.add("C" + i);
+        }
+        List<ChecksumDialect.ColumnKind> kinds = Collections.nCopies(columns.size(), ChecksumDialect.ColumnKind.STRING);
+
+        String rowText = ChecksumDialect.VERTICA.rowText(columns, kinds);
+
+        assertEquals(chunk(1, 100) + " || " + chunk(101, 200) + " || " + chunk(201, 250), rowText);
+    }
+
+    @Test
+    public void keepsExactly100ColumnsInOneHash() {
+        List<String> columns = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            columns.add("C" + i);
+        }
+        List<ChecksumDialect.ColumnKind> kinds = Collections.nCopies(columns.size(), ChecksumDialect.ColumnKind.NUMBER);
+
+        String rowText = ChecksumDialect.SNOWFLAKE.rowText(columns, kinds);
+
+        assertFalse(rowText.startsWith("MD5(MD5("));
+        assertEquals(100, rowText.split(" \\|\\| MD5\\('\\|'").length);
+    }
+
+    private static String chunk(int first, int last) {
+        List<String> hashes = new ArrayList<>();
+        for (int i = first; i <= last; i++) {
+            hashes.add("MD5('|' || COALESCE(RTRIM(C" + i + "), ''))");
+        }
+        return "MD5(" + String.join(" || ", hashes) + ")";
+    }
+}
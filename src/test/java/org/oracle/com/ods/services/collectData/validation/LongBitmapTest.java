@@ -0,0 +1,138 @@
+package org.oracle.com.ods.services.collectData.validation;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LongBitmapTest {
+
+    @Test
+    public void addsAndFindsNegativeValues() throws IOException {
+        LongBitmap bitmap = new LongBitmap();
+        long[] values = {-1L, -2L, -65536L, -65537L, Long.MIN_VALUE, 0L, 1L, Long.MAX_VALUE};
+        for (long value : values) {
+            assertTrue(bitmap.add(value));
+        }
+        assertFalse(bitmap.add(-1L));
+
+        assertEquals(values.length, bitmap.getCardinality());
+        for (long value : values) {
+            assertTrue(bitmap.contains(value));
+        }
+        assertFalse(bitmap.contains(-3L));
+        assertFalse(bitmap.contains(Long.MIN_VALUE + 1));
+        assertEquals(List.of(
+                List.of(Long.MIN_VALUE, Long.MIN_VALUE),
+                List.of(-65537L, -65536L),
+                List.of(-2L, 1L),
+                List.of(Long.MAX_VALUE, Long.MAX_VALUE)), ranges(bitmap));
+    }
+
+    @Test
+    public void switchesToBitmapAfter4096Values() throws IOException {
+        LongBitmap bitmap = new LongBitmap();
+        for (long value = 0; value < 4096; value++) {
+            bitmap.add(value * 2);
+        }
+        assertEquals(4096, bitmap.getCardinality());
+
+        assertTrue(bitmap.add(1));
+        assertFalse(bitmap.add(1));
+        assertEquals(4097, bitmap.getCardinality());
+
+        for (long value = 0; value < 4096; value++) {
+            assertTrue(bitmap.contains(value * 2));
+            assertFalse(bitmap.contains(value * 2 + 3));
+        }
+        assertTrue(bitmap.contains(1));
+        List<List<Long>> ranges = ranges(bitmap);
+        assertEquals(List.of(0L, 2L), ranges.get(0));
+        assertEquals(List.of(8190L, 8190L), ranges.get(ranges.size() - 1));
+        assertEquals(4095, ranges.size());
+    }
+
+    @Test
+    public void keepsUnorderedInsertsSorted() throws IOException {
+        Random random = new Random(42);
+        List<Long> values = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            values.add(random.nextInt(300000) - 100000L);
+        }
+        TreeSet<Long> expected = new TreeSet<>(values);
+        Collections.shuffle(values, random);
+
+        LongBitmap bitmap = new LongBitmap();
+        for (long value : values) {
+            assertEquals(!bitmap.contains(value), bitmap.add(value));
+        }
+
+        assertEquals(expected.size(), bitmap.getCardinality());
+        List<Long> actual = new ArrayList<>();
+        bitmap.forEachRange((from, to) -> {
+            for (long value = from; value <= to; value++) {
+                actual.add(value);
+            }
+        });
+        assertEquals(new ArrayList<>(expected), actual);
+    }
+
+    @Test
+    public void subtractsArrayAndBitmapChunks() throws IOException {
+        LongBitmap dense = new LongBitmap();
+        for (long value = 0; value < 10000; value++) {
+            dense.add(value);
+        }
+        LongBitmap sparse = new LongBitmap();
+        for (long value = 0; value < 20000; value += 10) {
+            sparse.add(value);
+        }
+
+        LongBitmap denseMinusSparse = dense.andNot(sparse);
+        assertEquals(9000, denseMinusSparse.getCardinality());
+        assertFalse(denseMinusSparse.contains(0));
+        assertTrue(denseMinusSparse.contains(1));
+        assertFalse(denseMinusSparse.contains(9990));
+        assertTrue(denseMinusSparse.contains(9999));
+
+        LongBitmap sparseMinusDense = sparse.andNot(dense);
+        assertEquals(1000, sparseMinusDense.getCardinality());
+        assertEquals(List.of(10000L, 10000L), ranges(sparseMinusDense).get(0));
+        assertTrue(sparseMinusDense.contains(19990));
+
+        assertEquals(0, dense.andNot(dense).getCardinality());
+        assertEquals(10000, dense.andNot(new LongBitmap()).getCardinality());
+    }
+
+    @Test
+    public void joinsRunsAcrossChunks() throws IOException {
+        LongBitmap bitmap = new LongBitmap();
+        // a run through a bitmap chunk into an array chunk, and one through two array chunks around zero
+        for (long value = 60000; value < 65540; value++) {
+            bitmap.add(value);
+        }
+        for (long value = -3; value < 3; value++) {
+            bitmap.add(value);
+        }
+        bitmap.add(131072);
+
+        assertEquals(List.of(
+                List.of(-3L, 2L),
+                List.of(60000L, 65539L),
+                List.of(131072L, 131072L)), ranges(bitmap));
+    }
+
+    private static List<List<Long>> ranges(LongBitmap bitmap) throws IOException {
+        List<List<Long>> ranges = new ArrayList<>();
+        bitmap.forEachRange((from, to) -> ranges.add(List.of(from, to)));
+        return ranges;
+    }
+}
@@ -0,0 +1,85 @@
+package org.oracle.com.ods.services.mappingServices;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okio.Buffer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.oracle.com.ods.util.MappingDocumentHasher;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class MappingDocumentTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final String DOCUMENT = "{\n"
+            + "  \"mappingId\" : \"PERSON\",\n"
+            + "  \"version\" : \"3\",\n"
+            + "  \"recordType\" : { \"entityType\" : \"PERSON\", \"format\" : \"AVRO\", \"schema\" : \"e30=\" },\n"
+            + "  \"targetModels\" : [ { \"name\" : \"PERSON_T\", \"version\" : \"9\", \"description\" : \"a \\\"quoted\\\"  name\" } ]\n"
+            + "}\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MappingDocument read(String json) throws IOException {
+        File file = folder.newFile("PERSON.json");
+        Files.writeString(file.toPath(), json);
+        return MappingDocument.read("PERSON", file);
+    }
+
+    @Test
+    public void capturesTheHeaderFields() throws Exception {
+        MappingDocument document = read(DOCUMENT);
+
+        assertEquals("PERSON", document.getMappingId());
+        assertEquals("3", document.getVersion());
+        assertEquals("PERSON", document.getEntityType());
+        assertEquals("AVRO", document.getRecordFormat());
+    }
+
+    @Test
+    public void leavesMissingHeaderFieldsNull() throws Exception {
+        MappingDocument document = read("{\"mappingId\": \"PERSON\", \"recordType\": {\"format\": \"AVRO\"}}");
+
+        assertNull(document.getVersion());
+        assertNull(document.getEntityType());
+        assertEquals("AVRO", document.getRecordFormat());
+    }
+
+    @Test
+    public void postsTheCompactDocument() throws Exception {
+        MappingDocument document = read(DOCUMENT);
+        Buffer first = new Buffer();
+        Buffer second = new Buffer();
+
+        document.toRequestBody().writeTo(first);
+        document.toRequestBody().writeTo(second);
+
+        String body = first.readUtf8();
+        assertEquals(body, second.readUtf8());
+        JsonNode post = objectMapper.readTree(body);
+        assertEquals("PERSON", post.path("mapping_id").asText());
+        assertEquals("3", post.path("version").asText());
+        assertEquals("AVRO", post.path("record_format").asText());
+        assertEquals("PERSON", post.path("entity_type").asText());
+        String posted = post.path("model_mapping_document").asText();
+        assertEquals("{\"mappingId\":\"PERSON\",\"version\":\"3\","
+                + "\"recordType\":{\"entityType\":\"PERSON\",\"format\":\"AVRO\",\"schema\":\"e30=\"},"
+                + "\"targetModels\":[{\"name\":\"PERSON_T\",\"version\":\"9\",\"description\":\"a \\\"quoted\\\"  name\"}]}",
+                posted);
+        assertEquals(objectMapper.readTree(DOCUMENT), objectMapper.readTree(posted));
+    }
+
+    @Test
+    public void hashesLikeTheFormattedFile() throws Exception {
+        assertEquals(MappingDocumentHasher.hash(DOCUMENT), read(DOCUMENT).getContentHash());
+    }
+}
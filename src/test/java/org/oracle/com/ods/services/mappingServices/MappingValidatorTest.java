@@ -0,0 +1,163 @@
+package org.oracle.com.ods.services.mappingServices;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MappingValidatorTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static ObjectNode validDocument() throws Exception {
+        return (ObjectNode) objectMapper.readTree("{"
+                + "\"mappingId\": \"PERSON\","
+                + "\"version\": \"3\","
+                + "\"recordType\": {\"entityType\": \"PERSON\", \"format\": \"AVRO\", \"schema\": \"e30=\"},"
+                + "\"targetModels\": [{\"name\": \"PERSON_T\", \"uses\": [], \"columns\": ["
+                + "  {\"name\": \"PERSON_ID\", \"type\": \"LONG\", \"nullable\": false},"
+                + "  {\"name\": \"NAME\", \"type\": \"STRING\", \"length\": 100, \"nullable\": true}]}],"
+                + "\"recordMap\": {\"recordId\": \"r1\", \"targetMaps\": [{\"targetName\": \"PERSON_T\", \"columnMaps\": ["
+                + "  {\"columnName\": \"PERSON_ID\", \"fieldName\": \"person_id\", \"recordId\": \"r1\"},"
+                + "  {\"columnName\": \"NAME\", \"fieldName\": \"name\", \"recordId\": \"r1\"}]}]}"
+                + "}");
+    }
+
+    private static ObjectNode columnMap(ObjectNode document, int index) {
+        return (ObjectNode) document.path("recordMap").path("targetMaps").path(0).path("columnMaps").path(index);
+    }
+
+    @Test
+    public void acceptsAValidDocument() throws Exception {
+        assertEquals(List.of(), MappingValidator.validate(validDocument(), "PERSON"));
+    }
+
+    @Test
+    public void rejectsANonObjectDocument() throws Exception {
+        assertEquals(List.of("document is not a JSON object"), MappingValidator.validate(objectMapper.readTree("[]"), "PERSON"));
+    }
+
+    @Test
+    public void reportsMissingFields() throws Exception {
+        ObjectNode document = validDocument();
+        document.remove("mappingId");
+        document.remove("recordType");
+        document.remove("targetModels");
+        document.remove("recordMap");
+
+        List<String> errors = MappingValidator.validate(document, "PERSON");
+
+        assertTrue(errors.contains("mappingId is missing or not a string"));
+        assertTrue(errors.contains("recordType is missing or not an object"));
+        assertTrue(errors.contains("targetModels is missing or empty"));
+        assertTrue(errors.contains("recordMap is missing or not an object"));
+        assertEquals(4, errors.size());
+    }
+
+    @Test
+    public void reportsMissingNestedFields() throws Exception {
+        ObjectNode document = validDocument();
+        ((ObjectNode) document.get("recordType")).remove("entityType");
+        ((ObjectNode) document.get("targetModels").get(0).get("columns").get(0)).remove("nullable");
+        columnMap(document, 1).remove("fieldName");
+
+        assertEquals(List.of(
+                "recordType.entityType is missing or not a string",
+                "targetModels[0].columns[PERSON_ID].nullable is missing or not a boolean",
+                "recordMap.targetMaps[0].columnMaps[1].fieldName is missing or not a string"),
+                MappingValidator.validate(document, "PERSON"));
+    }
+
+    @Test
+    public void reportsAMappingIdThatDoesNotMatchTheFileName() throws Exception {
+        assertEquals(List.of("mappingId PERSON does not match file name ENCOUNTER"),
+                MappingValidator.validate(validDocument(), "ENCOUNTER"));
+    }
+
+    @Test
+    public void reportsUnknownTargetModels() throws Exception {
+        ObjectNode document = validDocument();
+        ((ObjectNode) document.path("recordMap").path("targetMaps").path(0)).put("targetName", "ENCOUNTER_T");
+
+        assertEquals(List.of("recordMap.targetMaps[0] refers to unknown target model ENCOUNTER_T"),
+                MappingValidator.validate(document, "PERSON"));
+    }
+
+    @Test
+    public void reportsUnknownColumns() throws Exception {
+        ObjectNode document = validDocument();
+        columnMap(document, 1).put("columnName", "BIRTH_DT_TM");
+
+        assertEquals(List.of("recordMap.targetMaps[0].columnMaps[1] maps column BIRTH_DT_TM which is absent from target model PERSON_T"),
+                MappingValidator.validate(document, "PERSON"));
+    }
+
+    @Test
+    public void reportsRecordIdMismatches() throws Exception {
+        ObjectNode document = validDocument();
+        columnMap(document, 0).put("recordId", "r2");
+        columnMap(document, 1).remove("recordId");
+
+        assertEquals(List.of(
+                "recordMap.targetMaps[0].columnMaps[0].recordId does not match recordMap.recordId",
+                "recordMap.targetMaps[0].columnMaps[1].recordId does not match recordMap.recordId"),
+                MappingValidator.validate(document, "PERSON"));
+    }
+
+    @Test
+    public void reportsInvalidVersions() throws Exception {
+        ObjectNode document = validDocument();
+        for (String version : new String[]{"0", "03", "1.2", "v1", ""}) {
+            document.put("version", version);
+            assertEquals(List.of("version " + version + " is not a positive integer"), MappingValidator.validate(document, "PERSON"));
+        }
+        document.put("version", 3);
+        assertEquals(List.of("version is missing or not a string"), MappingValidator.validate(document, "PERSON"));
+    }
+
+    @Test
+    public void reportsUnsupportedAndDuplicateDefinitions() throws Exception {
+        ObjectNode document = validDocument();
+        ((ObjectNode) document.get("recordType")).put("format", "JSON");
+        ((ObjectNode) document.get("recordType")).put("schema", "not base64!");
+        ArrayNode columns = (ArrayNode) document.get("targetModels").get(0).get("columns");
+        ((ObjectNode) columns.get(1)).put("type", "BLOB");
+        columns.add(columns.get(0).deepCopy());
+
+        assertEquals(List.of(
+                "recordType.format JSON is not supported",
+                "recordType.schema is not Base64 encoded",
+                "targetModels[0].columns[NAME].type BLOB is not supported",
+                "targetModels[0].columns[PERSON_ID] is defined more than once"),
+                MappingValidator.validate(document, "PERSON"));
+    }
+
+    @Test
+    public void validatesFilesByName() throws Exception {
+        File valid = folder.newFile("PERSON.json");
+        Files.writeString(valid.toPath(), validDocument().toString());
+        File renamed = folder.newFile("ENCOUNTER.json");
+        Files.writeString(renamed.toPath(), validDocument().toString());
+        File broken = folder.newFile("BROKEN.json");
+        Files.writeString(broken.toPath(), "{\"mappingId\": ");
+
+        Map<String, List<String>> errors = MappingValidator.validateFiles(List.of(valid, renamed, broken));
+
+        assertEquals(List.of("BROKEN.json", "ENCOUNTER.json"), List.copyOf(errors.keySet()));
+        assertEquals(List.of("mappingId PERSON does not match file name ENCOUNTER"), errors.get("ENCOUNTER.json"));
+        assertTrue(errors.get("BROKEN.json").get(0).startsWith("not valid JSON: "));
+    }
+}
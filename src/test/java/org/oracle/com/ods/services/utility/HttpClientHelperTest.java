@@ -0,0 +1,21 @@
+package org.oracle.com.ods.services.utility;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class HttpClientHelperTest {
+
+    @Test
+    public void keepsNonDefaultPortsInEndpointKeys() {
+        assertEquals("https://ods.example.com:8443/schemas", HttpClientHelper.endpointKey("https://ods.example.com:8443/schemas?name=a"));
+        assertEquals("https://ods.example.com/schemas", HttpClientHelper.endpointKey("https://ods.example.com/schemas?name=a"));
+        assertEquals("https://ods.example.com/schemas", HttpClientHelper.endpointKey("https://ods.example.com:443/schemas"));
+        assertEquals("http://ods.example.com:8080/schemas", HttpClientHelper.endpointKey("http://ods.example.com:8080/schemas"));
+    }
+
+    @Test
+    public void keepsUnparsableUrls() {
+        assertEquals("not a url", HttpClientHelper.endpointKey("not a url"));
+    }
+}
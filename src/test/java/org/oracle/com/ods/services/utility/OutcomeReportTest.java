@@ -0,0 +1,45 @@
+package org.oracle.com.ods.services.utility;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OutcomeReportTest {
+
+    private enum Outcome {
+        DONE,
+        FAILED
+    }
+
+    @Test
+    public void countsOutcomes() {
+        OutcomeReport<Outcome> report = new OutcomeReport<>(Outcome.class, "Item");
+
+        report.record("dev", "a", Outcome.DONE, "ok");
+        report.record("dev", "b", Outcome.DONE, "ok");
+
+        assertEquals(2, report.getCount(Outcome.DONE));
+        assertEquals(0, report.getCount(Outcome.FAILED));
+    }
+
+    @Test
+    public void countsConcurrentRecords() throws Exception {
+        OutcomeReport<Outcome> report = new OutcomeReport<>(Outcome.class, "Item");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            Outcome outcome = i % 4 == 0 ? Outcome.FAILED : Outcome.DONE;
+            String item = "item" + i;
+            executor.execute(() -> report.record("dev", item, outcome, "detail"));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(750, report.getCount(Outcome.DONE));
+        assertEquals(250, report.getCount(Outcome.FAILED));
+    }
+}
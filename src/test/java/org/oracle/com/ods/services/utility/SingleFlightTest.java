@@ -0,0 +1,127 @@
+package org.oracle.com.ods.services.utility;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class SingleFlightTest {
+
+    @Test(timeout = 5000)
+    public void sharesAnInFlightCall() throws Exception {
+        SingleFlight<Object> flights = new SingleFlight<>(0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Object value = new Object();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> leader = executor.submit(() -> flights.execute("key", () -> {
+                started.countDown();
+                await(release);
+                return value;
+            }));
+            started.await();
+            Future<Object> follower = executor.submit(() -> flights.execute("key", () -> {
+                throw new AssertionError("an identical call is in flight");
+            }));
+            while (flights.getSharedCount() == 0) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            assertSame(value, leader.get());
+            assertSame(value, follower.get());
+            assertEquals(1, flights.getExecutedCount());
+            assertEquals(1, flights.getSharedCount());
+            assertEquals(0, flights.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void memoizesResultsUntilTheyExpire() throws Exception {
+        SingleFlight<Integer> flights = new SingleFlight<>(100);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals(1, (int) flights.execute("key", calls::incrementAndGet));
+        assertEquals(1, (int) flights.execute("key", calls::incrementAndGet));
+        assertEquals(1, flights.getExecutedCount());
+
+        Thread.sleep(150);
+        assertEquals(2, (int) flights.execute("key", calls::incrementAndGet));
+        assertEquals(2, flights.getExecutedCount());
+    }
+
+    @Test
+    public void runsEveryCallWithoutMemo() throws Exception {
+        SingleFlight<Integer> flights = new SingleFlight<>(0);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals(1, (int) flights.execute("key", calls::incrementAndGet));
+        assertEquals(2, (int) flights.execute("key", calls::incrementAndGet));
+        assertEquals(0, flights.size());
+    }
+
+    @Test
+    public void doesNotMemoizeFailures() throws Exception {
+        SingleFlight<String> flights = new SingleFlight<>(60_000);
+        try {
+            flights.execute("key", () -> {
+                throw new IOException("unavailable");
+            });
+            fail("the failure should be thrown");
+        } catch (IOException e) {
+            assertEquals("unavailable", e.getMessage());
+        }
+
+        assertEquals("value", flights.execute("key", () -> "value"));
+        assertEquals(2, flights.getExecutedCount());
+    }
+
+    @Test
+    public void dropsExpiredResultsOfOtherKeys() throws Exception {
+        SingleFlight<String> flights = new SingleFlight<>(50);
+        for (int i = 0; i < 100; i++) {
+            flights.execute("key" + i, () -> "value");
+        }
+        assertEquals(100, flights.size());
+
+        Thread.sleep(100);
+        flights.execute("other", () -> "value");
+        assertEquals(1, flights.size());
+    }
+
+    @Test
+    public void forgetsMatchingResults() throws Exception {
+        SingleFlight<String> flights = new SingleFlight<>(60_000);
+        flights.execute("schema|a", () -> "a");
+        flights.execute("mapping|b", () -> "b");
+
+        flights.forget(key -> key.startsWith("schema|"));
+
+        assertEquals(1, flights.size());
+        assertEquals("a2", flights.execute("schema|a", () -> "a2"));
+        assertEquals("b", flights.execute("mapping|b", () -> "b2"));
+    }
+
+    private static void await(CountDownLatch latch) throws IOException {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new IOException("not released");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.oracle.com.ods.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class JsonCompactorTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final String DOCUMENT = "{\n"
+            + "  \"mappingId\" : \"PERSON\",\n"
+            + "  \"version\" : \"3\",\n"
+            + "  \"recordType\" : {\n"
+            + "    \"entityType\" : \"PERSON\",\n"
+            + "    \"format\" : \"AVRO\",\n"
+            + "    \"schema\" : \"e30=\"\n"
+            + "  },\n"
+            + "  \"targetModels\" : [ {\n"
+            + "    \"name\" : \"PERSON_T\",\n"
+            + "    \"version\" : \"9\",\n"
+            + "    \"description\" : \"  keeps  inner\\n whitespace \\u00e9 \",\n"
+            + "    \"length\" : 100,\n"
+            + "    \"nullable\" : false,\n"
+            + "    \"default\" : null\n"
+            + "  } ]\n"
+            + "}\n";
+
+    private static Map<String, String> compact(String json, ByteArrayOutputStream out, Set<String> capturePaths) throws IOException {
+        return JsonCompactor.compact(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), out, capturePaths);
+    }
+
+    private static Map<String, String> capture(String json, Set<String> capturePaths) throws IOException {
+        return compact(json, new ByteArrayOutputStream(), capturePaths);
+    }
+
+    @Test
+    public void dropsWhitespaceAndKeepsValues() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        Map<String, String> captured = compact(DOCUMENT, out, Set.of());
+
+        String compacted = out.toString(StandardCharsets.UTF_8);
+        assertEquals("{\"mappingId\":\"PERSON\",\"version\":\"3\","
+                + "\"recordType\":{\"entityType\":\"PERSON\",\"format\":\"AVRO\",\"schema\":\"e30=\"},"
+                + "\"targetModels\":[{\"name\":\"PERSON_T\",\"version\":\"9\","
+                + "\"description\":\"  keeps  inner\\n whitespace \u00e9 \",\"length\":100,\"nullable\":false,\"default\":null}]}",
+                compacted);
+        assertEquals(objectMapper.readTree(DOCUMENT), objectMapper.readTree(compacted));
+        assertEquals(Map.of(), captured);
+    }
+
+    @Test
+    public void capturesValuesAtDottedPaths() throws Exception {
+        Map<String, String> captured = capture(DOCUMENT, Set.of("version", "recordType.entityType", "recordType.format", "recordType.missing"));
+
+        assertEquals(Map.of("version", "3", "recordType.entityType", "PERSON", "recordType.format", "AVRO"), captured);
+    }
+
+    @Test
+    public void ignoresValuesInsideArrays() throws Exception {
+        Map<String, String> captured = capture("{\"targetModels\":[{\"version\":\"9\"}],\"tags\":[\"version\"]}", Set.of("version", "targetModels.version"));
+
+        assertEquals(Map.of(), captured);
+    }
+
+    @Test
+    public void capturesNonStringScalarsAsText() throws Exception {
+        Map<String, String> captured = capture("{\"version\":3,\"recordType\":{\"format\":true}}", Set.of("version", "recordType.format"));
+
+        assertEquals(Map.of("version", "3", "recordType.format", "true"), captured);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsInvalidJson() throws Exception {
+        capture("{\"version\": ", Set.of("version"));
+    }
+}
@@ -0,0 +1,87 @@
+package org.oracle.com.ods.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class MappingDocumentHasherTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final String COMPACT = "{\"mappingId\":\"PERSON\",\"version\":\"3\","
+            + "\"recordType\":{\"entityType\":\"PERSON\",\"format\":\"AVRO\"},"
+            + "\"targetModels\":[{\"name\":\"PERSON_T\",\"length\":100,\"nullable\":false}]}";
+
+    private static final String REORDERED_AND_FORMATTED = "{\n"
+            + "  \"targetModels\" : [ {\n"
+            + "    \"nullable\" : false,\n"
+            + "    \"name\" : \"PERSON_T\",\n"
+            + "    \"length\" : 100\n"
+            + "  } ],\n"
+            + "  \"recordType\" : { \"format\" : \"AVRO\", \"entityType\" : \"PERSON\" },\n"
+            + "  \"version\" : \"3\",\n"
+            + "  \"mappingId\" : \"PERSON\"\n"
+            + "}\n";
+
+    @Test
+    public void ignoresKeyOrderAndWhitespace() {
+        assertEquals(MappingDocumentHasher.hash(COMPACT), MappingDocumentHasher.hash(REORDERED_AND_FORMATTED));
+    }
+
+    @Test
+    public void hashesTextBytesAndTreesAlike() throws Exception {
+        String expected = MappingDocumentHasher.hash(COMPACT);
+
+        assertEquals(expected, MappingDocumentHasher.hash(REORDERED_AND_FORMATTED.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(expected, MappingDocumentHasher.hash(objectMapper.readTree(REORDERED_AND_FORMATTED)));
+    }
+
+    @Test
+    public void hashesStoredDocumentsAlikeWhetherEmbeddedAsTextOrAsObject() throws Exception {
+        JsonNode asText = objectMapper.readTree("{\"model_mapping_document\":" + objectMapper.writeValueAsString(REORDERED_AND_FORMATTED) + "}");
+        JsonNode asObject = objectMapper.readTree("{\"model_mapping_document\":" + REORDERED_AND_FORMATTED + "}");
+
+        assertEquals(MappingDocumentHasher.hash(COMPACT), MappingDocumentHasher.hash(asText.path("model_mapping_document").asText()));
+        assertEquals(MappingDocumentHasher.hash(COMPACT), MappingDocumentHasher.hash(asObject.path("model_mapping_document")));
+    }
+
+    @Test
+    public void hashesTheSortedCompactForm() throws Exception {
+        String canonical = "{\"mappingId\":\"PERSON\",\"recordType\":{\"entityType\":\"PERSON\",\"format\":\"AVRO\"},"
+                + "\"targetModels\":[{\"length\":100,\"name\":\"PERSON_T\",\"nullable\":false}],\"version\":\"3\"}";
+
+        assertEquals(sha256(canonical), MappingDocumentHasher.hash(REORDERED_AND_FORMATTED));
+    }
+
+    @Test
+    public void keepsArrayOrderAndValues() {
+        String hash = MappingDocumentHasher.hash("{\"uses\":[\"A\",\"B\"],\"length\":100}");
+
+        assertNotEquals(hash, MappingDocumentHasher.hash("{\"uses\":[\"B\",\"A\"],\"length\":100}"));
+        assertNotEquals(hash, MappingDocumentHasher.hash("{\"uses\":[\"A\",\"B\"],\"length\":\"100\"}"));
+        assertNotEquals(hash, MappingDocumentHasher.hash("{\"uses\":[\"A\",\"B \"],\"length\":100}"));
+    }
+
+    @Test
+    public void hashesInvalidJsonAsIs() throws Exception {
+        String invalid = "{\"mappingId\": ";
+
+        assertEquals(sha256(invalid), MappingDocumentHasher.hash(invalid));
+        assertEquals(sha256(invalid), MappingDocumentHasher.hash(invalid.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String sha256(String text) throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}